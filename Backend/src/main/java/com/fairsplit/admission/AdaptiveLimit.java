@@ -0,0 +1,202 @@
+package com.fairsplit.admission;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to latency, additive increase and multiplicative decrease
+ * like TCP congestion control: every call that finishes within the target latency while the
+ * limit is in use raises it by 1/limit, about one per round of calls, and a slow call cuts it
+ * by a fifth. Only calls admitted after the last cut can cut it again, so one slow burst
+ * shrinks the limit once rather than once per call. Calls over the limit wait in a bounded
+ * FIFO queue and are handed the slot of the call that finishes.
+ */
+public final class AdaptiveLimit {
+    
+    private static final double BACKOFF = 0.8;
+    
+    private final LimitSpec spec;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private boolean decreased;
+    private long lastDecrease;
+    
+    public AdaptiveLimit(LimitSpec spec) {
+        this.spec = spec;
+        this.limit = spec.initialLimit();
+    }
+    
+    /**
+     * Take a slot if one is free and nobody is waiting for it
+     * @return true if the call may run
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Take a slot, waiting in line for one if needed
+     * @param maxWaitNanos how long to wait at most
+     * @return true if the call may run, false if the queue is full, the wait timed out or the call was shed
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean acquire(long maxWaitNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return true;
+            }
+            if (waiters.size() >= spec.queueCapacity() || maxWaitNanos <= 0) {
+                return false;
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            waiters.addLast(waiter);
+            long remaining = maxWaitNanos;
+            try {
+                while (waiter.state == Waiter.WAITING && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.state == Waiter.GRANTED) {
+                    // The slot was handed over as the thread was interrupted, pass it on
+                    inFlight--;
+                    grantWaiting();
+                } else {
+                    waiters.remove(waiter);
+                }
+                throw e;
+            }
+            if (waiter.state == Waiter.WAITING) {
+                waiters.remove(waiter);
+            }
+            return waiter.state == Waiter.GRANTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Give back a slot and adjust the limit to how long the call took
+     * @param startNanos System.nanoTime() when the call was admitted
+     * @param nowNanos System.nanoTime() now
+     */
+    public void release(long startNanos, long nowNanos) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= (int) limit || !waiters.isEmpty();
+            inFlight--;
+            if (nowNanos - startNanos > spec.targetLatencyNanos()) {
+                if (!decreased || startNanos - lastDecrease >= 0) {
+                    limit = Math.max(spec.minLimit(), limit * BACKOFF);
+                    decreased = true;
+                    lastDecrease = nowNanos;
+                }
+            } else if (saturated) {
+                limit = Math.min(spec.maxLimit(), limit + 1 / limit);
+            }
+            grantWaiting();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Turn away every call waiting in the queue, to make room for more important work
+     * @return the number of calls turned away
+     */
+    public int shed() {
+        lock.lock();
+        try {
+            int shed = waiters.size();
+            for (Waiter waiter : waiters) {
+                waiter.state = Waiter.SHED;
+                waiter.condition.signal();
+            }
+            waiters.clear();
+            return shed;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Check whether calls are waiting for a slot, i.e. the class is over its limit
+     * @return true if the queue is not empty
+     */
+    public boolean hasWaiters() {
+        lock.lock();
+        try {
+            return !waiters.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public LimitSpec getSpec() {
+        return spec;
+    }
+    
+    // Hand free slots to the longest waiting calls; the caller holds the lock
+    private void grantWaiting() {
+        while (!waiters.isEmpty() && inFlight < (int) limit) {
+            Waiter waiter = waiters.pollFirst();
+            waiter.state = Waiter.GRANTED;
+            inFlight++;
+            waiter.condition.signal();
+        }
+    }
+    
+    private static final class Waiter {
+        static final int WAITING = 0;
+        static final int GRANTED = 1;
+        static final int SHED = 2;
+        
+        final Condition condition;
+        int state = WAITING;
+        
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
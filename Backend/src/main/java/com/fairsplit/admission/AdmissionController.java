@@ -0,0 +1,129 @@
+package com.fairsplit.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which write calls run when, so that month-end bursts of expensive writes cannot
+ * hold every database connection while cheap calls starve. Each work class has its own
+ * adaptive concurrency limit and wait queue. Classes are ranked: a class is not admitted at
+ * all while a higher one is queueing, and when a higher class has to queue it sheds the
+ * queues of the classes below it. Reads are never held back here.
+ */
+@Service
+public class AdmissionController {
+
+    private final Map<WorkClass, AdaptiveLimit> limits = new EnumMap<>(WorkClass.class);
+    private final Map<WorkClass, LongAdder> admitted = new EnumMap<>(WorkClass.class);
+    private final Map<WorkClass, LongAdder> rejected = new EnumMap<>(WorkClass.class);
+    private final Map<WorkClass, LongAdder> shed = new EnumMap<>(WorkClass.class);
+    private final Map<WorkClass, LongAdder> latencyNanos = new EnumMap<>(WorkClass.class);
+    private final long maxWaitNanos;
+
+    public AdmissionController(
+            @Value("${fairsplit.admission.settlement.initial-limit:20}") int settlementInitial,
+            @Value("${fairsplit.admission.settlement.max-limit:100}") int settlementMax,
+            @Value("${fairsplit.admission.settlement.queue-capacity:200}") int settlementQueue,
+            @Value("${fairsplit.admission.settlement.target-latency-ms:250}") long settlementTargetMs,
+            @Value("${fairsplit.admission.write.initial-limit:10}") int writeInitial,
+            @Value("${fairsplit.admission.write.max-limit:50}") int writeMax,
+            @Value("${fairsplit.admission.write.queue-capacity:100}") int writeQueue,
+            @Value("${fairsplit.admission.write.target-latency-ms:500}") long writeTargetMs,
+            @Value("${fairsplit.admission.bulk.initial-limit:2}") int bulkInitial,
+            @Value("${fairsplit.admission.bulk.max-limit:10}") int bulkMax,
+            @Value("${fairsplit.admission.bulk.queue-capacity:20}") int bulkQueue,
+            @Value("${fairsplit.admission.bulk.target-latency-ms:2000}") long bulkTargetMs,
+            @Value("${fairsplit.admission.max-wait-ms:2000}") long maxWaitMs) {
+        limits.put(WorkClass.SETTLEMENT, new AdaptiveLimit(new LimitSpec(settlementInitial, 1, settlementMax, settlementQueue,
+            TimeUnit.MILLISECONDS.toNanos(settlementTargetMs))));
+        limits.put(WorkClass.WRITE, new AdaptiveLimit(new LimitSpec(writeInitial, 1, writeMax, writeQueue,
+            TimeUnit.MILLISECONDS.toNanos(writeTargetMs))));
+        limits.put(WorkClass.BULK, new AdaptiveLimit(new LimitSpec(bulkInitial, 1, bulkMax, bulkQueue,
+            TimeUnit.MILLISECONDS.toNanos(bulkTargetMs))));
+        for (WorkClass workClass : WorkClass.values()) {
+            admitted.put(workClass, new LongAdder());
+            rejected.put(workClass, new LongAdder());
+            shed.put(workClass, new LongAdder());
+            latencyNanos.put(workClass, new LongAdder());
+        }
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+    }
+
+    /**
+     * Admit a call, waiting for a slot of its class if needed
+     * @param workClass the class of the call
+     * @return a permit to pass to release once the call is done, or null if the call is rejected
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public Permit admit(WorkClass workClass) throws InterruptedException {
+        // A class queueing above this one needs the connections more
+        for (WorkClass higher : WorkClass.values()) {
+            if (higher.ordinal() < workClass.ordinal() && limits.get(higher).hasWaiters()) {
+                rejected.get(workClass).increment();
+                return null;
+            }
+        }
+        AdaptiveLimit limit = limits.get(workClass);
+        if (!limit.tryAcquire()) {
+            // About to queue: turn away the work waiting below, it would not get in before this anyway
+            for (WorkClass lower : WorkClass.values()) {
+                if (lower.ordinal() > workClass.ordinal()) {
+                    shed.get(lower).add(limits.get(lower).shed());
+                }
+            }
+            if (!limit.acquire(maxWaitNanos)) {
+                rejected.get(workClass).increment();
+                return null;
+            }
+        }
+        admitted.get(workClass).increment();
+        return new Permit(workClass, System.nanoTime());
+    }
+
+    /**
+     * Give back the slot of a finished call, feeding its latency to the limit of its class
+     * @param permit the permit returned by admit
+     */
+    public void release(Permit permit) {
+        long now = System.nanoTime();
+        latencyNanos.get(permit.workClass()).add(now - permit.startNanos());
+        limits.get(permit.workClass()).release(permit.startNanos(), now);
+    }
+
+    /**
+     * Get the current limits and the counters since startup
+     * @return per work class the limit, calls running and waiting, and admitted, rejected and shed counts
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (WorkClass workClass : WorkClass.values()) {
+            AdaptiveLimit limit = limits.get(workClass);
+            long calls = admitted.get(workClass).sum();
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("limit", Math.round(limit.getLimit() * 100) / 100.0);
+            counts.put("inFlight", limit.getInFlight());
+            counts.put("queued", limit.getQueued());
+            counts.put("admitted", calls);
+            counts.put("rejected", rejected.get(workClass).sum());
+            counts.put("shed", shed.get(workClass).sum());
+            counts.put("meanLatencyMs", calls == 0 ? 0.0 : latencyNanos.get(workClass).sum() / 1e6 / calls);
+            counts.put("spec", limit.getSpec());
+            metrics.put(workClass.name(), counts);
+        }
+        return metrics;
+    }
+
+    /**
+     * A call admitted to run
+     * @param workClass the class it was admitted to
+     * @param startNanos System.nanoTime() when it was admitted
+     */
+    public record Permit(WorkClass workClass, long startNanos) {
+    }
+}
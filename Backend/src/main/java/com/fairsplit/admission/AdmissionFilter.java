@@ -0,0 +1,196 @@
+package com.fairsplit.admission;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Puts every API write through the AdmissionController before it reaches a controller or
+ * takes a database connection, answering 503 Service Unavailable with Retry-After when it is
+ * shed. Runs after the rate limiter, which has already turned away clients over their budget.
+ * The body of a new expense is read here, up to fairsplit.admission.max-body-bytes, to count
+ * its assignees, and replayed to the controller.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${fairsplit.admission.enabled:true}")
+    private boolean enabled;
+
+    // Expenses with more assignees than this, or split among the whole group, are bulk work
+    @Value("${fairsplit.admission.bulk-assignees:20}")
+    private int bulkAssignees;
+
+    // The expense body is held in memory to be replayed, so longer ones are refused with 413
+    @Value("${fairsplit.admission.max-body-bytes:1048576}")
+    private int maxBodyBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + "/api/")
+            || "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        HttpServletRequest call = request;
+        WorkClass workClass;
+        if (WorkClass.isExpenseCreation(request.getMethod(), path)) {
+            if (request.getContentLengthLong() > maxBodyBytes) {
+                response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return;
+            }
+            // A chunked body has no length up front, so read one byte past the limit to tell
+            byte[] body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+            if (body.length > maxBodyBytes) {
+                response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return;
+            }
+            call = new CachedBodyRequest(request, body);
+            workClass = WorkClass.forExpense(countAssignees(request, body), bulkAssignees);
+        } else {
+            workClass = WorkClass.of(request.getMethod(), path);
+        }
+
+        AdmissionController.Permit permit;
+        try {
+            permit = admissionController.admit(workClass);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permit = null;
+        }
+        if (permit == null) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            return;
+        }
+        try {
+            chain.doFilter(call, response);
+        } finally {
+            admissionController.release(permit);
+        }
+    }
+
+    /**
+     * Count the users an expense is assigned to, from assignedUsers or else the split values
+     * @return the count, or -1 if it goes to the whole group or the body is not readable JSON
+     */
+    private int countAssignees(HttpServletRequest request, byte[] body) {
+        String contentType = request.getContentType();
+        try {
+            if (contentType != null && !MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return -1;
+            }
+            JsonNode expense = objectMapper.readTree(body);
+            JsonNode assigned = expense.path("assignedUsers");
+            if (assigned.isArray() && !assigned.isEmpty()) {
+                return assigned.size();
+            }
+            JsonNode splits = expense.path("splits");
+            if (splits.isObject() && !splits.isEmpty()) {
+                return splits.size();
+            }
+            return -1;
+        } catch (IOException | IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    // The request with its body already read, handed out again to whoever reads it next
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // The whole body is in memory already, so it is available at once and then done
+                    try {
+                        if (in.available() > 0) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.fairsplit.admission;
+
+/**
+ * Settings of the adaptive concurrency limit of one work class
+ * @param initialLimit how many calls may run at once before any latency has been seen
+ * @param minLimit the limit never drops below this
+ * @param maxLimit nor grows above this
+ * @param queueCapacity how many calls may wait for a slot, further ones are rejected at once
+ * @param targetLatencyNanos calls slower than this shrink the limit, faster ones let it grow
+ */
+public record LimitSpec(int initialLimit, int minLimit, int maxLimit, int queueCapacity, long targetLatencyNanos) {
+    
+    public LimitSpec {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit || queueCapacity < 0 || targetLatencyNanos <= 0) {
+            throw new IllegalArgumentException("A limit needs 1 <= min <= initial <= max, a queue of 0 or more and a positive target latency");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.fairsplit.admission;
+
+import java.util.regex.Pattern;
+
+/**
+ * Cost classes of write calls, highest priority first; under overload the last ones are shed first
+ */
+public enum WorkClass {
+    // Accepting a request and recording or deleting a payment: a few rows, and what users are waiting on
+    SETTLEMENT,
+    // Every other write, including expenses split among a few users
+    WRITE,
+    // Expenses split among many users or the whole group, and membership changes for many users at once
+    BULK;
+    
+    private static final Pattern ACCEPT = Pattern.compile("/api/requests/\\d+/accept");
+    private static final Pattern BULK_MEMBERSHIP = Pattern.compile("/api/groups/\\d+/users");
+    
+    /**
+     * Classify a write from its method and path alone
+     * @param method the HTTP method
+     * @param path the request path, without context path
+     * @return the class of the call; creating an expense is WRITE here, see forExpense
+     */
+    public static WorkClass of(String method, String path) {
+        String normalized = normalize(path);
+        if (ACCEPT.matcher(normalized).matches() || normalized.startsWith("/api/payments")) {
+            return SETTLEMENT;
+        }
+        if (BULK_MEMBERSHIP.matcher(normalized).matches()) {
+            return BULK;
+        }
+        return WRITE;
+    }
+    
+    /**
+     * Check whether a call creates an expense, whose class depends on its body
+     * @param method the HTTP method
+     * @param path the request path, without context path
+     * @return true for POST /api/expenses
+     */
+    public static boolean isExpenseCreation(String method, String path) {
+        return "POST".equals(method) && normalize(path).equals("/api/expenses");
+    }
+    
+    /**
+     * Classify the creation of an expense by the number of requests it will write
+     * @param assignees the number of assigned users, or -1 when it is split among the whole group
+     * @param bulkAssignees the number of assignees above which an expense is bulk work
+     * @return WRITE or BULK
+     */
+    public static WorkClass forExpense(int assignees, int bulkAssignees) {
+        return assignees < 0 || assignees > bulkAssignees ? BULK : WRITE;
+    }
+    
+    private static String normalize(String path) {
+        return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
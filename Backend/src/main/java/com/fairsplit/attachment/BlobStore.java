@@ -0,0 +1,167 @@
+package com.fairsplit.attachment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store of attachment bytes on the local disk. A blob lives at
+ * ab/cd/abcd... under the hex SHA-256 of its content, so identical uploads share one file.
+ *
+ * Uploads are first streamed through NIO channels into a staging file while being hashed.
+ * Only once the attachment row has committed is the staged file moved into place, and
+ * unreferenced blobs are deleted only after the deleting transaction has committed. Both
+ * run under a lock per hash, so a blob that a concurrent upload is about to reference is
+ * either kept or put back by that upload.
+ */
+@Component
+public class BlobStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LOCK_STRIPES = 64;
+    
+    private final Path root;
+    private final Path staging;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    
+    public BlobStore(@Value("${fairsplit.attachments.dir:data/attachments}") String directory) throws IOException {
+        this.root = Path.of(directory).toAbsolutePath().normalize();
+        this.staging = root.resolve("staging");
+        Files.createDirectories(staging);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    /**
+     * Stream content into a staging file, hashing it on the way
+     * @param content the upload
+     * @return the staged blob, to be committed or discarded
+     */
+    public StagedBlob stage(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        Path file = Files.createTempFile(staging, "upload-", ".tmp");
+        long size = 0;
+        try (ReadableByteChannel in = Channels.newChannel(content);
+             FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    size += out.write(buffer);
+                }
+                buffer.clear();
+            }
+            out.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new StagedBlob(file, HexFormat.of().formatHex(digest.digest()), size);
+    }
+    
+    /**
+     * Move a staged blob under its content address, or drop it if that content is already stored
+     * @param blob the staged blob
+     */
+    public void commit(StagedBlob blob) {
+        Path target = path(blob.sha256());
+        synchronized (lock(blob.sha256())) {
+            try {
+                if (Files.exists(target)) {
+                    Files.deleteIfExists(blob.file());
+                    return;
+                }
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(blob.file(), target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(blob.file(), target);
+                }
+            } catch (FileAlreadyExistsException e) {
+                discard(blob);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not store blob " + blob.sha256(), e);
+            }
+        }
+    }
+    
+    /**
+     * Drop a staged blob whose attachment was not saved
+     * @param blob the staged blob
+     */
+    public void discard(StagedBlob blob) {
+        try {
+            Files.deleteIfExists(blob.file());
+        } catch (IOException e) {
+            log.warn("Could not delete staged upload {}", blob.file(), e);
+        }
+    }
+    
+    /**
+     * Delete a blob if nothing refers to it any more
+     * @param sha256 hex SHA-256 of the blob
+     * @param unreferenced checked under the blob's lock, true when no attachment has the content
+     * @return true if the blob was deleted
+     */
+    public boolean deleteIfUnreferenced(String sha256, BooleanSupplier unreferenced) {
+        synchronized (lock(sha256)) {
+            if (!unreferenced.getAsBoolean()) {
+                return false;
+            }
+            try {
+                return Files.deleteIfExists(path(sha256));
+            } catch (IOException e) {
+                log.warn("Could not delete blob {}", sha256, e);
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * Get where a blob is stored
+     * @param sha256 hex SHA-256 of the blob
+     * @return the path of the blob, which may not exist
+     */
+    public Path path(String sha256) {
+        if (!SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256: " + sha256);
+        }
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+    
+    private Object lock(String sha256) {
+        return locks[Math.floorMod(sha256.hashCode(), LOCK_STRIPES)];
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
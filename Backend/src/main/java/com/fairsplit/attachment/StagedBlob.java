@@ -0,0 +1,12 @@
+package com.fairsplit.attachment;
+
+import java.nio.file.Path;
+
+/**
+ * An upload written to the store's staging directory and hashed, not yet under its content address
+ * @param file the staged file
+ * @param sha256 hex SHA-256 of the content
+ * @param size the content length in bytes
+ */
+public record StagedBlob(Path file, String sha256, long size) {
+}
@@ -0,0 +1,13 @@
+package com.fairsplit.coalesce;
+
+/**
+ * The group read endpoints whose concurrent identical calls are coalesced
+ */
+public enum GroupRead {
+    // GET /api/expenses/group/{id} without filters
+    EXPENSES,
+    // GET /api/requests/group/{id}/unfulfilled
+    UNFULFILLED_REQUESTS,
+    // GET /api/users/group/{id}
+    USERS
+}
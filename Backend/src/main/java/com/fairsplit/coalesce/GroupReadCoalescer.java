@@ -0,0 +1,207 @@
+package com.fairsplit.coalesce;
+
+import com.fairsplit.config.SparseFieldsAdvice;
+import com.fairsplit.event.GroupDataChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for the hot group reads: while one call for a group is loading, identical
+ * calls wait for it and share its result, including the serialized JSON, instead of each
+ * running the same queries. Nothing is kept once the flight lands.
+ *
+ * Every group has a generation that is bumped when a committed write changes its data.
+ * It is part of the flight key, so a call arriving after a write never joins a flight
+ * that may have read the data from before it.
+ */
+@Component
+public class GroupReadCoalescer {
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${fairsplit.coalescing.enabled:true}")
+    private boolean enabled;
+    
+    private final Map<FlightKey, CompletableFuture<SharedResult>> flights = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> groupGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+    private final Map<GroupRead, LongAdder> calls = new EnumMap<>(GroupRead.class);
+    private final Map<GroupRead, LongAdder> executions = new EnumMap<>(GroupRead.class);
+    private final LongAdder invalidations = new LongAdder();
+    
+    public GroupReadCoalescer() {
+        for (GroupRead read : GroupRead.values()) {
+            calls.put(read, new LongAdder());
+            executions.put(read, new LongAdder());
+        }
+    }
+    
+    /**
+     * Serve a group read, sharing the work with identical calls already in flight
+     * @param read the endpoint
+     * @param groupId the group
+     * @param loader runs the read, called once per flight
+     * @return the shared JSON body when the client takes plain JSON, otherwise the result
+     *         itself for the usual content negotiation
+     */
+    public ResponseEntity<?> respond(GroupRead read, Long groupId, Supplier<List<?>> loader) {
+        if (!enabled) {
+            return new ResponseEntity<>(loader.get(), HttpStatus.OK);
+        }
+        calls.get(read).increment();
+        
+        FlightKey key = new FlightKey(read, groupId, globalGeneration.get(), generation(groupId).get());
+        CompletableFuture<SharedResult> flight = new CompletableFuture<>();
+        CompletableFuture<SharedResult> existing = flights.putIfAbsent(key, flight);
+        SharedResult result;
+        if (existing == null) {
+            executions.get(read).increment();
+            try {
+                result = new SharedResult(loader.get());
+                flight.complete(result);
+            } catch (RuntimeException e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                flights.remove(key, flight);
+            }
+        } else {
+            try {
+                result = existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        
+        if (!wantsPlainJson()) {
+            return new ResponseEntity<>(result.body, HttpStatus.OK);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new ResponseEntity<>(result.json(objectMapper), headers, HttpStatus.OK);
+    }
+    
+    /**
+     * Start new flights for the reads of a group, or of all groups, once a write commits.
+     * Without a transaction the event is handled straight away.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGroupDataChanged(GroupDataChangedEvent event) {
+        invalidations.increment();
+        if (event.groupId() == null) {
+            globalGeneration.incrementAndGet();
+        } else {
+            generation(event.groupId()).incrementAndGet();
+        }
+    }
+    
+    /**
+     * Get the coalescing counters since startup
+     * @return calls, executions and the share of calls served by another call's flight, per endpoint
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (GroupRead read : GroupRead.values()) {
+            long callCount = calls.get(read).sum();
+            long executionCount = executions.get(read).sum();
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("calls", callCount);
+            counts.put("executions", executionCount);
+            counts.put("coalesced", callCount - executionCount);
+            counts.put("coalescingRatio", callCount == 0 ? 0.0 : (double) (callCount - executionCount) / callCount);
+            metrics.put(read.name(), counts);
+        }
+        metrics.put("inFlight", flights.size());
+        metrics.put("invalidations", invalidations.sum());
+        return metrics;
+    }
+    
+    private AtomicLong generation(Long groupId) {
+        return groupGenerations.computeIfAbsent(groupId, id -> new AtomicLong());
+    }
+    
+    /**
+     * The shared bytes are plain JSON with every field, so only clients that want exactly that can have them
+     */
+    private static boolean wantsPlainJson() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (request.getParameter(SparseFieldsAdvice.FILTER) != null) {
+            return false;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            // Most specific first, then by quality; the sort is stable so ties keep their specificity order
+            MimeTypeUtils.sortBySpecificity(mediaTypes);
+            mediaTypes.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+            return !mediaTypes.isEmpty() && mediaTypes.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    private record FlightKey(GroupRead read, Long groupId, long globalGeneration, long groupGeneration) {
+    }
+    
+    /**
+     * One flight's result; the first caller that needs JSON serializes it for all of them
+     */
+    private static class SharedResult {
+        
+        final List<?> body;
+        private volatile byte[] json;
+        
+        SharedResult(List<?> body) {
+            this.body = body;
+        }
+        
+        byte[] json(ObjectMapper objectMapper) {
+            byte[] bytes = json;
+            if (bytes == null) {
+                synchronized (this) {
+                    bytes = json;
+                    if (bytes == null) {
+                        try {
+                            bytes = objectMapper.writeValueAsBytes(body);
+                        } catch (JsonProcessingException e) {
+                            throw new IllegalStateException("Could not serialize group read", e);
+                        }
+                        json = bytes;
+                    }
+                }
+            }
+            return bytes;
+        }
+    }
+}
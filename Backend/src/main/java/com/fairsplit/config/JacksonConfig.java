@@ -0,0 +1,54 @@
+package com.fairsplit.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Customizations of the application ObjectMapper, and the binary encodings offered next to JSON.
+ * Clients send Accept: application/cbor or application/x-jackson-smile to get the same
+ * response DTOs in a binary form, and may send request bodies in it with the matching Content-Type.
+ */
+@Configuration(proxyBeanMethods = false)
+public class JacksonConfig {
+    
+    /**
+     * Write every property of DTOs carrying the sparse fieldset filter unless a request asks
+     * for fewer, including when they are serialized outside a controller
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer sparseFieldsDefaultFilter() {
+        return builder -> builder.filters(defaultFilters());
+    }
+    
+    /**
+     * CBOR converter replacing the Spring MVC default, which does not see the Boot customizers
+     */
+    @Bean
+    @ConditionalOnClass(name = "com.fasterxml.jackson.dataformat.cbor.CBORFactory")
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        MappingJackson2CborHttpMessageConverter converter = new MappingJackson2CborHttpMessageConverter();
+        converter.getObjectMapper().setFilterProvider(defaultFilters());
+        return converter;
+    }
+    
+    /**
+     * Smile converter replacing the Spring MVC default, which does not see the Boot customizers
+     */
+    @Bean
+    @ConditionalOnClass(name = "com.fasterxml.jackson.dataformat.smile.SmileFactory")
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        MappingJackson2SmileHttpMessageConverter converter = new MappingJackson2SmileHttpMessageConverter();
+        converter.getObjectMapper().setFilterProvider(defaultFilters());
+        return converter;
+    }
+    
+    private static SimpleFilterProvider defaultFilters() {
+        return new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+    }
+}
@@ -0,0 +1,130 @@
+package com.fairsplit.config;
+
+import com.fairsplit.admission.LimitSpec;
+import com.fairsplit.dto.ActivityItem;
+import com.fairsplit.dto.ActivityPage;
+import com.fairsplit.dto.AttachmentResponse;
+import com.fairsplit.dto.CurrencyTotals;
+import com.fairsplit.dto.DashboardItem;
+import com.fairsplit.dto.ExpenseResponse;
+import com.fairsplit.dto.ExpenseSummary;
+import com.fairsplit.dto.GroupBalance;
+import com.fairsplit.dto.GroupResponse;
+import com.fairsplit.dto.GroupSummary;
+import com.fairsplit.dto.MembershipChange;
+import com.fairsplit.dto.PaymentResponse;
+import com.fairsplit.dto.ReconciliationReport;
+import com.fairsplit.dto.RequestResponse;
+import com.fairsplit.dto.Statement;
+import com.fairsplit.dto.StatementGroup;
+import com.fairsplit.dto.SyncChange;
+import com.fairsplit.dto.SyncPage;
+import com.fairsplit.dto.UserDashboard;
+import com.fairsplit.dto.UserResponse;
+import com.fairsplit.dto.UserSummary;
+import com.fairsplit.dto.UserTotals;
+import com.fairsplit.model.ChangeLogEntry;
+import com.fairsplit.model.ChangeLogHead;
+import com.fairsplit.model.ChangeType;
+import com.fairsplit.model.Expense;
+import com.fairsplit.model.ExpenseAttachment;
+import com.fairsplit.model.FxRate;
+import com.fairsplit.model.Group;
+import com.fairsplit.model.OutboxEvent;
+import com.fairsplit.model.OutboxEventType;
+import com.fairsplit.model.Payment;
+import com.fairsplit.model.Request;
+import com.fairsplit.model.SplitType;
+import com.fairsplit.model.User;
+import com.fairsplit.model.UserTotal;
+import com.fairsplit.notification.Notification;
+import com.fairsplit.ratelimit.BucketSpec;
+import com.fairsplit.sqltrace.SlowStatement;
+import com.fairsplit.repository.ChangeLogHeadRepository;
+import com.fairsplit.repository.ChangeLogRepository;
+import com.fairsplit.repository.ExpenseAttachmentRepository;
+import com.fairsplit.repository.ExpenseRepository;
+import com.fairsplit.repository.FxRateRepository;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.OutboxEventRepository;
+import com.fairsplit.repository.PaymentRepository;
+import com.fairsplit.repository.RequestRepository;
+import com.fairsplit.repository.UserRepository;
+import com.fairsplit.repository.UserTotalRepository;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.List;
+
+/**
+ * GraalVM native-image hints that Spring AOT cannot infer on its own. Spring AOT
+ * already covers the managed JPA types and generates the repository proxies; this
+ * adds what is only reached by reflection at runtime:
+ * DTOs built by JPQL constructor expressions, types serialized inside untyped maps,
+ * and the entities and repository proxies for code paths outside the AOT scan.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHints.Registrar.class)
+@RegisterReflectionForBinding({UserDashboard.class, GroupBalance.class, DashboardItem.class, BucketSpec.class, Notification.class,
+    ReconciliationReport.class, UserResponse.class, GroupResponse.class, ExpenseResponse.class, RequestResponse.class,
+    PaymentResponse.class, UserSummary.class, GroupSummary.class, ExpenseSummary.class, SlowStatement.class,
+    MembershipChange.class, AttachmentResponse.class, ActivityItem.class, ActivityPage.class,
+    SyncPage.class, SyncChange.class, Statement.class, StatementGroup.class,
+    UserTotals.class, CurrencyTotals.class, LimitSpec.class})
+public class NativeHints {
+
+    static class Registrar implements RuntimeHintsRegistrar {
+
+        private static final List<Class<?>> ENTITIES = List.of(
+            User.class, Group.class, Expense.class, Request.class, Payment.class, FxRate.class, OutboxEvent.class,
+            ExpenseAttachment.class, ChangeLogEntry.class, UserTotal.class, ChangeLogHead.class);
+
+        private static final List<Class<?>> REPOSITORIES = List.of(
+            UserRepository.class, GroupRepository.class, ExpenseRepository.class,
+            RequestRepository.class, PaymentRepository.class, FxRateRepository.class,
+            OutboxEventRepository.class, ExpenseAttachmentRepository.class, ChangeLogRepository.class,
+            UserTotalRepository.class, ChangeLogHeadRepository.class);
+
+        // Hibernate instantiates these through their constructors for "select new ..." queries
+        private static final List<Class<?>> PROJECTIONS = List.of(GroupBalance.class, DashboardItem.class,
+            UserResponse.class, ExpenseResponse.class, RequestResponse.class, PaymentResponse.class, ActivityItem.class,
+            GroupSummary.class);
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> entity : ENTITIES) {
+                hints.reflection().registerType(entity,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+            }
+            hints.reflection().registerType(SplitType.class, MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.PUBLIC_FIELDS);
+            hints.reflection().registerType(OutboxEventType.class, MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.PUBLIC_FIELDS);
+            hints.reflection().registerType(ChangeType.class, MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.PUBLIC_FIELDS);
+
+            for (Class<?> projection : PROJECTIONS) {
+                hints.reflection().registerType(projection,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+
+            // Same interface list Spring Data uses for its JDK repository proxies
+            for (Class<?> repository : REPOSITORIES) {
+                hints.proxies().registerJdkProxy(
+                    TypeReference.of(repository),
+                    TypeReference.of("org.springframework.data.repository.Repository"),
+                    TypeReference.of("org.springframework.transaction.interceptor.TransactionalProxy"),
+                    TypeReference.of("org.springframework.aop.framework.Advised"),
+                    TypeReference.of("org.springframework.core.DecoratingProxy"));
+            }
+
+            hints.resources().registerPattern("db/migration/*.sql");
+            hints.resources().registerPattern("application-*.properties");
+        }
+    }
+}
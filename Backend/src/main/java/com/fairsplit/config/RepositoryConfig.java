@@ -0,0 +1,37 @@
+package com.fairsplit.config;
+
+import com.fairsplit.repository.ExpenseRepository;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.PaymentRepository;
+import com.fairsplit.repository.RequestRepository;
+import com.fairsplit.repository.UserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Chooses where the core repositories live. By default Spring Data implements every
+ * repository interface over JPA. With fairsplit.persistence=memory (the inmemory profile)
+ * users, groups, expenses, requests and payments come from the concurrent-map
+ * implementations in com.fairsplit.repository.memory instead, while the supporting
+ * repositories such as FX rates and the outbox stay on JPA.
+ */
+@Configuration(proxyBeanMethods = false)
+public class RepositoryConfig {
+    
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "fairsplit.persistence", havingValue = "jpa", matchIfMissing = true)
+    @EnableJpaRepositories(basePackages = "com.fairsplit.repository")
+    static class JpaRepositories {
+    }
+    
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "fairsplit.persistence", havingValue = "memory")
+    @EnableJpaRepositories(basePackages = "com.fairsplit.repository", excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = {UserRepository.class, GroupRepository.class, ExpenseRepository.class, RequestRepository.class, PaymentRepository.class}))
+    static class InMemoryRepositories {
+    }
+}
@@ -0,0 +1,48 @@
+package com.fairsplit.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets: ?fields=id,name,amount limits a response to those top-level attributes.
+ * Applies to the response DTOs annotated with @JsonFilter(FILTER), or to each element of a
+ * list of them; embedded summaries are always written whole. Unknown names are ignored.
+ */
+@RestControllerAdvice
+public class SparseFieldsAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+    
+    public static final String FILTER = "fields";
+    
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        String fields = servletRequest.getServletRequest().getParameter(FILTER);
+        if (fields == null || fields.isBlank()) {
+            // The default filter registered in JacksonConfig writes everything
+            return;
+        }
+        
+        Set<String> names = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            if (!field.isBlank()) {
+                names.add(field.trim());
+            }
+        }
+        bodyContainer.setFilters(new SimpleFilterProvider()
+            .addFilter(FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(names)));
+    }
+}
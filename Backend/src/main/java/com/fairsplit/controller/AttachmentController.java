@@ -0,0 +1,66 @@
+package com.fairsplit.controller;
+
+import com.fairsplit.attachment.BlobDownload;
+import com.fairsplit.dto.AttachmentResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.model.ExpenseAttachment;
+import com.fairsplit.service.AttachmentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/expenses/{expenseId}/attachments")
+public class AttachmentController {
+    
+    @Autowired
+    private AttachmentService attachmentService;
+    
+    @GetMapping
+    public ResponseEntity<List<AttachmentResponse>> getAttachments(@PathVariable Long expenseId) {
+        return new ResponseEntity<>(attachmentService.getAttachments(expenseId), HttpStatus.OK);
+    }
+    
+    // upload a receipt as multipart form field "file"; identical content is stored once
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<AttachmentResponse> addAttachment(@PathVariable Long expenseId, @RequestParam("file") MultipartFile file) {
+        try (InputStream content = file.getInputStream()) {
+            ExpenseAttachment attachment = attachmentService.addAttachment(expenseId, file.getOriginalFilename(), file.getContentType(), content);
+            return new ResponseEntity<>(ResponseMapper.toResponse(attachment), HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // the receipt's bytes, streamed from disk with Range and caching support
+    @GetMapping("/{attachmentId}")
+    public void getAttachmentContent(@PathVariable Long expenseId, @PathVariable Long attachmentId,
+                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<ExpenseAttachment> attachment = attachmentService.getAttachment(expenseId, attachmentId);
+        if (attachment.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ExpenseAttachment found = attachment.get();
+        BlobDownload.serve(request, response, attachmentService.getContentPath(found), found.getSha256(),
+            found.getFilename(), found.getContentType(), found.getCreatedAt());
+    }
+    
+    @DeleteMapping("/{attachmentId}")
+    public ResponseEntity<HttpStatus> deleteAttachment(@PathVariable Long expenseId, @PathVariable Long attachmentId) {
+        boolean deleted = attachmentService.deleteAttachment(expenseId, attachmentId);
+        return deleted ? new ResponseEntity<>(HttpStatus.NO_CONTENT) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+}
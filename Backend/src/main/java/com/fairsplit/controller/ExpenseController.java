@@ -1,5 +1,9 @@
 package com.fairsplit.controller;
 
+import com.fairsplit.coalesce.GroupRead;
+import com.fairsplit.coalesce.GroupReadCoalescer;
+import com.fairsplit.dto.ExpenseResponse;
+import com.fairsplit.dto.ResponseMapper;
 import com.fairsplit.model.Expense;
 import com.fairsplit.service.ExpenseService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,24 +23,27 @@ public class ExpenseController {
     @Autowired
     private ExpenseService expenseService;
     
+    @Autowired
+    private GroupReadCoalescer groupReadCoalescer;
+    
     @GetMapping
-    public ResponseEntity<List<Expense>> getAllExpenses() {
-        List<Expense> expenses = expenseService.getAllExpenses();
+    public ResponseEntity<List<ExpenseResponse>> getAllExpenses() {
+        List<ExpenseResponse> expenses = expenseService.getAllExpenses();
         return new ResponseEntity<>(expenses, HttpStatus.OK);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Expense> getExpenseById(@PathVariable Long id) {
+    public ResponseEntity<ExpenseResponse> getExpenseById(@PathVariable Long id) {
         Optional<Expense> expense = expenseService.getExpenseById(id);
-        return expense.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+        return expense.map(value -> new ResponseEntity<>(ResponseMapper.toResponse(value), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
     
     @PostMapping
-    public ResponseEntity<Expense> createExpense(@RequestBody Expense expense) {
+    public ResponseEntity<ExpenseResponse> createExpense(@RequestBody Expense expense) {
         try {
             Expense createdExpense = expenseService.createExpense(expense);
-            return new ResponseEntity<>(createdExpense, HttpStatus.CREATED);
+            return new ResponseEntity<>(ResponseMapper.toResponse(createdExpense), HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             // Return 400 Bad Request with error message
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -44,31 +51,41 @@ public class ExpenseController {
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Expense> updateExpense(@PathVariable Long id, @RequestBody Expense expenseDetails) {
+    public ResponseEntity<ExpenseResponse> updateExpense(@PathVariable Long id, @RequestBody Expense expenseDetails) {
         Optional<Expense> updatedExpense = expenseService.updateExpense(id, expenseDetails);
-        return updatedExpense.map(expense -> new ResponseEntity<>(expense, HttpStatus.OK))
+        return updatedExpense.map(expense -> new ResponseEntity<>(ResponseMapper.toResponse(expense), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<HttpStatus> deleteExpense(@PathVariable Long id) {
-        boolean deleted = expenseService.deleteExpense(id);
-        if (deleted) {
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } else {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        try {
+            boolean deleted = expenseService.deleteExpense(id);
+            if (deleted) {
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            } else {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+        } catch (IllegalStateException e) {
+            // Settled requests cannot be deleted with their expense
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
     
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<Expense>> getGroupExpenses(
+    public ResponseEntity<?> getGroupExpenses(
             @PathVariable Long groupId,
             @RequestParam(required = false) Long userId,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date startDate,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date endDate) {
         
-        List<Expense> expenses = expenseService.getFilteredExpenses(groupId, userId, category, startDate, endDate);
+        // The unfiltered list is the hot one: concurrent calls for a group share one load
+        if (userId == null && category == null && startDate == null && endDate == null) {
+            return groupReadCoalescer.respond(GroupRead.EXPENSES, groupId, () -> expenseService.getExpensesByGroupId(groupId));
+        }
+        
+        List<ExpenseResponse> expenses = expenseService.getFilteredExpenses(groupId, userId, category, startDate, endDate);
         return new ResponseEntity<>(expenses, HttpStatus.OK);
     }
 }
@@ -1,5 +1,9 @@
 package com.fairsplit.controller;
 
+import com.fairsplit.dto.ActivityPage;
+import com.fairsplit.dto.GroupResponse;
+import com.fairsplit.dto.MembershipChange;
+import com.fairsplit.dto.ResponseMapper;
 import com.fairsplit.model.Group;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +17,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import java.util.Optional;
 
+import com.fairsplit.service.ActivityService;
 import com.fairsplit.service.GroupService;
 import java.util.List;
 
@@ -26,34 +32,37 @@ public class GroupController {
     
     @Autowired
     private GroupService groupService;
+    
+    @Autowired
+    private ActivityService activityService;
 
     @GetMapping
-    public List<Group> getAllGroups() { 
+    public List<GroupResponse> getAllGroups() { 
         return groupService.getAllGroups();
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Group> getGroupById(@PathVariable Long id) {
+    public ResponseEntity<GroupResponse> getGroupById(@PathVariable Long id) {
         Optional<Group> group = groupService.getGroupById(id);
-        return group.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+        return group.map(value -> new ResponseEntity<>(ResponseMapper.toResponse(value), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @PostMapping
-    public ResponseEntity<Group> createGroup(@RequestBody Group group) {
+    public ResponseEntity<GroupResponse> createGroup(@RequestBody Group group) {
         try {
             Group savedGroup = groupService.createGroup(group);
-            return new ResponseEntity<>(savedGroup, HttpStatus.CREATED);
+            return new ResponseEntity<>(ResponseMapper.toResponse(savedGroup), HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Group> updateGroup(@PathVariable Long id, @RequestBody Group groupDetails) {
+    public ResponseEntity<GroupResponse> updateGroup(@PathVariable Long id, @RequestBody Group groupDetails) {
         try {
             Group updatedGroup = groupService.updateGroup(id, groupDetails);
-            return new ResponseEntity<>(updatedGroup, HttpStatus.OK);
+            return new ResponseEntity<>(ResponseMapper.toResponse(updatedGroup), HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -70,20 +79,55 @@ public class GroupController {
     }
     
     @PostMapping("/{groupId}/users/{userId}")
-    public ResponseEntity<Group> addUserToGroup(@PathVariable Long groupId, @PathVariable Long userId) {
+    public ResponseEntity<GroupResponse> addUserToGroup(@PathVariable Long groupId, @PathVariable Long userId) {
         try {
             Group updatedGroup = groupService.addUserToGroup(groupId, userId);
-            return new ResponseEntity<>(updatedGroup, HttpStatus.OK);
+            return new ResponseEntity<>(ResponseMapper.toResponse(updatedGroup), HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
     
     @DeleteMapping("/{groupId}/users/{userId}")
-    public ResponseEntity<Group> removeUserFromGroup(@PathVariable Long groupId, @PathVariable Long userId) {
+    public ResponseEntity<GroupResponse> removeUserFromGroup(@PathVariable Long groupId, @PathVariable Long userId) {
         try {
             Group updatedGroup = groupService.removeUserFromGroup(groupId, userId);
-            return new ResponseEntity<>(updatedGroup, HttpStatus.OK);
+            return new ResponseEntity<>(ResponseMapper.toResponse(updatedGroup), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    // add many users at once, body is a JSON array of user IDs; the result says what happened to each
+    @PostMapping("/{groupId}/users")
+    public ResponseEntity<List<MembershipChange>> addUsersToGroup(@PathVariable Long groupId, @RequestBody List<Long> userIds) {
+        try {
+            return new ResponseEntity<>(groupService.addUsersToGroup(groupId, userIds), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    // remove many users at once, body is a JSON array of user IDs; the result says what happened to each
+    @DeleteMapping("/{groupId}/users")
+    public ResponseEntity<List<MembershipChange>> removeUsersFromGroup(@PathVariable Long groupId, @RequestBody List<Long> userIds) {
+        try {
+            return new ResponseEntity<>(groupService.removeUsersFromGroup(groupId, userIds), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    // expenses, requests and payments of the group in one feed, newest first, a page at a time
+    @GetMapping("/{id}/activity")
+    public ResponseEntity<ActivityPage> getGroupActivity(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return activityService.getGroupActivity(id, cursor, limit)
+                .map(page -> new ResponseEntity<>(page, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
@@ -0,0 +1,108 @@
+package com.fairsplit.controller;
+
+import com.fairsplit.admission.AdmissionController;
+import com.fairsplit.coalesce.GroupReadCoalescer;
+import com.fairsplit.dto.ReconciliationReport;
+import com.fairsplit.ledger.LedgerLocks;
+import com.fairsplit.ratelimit.RateLimiter;
+import com.fairsplit.service.BalanceReconciliationService;
+import com.fairsplit.sqltrace.SlowStatement;
+import com.fairsplit.sqltrace.SqlTracer;
+import com.fairsplit.statement.StatementGenerator;
+import com.fairsplit.username.UsernameIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+    
+    @Autowired
+    private RateLimiter rateLimiter;
+    
+    @Autowired
+    private AdmissionController admissionController;
+    
+    @Autowired
+    private LedgerLocks ledgerLocks;
+    
+    @Autowired
+    private BalanceReconciliationService balanceReconciliationService;
+    
+    @Autowired
+    private SqlTracer sqlTracer;
+    
+    @Autowired
+    private GroupReadCoalescer groupReadCoalescer;
+    
+    @Autowired
+    private UsernameIndex usernameIndex;
+    
+    @Autowired
+    private StatementGenerator statementGenerator;
+    
+    // allowed/rejected counts and budgets per endpoint class
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Object>> getRateLimitMetrics() {
+        return new ResponseEntity<>(rateLimiter.getMetrics(), HttpStatus.OK);
+    }
+    
+    // adaptive limits, running and queued calls, admitted/rejected/shed counts per write class
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionMetrics() {
+        return new ResponseEntity<>(admissionController.getMetrics(), HttpStatus.OK);
+    }
+    
+    // ledger lock acquisitions, how many had to wait and the mean wait
+    @GetMapping("/ledger-locks")
+    public ResponseEntity<Map<String, Object>> getLedgerLockMetrics() {
+        return new ResponseEntity<>(ledgerLocks.getMetrics(), HttpStatus.OK);
+    }
+    
+    // report of the last balance reconciliation run
+    @GetMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> getReconciliationReport() {
+        ReconciliationReport report = balanceReconciliationService.getLastReport();
+        if (report == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+    
+    // statements per request and SQL time per request, per endpoint
+    @GetMapping("/sql")
+    public ResponseEntity<Map<String, Object>> getSqlMetrics() {
+        return new ResponseEntity<>(sqlTracer.getMetrics(), HttpStatus.OK);
+    }
+    
+    // most recent statements over the slow-query threshold, newest first
+    @GetMapping("/slow-queries")
+    public ResponseEntity<List<SlowStatement>> getSlowQueries() {
+        return new ResponseEntity<>(sqlTracer.getSlowStatements(), HttpStatus.OK);
+    }
+    
+    // calls, executions and coalescing ratio of the hot group reads
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, Object>> getCoalescingMetrics() {
+        return new ResponseEntity<>(groupReadCoalescer.getMetrics(), HttpStatus.OK);
+    }
+    
+    // size and false-positive rates of the username availability filter
+    @GetMapping("/usernames")
+    public ResponseEntity<Map<String, Object>> getUsernameMetrics() {
+        return new ResponseEntity<>(usernameIndex.getMetrics(), HttpStatus.OK);
+    }
+    
+    // statement calls, cache hit ratio and the load of the statement executor
+    @GetMapping("/statements")
+    public ResponseEntity<Map<String, Object>> getStatementMetrics() {
+        return new ResponseEntity<>(statementGenerator.getMetrics(), HttpStatus.OK);
+    }
+}
@@ -1,5 +1,7 @@
 package com.fairsplit.controller;
 
+import com.fairsplit.dto.PaymentResponse;
+import com.fairsplit.dto.ResponseMapper;
 import com.fairsplit.model.Payment;
 import com.fairsplit.service.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,41 +20,41 @@ public class PaymentController {
     private PaymentService paymentService;
     
     @GetMapping
-    public ResponseEntity<List<Payment>> getAllPayments() {
-        List<Payment> payments = paymentService.getAllPayments();
+    public ResponseEntity<List<PaymentResponse>> getAllPayments() {
+        List<PaymentResponse> payments = paymentService.getAllPayments();
         return new ResponseEntity<>(payments, HttpStatus.OK);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Payment> getPaymentById(@PathVariable Long id) {
+    public ResponseEntity<PaymentResponse> getPaymentById(@PathVariable Long id) {
         Optional<Payment> payment = paymentService.getPaymentById(id);
-        return payment.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+        return payment.map(value -> new ResponseEntity<>(ResponseMapper.toResponse(value), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
     
     @GetMapping("/debtor/{userId}")
-    public ResponseEntity<List<Payment>> getPaymentsByDebtorId(@PathVariable Long userId) {
-        List<Payment> payments = paymentService.getPaymentsByDebtorId(userId);
+    public ResponseEntity<List<PaymentResponse>> getPaymentsByDebtorId(@PathVariable Long userId) {
+        List<PaymentResponse> payments = paymentService.getPaymentsByDebtorId(userId);
         return new ResponseEntity<>(payments, HttpStatus.OK);
     }
     
     @GetMapping("/debtee/{userId}")
-    public ResponseEntity<List<Payment>> getPaymentsByDebteeId(@PathVariable Long userId) {
-        List<Payment> payments = paymentService.getPaymentsByDebteeId(userId);
+    public ResponseEntity<List<PaymentResponse>> getPaymentsByDebteeId(@PathVariable Long userId) {
+        List<PaymentResponse> payments = paymentService.getPaymentsByDebteeId(userId);
         return new ResponseEntity<>(payments, HttpStatus.OK);
     }
     
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<Payment>> getPaymentsByGroupId(@PathVariable Long groupId) {
-        List<Payment> payments = paymentService.getPaymentsByGroupId(groupId);
+    public ResponseEntity<List<PaymentResponse>> getPaymentsByGroupId(@PathVariable Long groupId) {
+        List<PaymentResponse> payments = paymentService.getPaymentsByGroupId(groupId);
         return new ResponseEntity<>(payments, HttpStatus.OK);
     }
     
     @PostMapping
-    public ResponseEntity<Payment> createPayment(@RequestBody Payment payment) {
+    public ResponseEntity<PaymentResponse> createPayment(@RequestBody Payment payment) {
         try {
             Payment createdPayment = paymentService.createPayment(payment);
-            return new ResponseEntity<>(createdPayment, HttpStatus.CREATED);
+            return new ResponseEntity<>(ResponseMapper.toResponse(createdPayment), HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
@@ -1,5 +1,9 @@
 package com.fairsplit.controller;
 
+import com.fairsplit.coalesce.GroupRead;
+import com.fairsplit.coalesce.GroupReadCoalescer;
+import com.fairsplit.dto.RequestResponse;
+import com.fairsplit.dto.ResponseMapper;
 import com.fairsplit.model.Request;
 import com.fairsplit.service.RequestService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,70 +21,73 @@ public class RequestController {
     @Autowired
     private RequestService requestService;
     
+    @Autowired
+    private GroupReadCoalescer groupReadCoalescer;
+    
     @GetMapping
-    public ResponseEntity<List<Request>> getAllRequests() {
-        List<Request> requests = requestService.getAllRequests();
+    public ResponseEntity<List<RequestResponse>> getAllRequests() {
+        List<RequestResponse> requests = requestService.getAllRequests();
         return new ResponseEntity<>(requests, HttpStatus.OK);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Request> getRequestById(@PathVariable Long id) {
+    public ResponseEntity<RequestResponse> getRequestById(@PathVariable Long id) {
         Optional<Request> request = requestService.getRequestById(id);
-        return request.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+        return request.map(value -> new ResponseEntity<>(ResponseMapper.toResponse(value), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
     
     @GetMapping("/expense/{expenseId}")
-    public ResponseEntity<List<Request>> getRequestsByExpenseId(@PathVariable Long expenseId) {
-        List<Request> requests = requestService.getRequestsByExpenseId(expenseId);
+    public ResponseEntity<List<RequestResponse>> getRequestsByExpenseId(@PathVariable Long expenseId) {
+        List<RequestResponse> requests = requestService.getRequestsByExpenseId(expenseId);
         return new ResponseEntity<>(requests, HttpStatus.OK);
     }
     
     @GetMapping("/debtor/{userId}")
-    public ResponseEntity<List<Request>> getRequestsByDebtorId(@PathVariable Long userId) {
-        List<Request> requests = requestService.getRequestsByDebtorId(userId);
+    public ResponseEntity<List<RequestResponse>> getRequestsByDebtorId(@PathVariable Long userId) {
+        List<RequestResponse> requests = requestService.getRequestsByDebtorId(userId);
         return new ResponseEntity<>(requests, HttpStatus.OK);
     }
     
     @GetMapping("/debtor/{userId}/unfulfilled")
-    public ResponseEntity<List<Request>> getUnfulfilledRequestsByDebtorId(@PathVariable Long userId) {
-        List<Request> requests = requestService.getUnfulfilledRequestsByDebtorId(userId);
+    public ResponseEntity<List<RequestResponse>> getUnfulfilledRequestsByDebtorId(@PathVariable Long userId) {
+        List<RequestResponse> requests = requestService.getUnfulfilledRequestsByDebtorId(userId);
         return new ResponseEntity<>(requests, HttpStatus.OK);
     }
     
     @GetMapping("/debtee/{userId}")
-    public ResponseEntity<List<Request>> getRequestsByDebteeId(@PathVariable Long userId) {
-        List<Request> requests = requestService.getRequestsByDebteeId(userId);
+    public ResponseEntity<List<RequestResponse>> getRequestsByDebteeId(@PathVariable Long userId) {
+        List<RequestResponse> requests = requestService.getRequestsByDebteeId(userId);
         return new ResponseEntity<>(requests, HttpStatus.OK);
     }
     
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<Request>> getRequestsByGroupId(@PathVariable Long groupId) {
-        List<Request> requests = requestService.getRequestsByGroupId(groupId);
+    public ResponseEntity<List<RequestResponse>> getRequestsByGroupId(@PathVariable Long groupId) {
+        List<RequestResponse> requests = requestService.getRequestsByGroupId(groupId);
         return new ResponseEntity<>(requests, HttpStatus.OK);
     }
     
     @GetMapping("/group/{groupId}/unfulfilled")
-    public ResponseEntity<List<Request>> getUnfulfilledRequestsByGroupId(@PathVariable Long groupId) {
-        List<Request> requests = requestService.getUnfulfilledRequestsByGroupId(groupId);
-        return new ResponseEntity<>(requests, HttpStatus.OK);
+    public ResponseEntity<?> getUnfulfilledRequestsByGroupId(@PathVariable Long groupId) {
+        // concurrent calls for a group share one load
+        return groupReadCoalescer.respond(GroupRead.UNFULFILLED_REQUESTS, groupId, () -> requestService.getUnfulfilledRequestsByGroupId(groupId));
     }
     
     @PostMapping
-    public ResponseEntity<Request> createRequest(@RequestBody Request request) {
+    public ResponseEntity<RequestResponse> createRequest(@RequestBody Request request) {
         try {
             Request createdRequest = requestService.createRequest(request);
-            return new ResponseEntity<>(createdRequest, HttpStatus.CREATED);
+            return new ResponseEntity<>(ResponseMapper.toResponse(createdRequest), HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Request> updateRequest(@PathVariable Long id, @RequestBody Request requestDetails) {
+    public ResponseEntity<RequestResponse> updateRequest(@PathVariable Long id, @RequestBody Request requestDetails) {
         try {
             Optional<Request> updatedRequest = requestService.updateRequest(id, requestDetails);
-            return updatedRequest.map(request -> new ResponseEntity<>(request, HttpStatus.OK))
+            return updatedRequest.map(request -> new ResponseEntity<>(ResponseMapper.toResponse(request), HttpStatus.OK))
                     .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -88,13 +95,16 @@ public class RequestController {
     }
     
     @PostMapping("/{id}/accept")
-    public ResponseEntity<Request> acceptRequest(@PathVariable Long id) {
+    public ResponseEntity<RequestResponse> acceptRequest(@PathVariable Long id) {
         try {
             Optional<Request> acceptedRequest = requestService.acceptRequest(id);
-            return acceptedRequest.map(request -> new ResponseEntity<>(request, HttpStatus.OK))
+            return acceptedRequest.map(request -> new ResponseEntity<>(ResponseMapper.toResponse(request), HttpStatus.OK))
                     .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
         } catch (IllegalStateException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            // Paid already, an amount mismatch, or no exchange rate for the settlement
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
     
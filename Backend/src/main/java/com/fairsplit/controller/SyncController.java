@@ -0,0 +1,35 @@
+package com.fairsplit.controller;
+
+import com.fairsplit.dto.SyncPage;
+import com.fairsplit.service.SyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+    
+    @Autowired
+    private SyncService syncService;
+    
+    // rows changed after the since token, optionally in one group only; without since, a token to start from.
+    // 410 when the token is older than the change log retention and the client must load its groups again
+    @GetMapping
+    public ResponseEntity<SyncPage> getChanges(
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long groupId,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return new ResponseEntity<>(syncService.getChanges(since, groupId, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.GONE);
+        }
+    }
+}
@@ -1,14 +1,31 @@
 package com.fairsplit.controller;
 
+import com.fairsplit.coalesce.GroupRead;
+import com.fairsplit.coalesce.GroupReadCoalescer;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.dto.UserDashboard;
+import com.fairsplit.dto.UserResponse;
+import com.fairsplit.dto.UserTotals;
 import com.fairsplit.model.User;
+import com.fairsplit.service.DashboardService;
 import com.fairsplit.service.UserService;
+import com.fairsplit.service.UserTotalsService;
+import com.fairsplit.statement.RenderedStatement;
+import com.fairsplit.statement.StatementGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/users")
@@ -17,34 +34,107 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private GroupReadCoalescer groupReadCoalescer;
+    
+    @Autowired
+    private DashboardService dashboardService;
+    
+    @Autowired
+    private StatementGenerator statementGenerator;
+    
+    @Autowired
+    private UserTotalsService userTotalsService;
+    
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
+    public ResponseEntity<List<UserResponse>> getAllUsers() {
+        List<UserResponse> users = userService.getAllUsers();
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserResponse> getUserById(@PathVariable Long id) {
         Optional<User> user = userService.getUserById(id);
-        return user.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+        return user.map(value -> new ResponseEntity<>(ResponseMapper.toResponse(value), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+
+    // totals, counts and the most recent items for the dashboard in one call
+    @GetMapping("/{id}/dashboard")
+    public ResponseEntity<UserDashboard> getUserDashboard(@PathVariable Long id,
+            @RequestParam(defaultValue = "5") int recent) {
+        Optional<UserDashboard> dashboard = dashboardService.getDashboard(id, recent);
+        return dashboard.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+    
+    // what the user owes and is owed on open requests across all groups, read from counters
+    @GetMapping("/{id}/totals")
+    public ResponseEntity<UserTotals> getUserTotals(@PathVariable Long id) {
+        Optional<UserTotals> totals = userTotalsService.getTotals(id);
+        return totals.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+    
+    // annual statement across all the user's groups, JSON or ?format=csv; generated off the request
+    // threads and cached, 503 with Retry-After when too many statements are waiting
+    @GetMapping("/{id}/statements/{year}")
+    public CompletableFuture<ResponseEntity<?>> getUserStatement(@PathVariable Long id, @PathVariable int year,
+            @RequestParam(defaultValue = "json") String format) {
+        boolean csv = format.equalsIgnoreCase("csv");
+        if (!csv && !format.equalsIgnoreCase("json")) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+        Optional<User> user = userService.getUserById(id);
+        if (user.isEmpty()) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        }
+        CompletableFuture<RenderedStatement> statement;
+        try {
+            statement = statementGenerator.getStatement(user.get(), year);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+        return statement.<ResponseEntity<?>>thenApply(rendered -> csv
+                ? ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"statement-" + id + "-" + year + ".csv\"")
+                    .body(rendered.csv())
+                : new ResponseEntity<>(rendered.statement(), HttpStatus.OK))
+            .exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof RejectedExecutionException || cause instanceof TimeoutException) {
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+                }
+                return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            });
+    }
      
     @GetMapping("/username/{username}")
-    public ResponseEntity<User> getUserById(@PathVariable String username) {
+    public ResponseEntity<UserResponse> getUserById(@PathVariable String username) {
         Optional<User> user = userService.getUserByUsername(username);
-        return user.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+        return user.map(value -> new ResponseEntity<>(ResponseMapper.toResponse(value), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
     
+    // availability check for the registration form, answered without a query when the name is definitely free
+    @GetMapping("/available")
+    public ResponseEntity<Map<String, Object>> isUsernameAvailable(@RequestParam String username) {
+        if (username.isBlank()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        boolean available = userService.isUsernameAvailable(username);
+        return new ResponseEntity<>(Map.of("username", username, "available", available), HttpStatus.OK);
+    }
+    
     // create new user
     // catches illegal argument exception by service function, passes http BAD REQUEST response
     @PostMapping("/register")
-    public ResponseEntity<User> createUser(@RequestBody User user) {
+    public ResponseEntity<UserResponse> createUser(@RequestBody User user) {
         try {
             User savedUser = userService.createUser(user);
-            return new ResponseEntity<>(savedUser, HttpStatus.CREATED);
+            return new ResponseEntity<>(ResponseMapper.toResponse(savedUser), HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
@@ -53,11 +143,11 @@ public class UserController {
     
     // update user on id by putting a new User object to replace
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userDetails) {
+    public ResponseEntity<UserResponse> updateUser(@PathVariable Long id, @RequestBody User userDetails) {
         try {
             Optional<User> updatedUser = userService.updateUser(id, userDetails);
             
-            return updatedUser.map(user -> new ResponseEntity<>(user, HttpStatus.OK))
+            return updatedUser.map(user -> new ResponseEntity<>(ResponseMapper.toResponse(user), HttpStatus.OK))
                     .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
         } catch (IllegalArgumentException e) {
             // Handle case where username already exists
@@ -67,26 +157,26 @@ public class UserController {
 
     // update user balance to a specific amount
     @PutMapping("/{id}/balance")
-    public ResponseEntity<User> updateUserBalance(@PathVariable Long id, @RequestBody Double newAmount) {
+    public ResponseEntity<UserResponse> updateUserBalance(@PathVariable Long id, @RequestBody Double newAmount) {
         Optional<User> updatedUser = userService.updateUserBalance(id, newAmount);
         
-        return updatedUser.map(user -> new ResponseEntity<>(user, HttpStatus.OK))
+        return updatedUser.map(user -> new ResponseEntity<>(ResponseMapper.toResponse(user), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<User>> getGroupUsers(@PathVariable Long groupId){
-        List<User> users = userService.getFilteredUsers(groupId);
-        return new ResponseEntity<>(users, HttpStatus.OK);
+    public ResponseEntity<?> getGroupUsers(@PathVariable Long groupId){
+        // concurrent calls for a group share one load
+        return groupReadCoalescer.respond(GroupRead.USERS, groupId, () -> userService.getFilteredUsers(groupId));
     }
 
 
     // add amount to user's current balance
     @PutMapping("/{id}/add-balance")
-    public ResponseEntity<User> addUserAmount(@PathVariable Long id, @RequestBody Double amountToAdd) {
+    public ResponseEntity<UserResponse> addUserAmount(@PathVariable Long id, @RequestBody Double amountToAdd) {
         Optional<User> updatedUser = userService.addUserAmount(id, amountToAdd);
         
-        return updatedUser.map(user -> new ResponseEntity<>(user, HttpStatus.OK))
+        return updatedUser.map(user -> new ResponseEntity<>(ResponseMapper.toResponse(user), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
     
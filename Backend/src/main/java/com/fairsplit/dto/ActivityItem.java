@@ -0,0 +1,74 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.config.SparseFieldsAdvice;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * One entry of a group's activity feed: an expense, a request or a payment
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter(SparseFieldsAdvice.FILTER)
+public class ActivityItem {
+
+    public static final String EXPENSE = "EXPENSE";
+    public static final String REQUEST = "REQUEST";
+    public static final String PAYMENT = "PAYMENT";
+
+    // EXPENSE, REQUEST or PAYMENT; the id is unique within the type only
+    private String type;
+
+    private Long id;
+
+    // Expense name, payment name, or for a request the name of its expense
+    private String name;
+
+    private Double amount;
+
+    private String currency;
+
+    // Payer of an expense, debtor of a request or payment
+    private UserSummary user;
+
+    // Debtee of a request or payment, none for an expense
+    private UserSummary counterparty;
+
+    // Set for requests only
+    private Boolean fulfilled;
+
+    private Date createdAt;
+
+    // Flat form for the expense "select new" query
+    public ActivityItem(String type, Long id, String name, Double amount, String currency,
+                        Long payerId, String payerUsername, String payerFullname, Date createdAt) {
+        this(type, id, name, amount, currency,
+            UserSummary.of(payerId, payerUsername, payerFullname), null, null, createdAt);
+    }
+
+    // Flat form for the payment "select new" query
+    public ActivityItem(String type, Long id, String name, Double amount, String currency,
+                        Long debtorId, String debtorUsername, String debtorFullname,
+                        Long debteeId, String debteeUsername, String debteeFullname, Date createdAt) {
+        this(type, id, name, amount, currency,
+            UserSummary.of(debtorId, debtorUsername, debtorFullname),
+            UserSummary.of(debteeId, debteeUsername, debteeFullname), null, createdAt);
+    }
+
+    // Flat form for the request "select new" query
+    public ActivityItem(String type, Long id, String name, Double amount, String currency,
+                        Long debtorId, String debtorUsername, String debtorFullname,
+                        Long debteeId, String debteeUsername, String debteeFullname,
+                        boolean fulfilled, Date createdAt) {
+        this(type, id, name, amount, currency,
+            UserSummary.of(debtorId, debtorUsername, debtorFullname),
+            UserSummary.of(debteeId, debteeUsername, debteeFullname), fulfilled, createdAt);
+    }
+}
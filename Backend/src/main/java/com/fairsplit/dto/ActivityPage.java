@@ -0,0 +1,23 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A page of a group's activity feed, newest first
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityPage {
+
+    private List<ActivityItem> items;
+
+    // Opaque cursor for the next page, null on the last one
+    private String nextCursor;
+}
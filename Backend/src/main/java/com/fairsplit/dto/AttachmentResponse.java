@@ -0,0 +1,36 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.config.SparseFieldsAdvice;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Metadata of a receipt attached to an expense; the content is at /api/expenses/{expenseId}/attachments/{id}
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter(SparseFieldsAdvice.FILTER)
+public class AttachmentResponse {
+
+    private Long id;
+
+    private Long expenseId;
+
+    private String filename;
+
+    private String contentType;
+
+    private long size;
+
+    // Hex SHA-256 of the content, also its ETag
+    private String sha256;
+
+    private Date createdAt;
+}
@@ -0,0 +1,28 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Open request totals of a user in one settlement currency
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CurrencyTotals {
+
+    private String currency;
+
+    // Total the user still owes, in this currency
+    private Double owing;
+
+    // Total others still owe the user, in this currency
+    private Double owed;
+
+    private Long openRequestsOwing;
+
+    private Long openRequestsOwed;
+}
@@ -0,0 +1,40 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Flat summary of a request or payment shown on the dashboard, without the
+ * nested user, group and expense graphs of the entities
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardItem {
+
+    private Long id;
+
+    private Double amount;
+
+    private String currency;
+
+    // The other side of the request or payment
+    private Long counterpartyId;
+
+    private String counterpartyName;
+
+    private Long groupId;
+
+    private String groupName;
+
+    private String description;
+
+    private boolean fulfilled;
+
+    private Date createdAt;
+}
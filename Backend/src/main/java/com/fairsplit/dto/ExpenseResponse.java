@@ -0,0 +1,57 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.config.SparseFieldsAdvice;
+import com.fairsplit.model.SplitType;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * An expense with its payer, group and assigned users as summaries
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter(SparseFieldsAdvice.FILTER)
+public class ExpenseResponse {
+
+    private Long id;
+
+    private String name;
+
+    private Double amount;
+
+    private String currency;
+
+    private String category;
+
+    private boolean paid;
+
+    private SplitType splitType;
+
+    private UserSummary payer;
+
+    private GroupSummary group;
+
+    private List<UserSummary> assignedUsers;
+
+    private Date createdAt;
+
+    private Date updatedAt;
+
+    // Flat form for "select new" queries, assigned users are loaded separately
+    public ExpenseResponse(Long id, String name, Double amount, String currency, String category, boolean paid,
+                           SplitType splitType, Long payerId, String payerUsername, String payerFullname,
+                           Long groupId, String groupName, String groupCurrency, Date createdAt, Date updatedAt) {
+        this(id, name, amount, currency, category, paid, splitType,
+            UserSummary.of(payerId, payerUsername, payerFullname),
+            GroupSummary.of(groupId, groupName, groupCurrency),
+            null, createdAt, updatedAt);
+    }
+}
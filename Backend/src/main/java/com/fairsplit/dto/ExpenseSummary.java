@@ -0,0 +1,30 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * An expense as embedded in request responses
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSummary {
+
+    private Long id;
+
+    private String name;
+
+    private String category;
+
+    /**
+     * Build a summary from nullable columns of an outer join
+     * @return the summary, or null if there is no expense
+     */
+    static ExpenseSummary of(Long id, String name, String category) {
+        return id == null ? null : new ExpenseSummary(id, name, category);
+    }
+}
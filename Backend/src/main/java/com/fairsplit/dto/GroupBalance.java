@@ -0,0 +1,33 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outstanding (unfulfilled) request totals for one user within one group
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupBalance {
+
+    private Long groupId;
+
+    private String groupName;
+
+    // Settlement currency of the group, all amounts below are in it
+    private String currency;
+
+    // Total the user still owes to other members of the group
+    private Double owing;
+
+    // Total other members of the group still owe the user
+    private Double owed;
+
+    private Long openRequestsOwing;
+
+    private Long openRequestsOwed;
+}
@@ -0,0 +1,31 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.config.SparseFieldsAdvice;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A group with its members as summaries
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter(SparseFieldsAdvice.FILTER)
+public class GroupResponse {
+
+    private Long id;
+
+    private String name;
+
+    private boolean active;
+
+    private String currency;
+
+    private List<UserSummary> users;
+}
@@ -0,0 +1,31 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A group as embedded in other responses, without its member list
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupSummary {
+
+    private Long id;
+
+    private String name;
+
+    // Settlement currency of the group
+    private String currency;
+
+    /**
+     * Build a summary from nullable columns of an outer join
+     * @return the summary, or null if there is no group
+     */
+    static GroupSummary of(Long id, String name, String currency) {
+        return id == null ? null : new GroupSummary(id, name, currency);
+    }
+}
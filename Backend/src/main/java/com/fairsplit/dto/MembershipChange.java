@@ -0,0 +1,28 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of a bulk membership add or remove for one of the user IDs sent
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembershipChange {
+
+    public enum Status {
+        ADDED,
+        ALREADY_MEMBER,
+        REMOVED,
+        NOT_MEMBER,
+        USER_NOT_FOUND
+    }
+
+    private Long userId;
+
+    private Status status;
+}
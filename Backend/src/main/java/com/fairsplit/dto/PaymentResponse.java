@@ -0,0 +1,55 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.config.SparseFieldsAdvice;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * A payment with its users and group as summaries
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter(SparseFieldsAdvice.FILTER)
+public class PaymentResponse {
+
+    private Long id;
+
+    private String name;
+
+    private Double amount;
+
+    private String currency;
+
+    private UserSummary debtor;
+
+    private UserSummary debtee;
+
+    private GroupSummary group;
+
+    // Request the payment settled, if any
+    private Long requestId;
+
+    private Date createdAt;
+
+    private Date updatedAt;
+
+    // Flat form for "select new" queries
+    public PaymentResponse(Long id, String name, Double amount, String currency,
+                           Long debtorId, String debtorUsername, String debtorFullname,
+                           Long debteeId, String debteeUsername, String debteeFullname,
+                           Long groupId, String groupName, String groupCurrency,
+                           Long requestId, Date createdAt, Date updatedAt) {
+        this(id, name, amount, currency,
+            UserSummary.of(debtorId, debtorUsername, debtorFullname),
+            UserSummary.of(debteeId, debteeUsername, debteeFullname),
+            GroupSummary.of(groupId, groupName, groupCurrency),
+            requestId, createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,44 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of a balance reconciliation run
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReport {
+
+    private Date startedAt;
+
+    private Date finishedAt;
+
+    // Whether discrepancies were corrected or only reported
+    private boolean repair;
+
+    private long usersChecked;
+
+    // Users whose balance differs from adjustments + payments received - payments made
+    private long balanceMismatches;
+
+    private long requestsChecked;
+
+    // Requests whose fulfilled flag disagrees with having a linked payment
+    private long fulfilledMismatches;
+
+    private long repaired;
+
+    // ID ranges that could not be checked, e.g. because of a concurrent update in repair mode
+    private long failedRanges;
+
+    // The first discrepancies found, capped so the report stays small
+    private List<String> samples;
+}
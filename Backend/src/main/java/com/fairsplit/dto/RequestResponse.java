@@ -0,0 +1,56 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.config.SparseFieldsAdvice;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * A request with its expense, users and group as summaries
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter(SparseFieldsAdvice.FILTER)
+public class RequestResponse {
+
+    private Long id;
+
+    // In the settlement currency of the group
+    private Double amount;
+
+    private boolean fulfilled;
+
+    private ExpenseSummary expense;
+
+    // User who owes the amount
+    private UserSummary debtor;
+
+    // User who is owed the amount
+    private UserSummary debtee;
+
+    private GroupSummary group;
+
+    private Date createdAt;
+
+    private Date updatedAt;
+
+    // Flat form for "select new" queries
+    public RequestResponse(Long id, Double amount, boolean fulfilled,
+                           Long expenseId, String expenseName, String expenseCategory,
+                           Long debtorId, String debtorUsername, String debtorFullname,
+                           Long debteeId, String debteeUsername, String debteeFullname,
+                           Long groupId, String groupName, String groupCurrency, Date createdAt, Date updatedAt) {
+        this(id, amount, fulfilled,
+            ExpenseSummary.of(expenseId, expenseName, expenseCategory),
+            UserSummary.of(debtorId, debtorUsername, debtorFullname),
+            UserSummary.of(debteeId, debteeUsername, debteeFullname),
+            GroupSummary.of(groupId, groupName, groupCurrency),
+            createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,106 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.model.Expense;
+import com.fairsplit.model.ExpenseAttachment;
+import com.fairsplit.model.Group;
+import com.fairsplit.model.Payment;
+import com.fairsplit.model.Request;
+import com.fairsplit.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Maps entities to response DTOs for the endpoints that load whole entities. Plain
+ * getter calls, so a renamed or removed entity field breaks the build rather than the JSON.
+ */
+public final class ResponseMapper {
+
+    private ResponseMapper() {
+    }
+
+    public static UserSummary toSummary(User user) {
+        return user == null ? null : new UserSummary(user.getId(), user.getUsername(), user.getFullname());
+    }
+
+    public static GroupSummary toSummary(Group group) {
+        return group == null ? null : new GroupSummary(group.getId(), group.getName(), group.getCurrency());
+    }
+
+    public static ExpenseSummary toSummary(Expense expense) {
+        return expense == null ? null : new ExpenseSummary(expense.getId(), expense.getName(), expense.getCategory());
+    }
+
+    public static UserResponse toResponse(User user) {
+        return new UserResponse(user.getId(), user.getUsername(), user.getFullname(), user.getAmount(),
+            user.isActive(), user.getCreatedAt(), user.getUpdatedAt());
+    }
+
+    public static GroupResponse toResponse(Group group) {
+        return new GroupResponse(group.getId(), group.getName(), group.isActive(), group.getCurrency(),
+            map(group.getUsers(), ResponseMapper::toSummary));
+    }
+
+    public static ExpenseResponse toResponse(Expense expense) {
+        return new ExpenseResponse(expense.getId(), expense.getName(), expense.getAmount(), expense.getCurrency(),
+            expense.getCategory(), expense.isPaid(), expense.getSplitType(),
+            toSummary(expense.getPayer()), toSummary(expense.getGroup()),
+            map(expense.getAssignedUsers(), ResponseMapper::toSummary),
+            expense.getCreatedAt(), expense.getUpdatedAt());
+    }
+
+    public static RequestResponse toResponse(Request request) {
+        return new RequestResponse(request.getId(), request.getAmount(), request.isFulfilled(),
+            toSummary(request.getExpense()), toSummary(request.getDebtor()), toSummary(request.getDebtee()),
+            toSummary(request.getGroup()), request.getCreatedAt(), request.getUpdatedAt());
+    }
+
+    public static PaymentResponse toResponse(Payment payment) {
+        return new PaymentResponse(payment.getId(), payment.getName(), payment.getAmount(), payment.getCurrency(),
+            toSummary(payment.getDebtor()), toSummary(payment.getDebtee()), toSummary(payment.getGroup()),
+            payment.getRequest() == null ? null : payment.getRequest().getId(),
+            payment.getCreatedAt(), payment.getUpdatedAt());
+    }
+
+    public static AttachmentResponse toResponse(ExpenseAttachment attachment) {
+        return new AttachmentResponse(attachment.getId(), attachment.getExpenseId(), attachment.getFilename(),
+            attachment.getContentType(), attachment.getSize(), attachment.getSha256(), attachment.getCreatedAt());
+    }
+
+    public static ActivityItem toActivity(Expense expense) {
+        return new ActivityItem(ActivityItem.EXPENSE, expense.getId(), expense.getName(), expense.getAmount(),
+            expense.getCurrency(), toSummary(expense.getPayer()), null, null, expense.getCreatedAt());
+    }
+
+    public static ActivityItem toActivity(Request request) {
+        return new ActivityItem(ActivityItem.REQUEST, request.getId(),
+            request.getExpense() == null ? null : request.getExpense().getName(), request.getAmount(),
+            request.getGroup() == null ? null : request.getGroup().getCurrency(),
+            toSummary(request.getDebtor()), toSummary(request.getDebtee()), request.isFulfilled(),
+            request.getCreatedAt());
+    }
+
+    public static ActivityItem toActivity(Payment payment) {
+        return new ActivityItem(ActivityItem.PAYMENT, payment.getId(), payment.getName(), payment.getAmount(),
+            payment.getCurrency(), toSummary(payment.getDebtor()), toSummary(payment.getDebtee()), null,
+            payment.getCreatedAt());
+    }
+
+    /**
+     * Map every element of a list
+     * @param source the list to map, may be null
+     * @param mapper the mapping function
+     * @return the mapped list, empty if the source was null
+     */
+    public static <S, T> List<T> map(List<S> source, Function<S, T> mapper) {
+        if (source == null) {
+            return new ArrayList<>();
+        }
+        List<T> result = new ArrayList<>(source.size());
+        for (S item : source) {
+            result.add(mapper.apply(item));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A user's annual statement: what they paid, owed and settled in each of their groups,
+ * with totals across groups converted to one currency
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Statement {
+
+    private Long userId;
+
+    private String username;
+
+    private int year;
+
+    // Currency of the totals below; each group carries its own currency
+    private String currency;
+
+    // Amounts in other currencies are converted at the rate of this date: the end of the year, or now for the current one
+    private Date ratesAt;
+
+    private Date generatedAt;
+
+    private List<StatementGroup> groups;
+
+    private double expensesPaid;
+
+    private double owed;
+
+    private double owedOpen;
+
+    private double owedToUser;
+
+    private double owedToUserOpen;
+
+    private double paid;
+
+    private double received;
+}
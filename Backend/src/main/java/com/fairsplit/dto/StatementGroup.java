@@ -0,0 +1,42 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A user's totals in one group over a year, in the group currency
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementGroup {
+
+    private Long groupId;
+
+    private String groupName;
+
+    private String currency;
+
+    private long expensesPaidCount;
+
+    // Expenses the user paid for the group
+    private double expensesPaid;
+
+    // Requests the user was asked to pay, and the part of them still open
+    private double owed;
+
+    private double owedOpen;
+
+    // Requests other members were asked to pay the user, and the part of them still open
+    private double owedToUser;
+
+    private double owedToUserOpen;
+
+    // Payments made and received
+    private double paid;
+
+    private double received;
+}
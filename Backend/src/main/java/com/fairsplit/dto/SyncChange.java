@@ -0,0 +1,33 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.model.ChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The latest change to one row within a sync page
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncChange {
+
+    private Long seq;
+
+    private ChangeType type;
+
+    // ID of the row, the user's for a membership
+    private Long id;
+
+    private Long groupId;
+
+    // True for a tombstone: the client should drop the row
+    private boolean deleted;
+
+    // Current state of the row as the regular endpoints return it, null when deleted;
+    // a UserSummary for a membership
+    private Object data;
+}
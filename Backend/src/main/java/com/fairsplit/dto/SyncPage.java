@@ -0,0 +1,26 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A page of changes for delta sync, in sequence order
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncPage {
+
+    private List<SyncChange> changes;
+
+    // Pass as since on the next call
+    private Long nextToken;
+
+    // True if more changes are ready, to be fetched at once with nextToken
+    private boolean hasMore;
+}
@@ -0,0 +1,52 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Everything the dashboard needs for one user in a single response:
+ * balance, outstanding totals per group, counts and the most recent items
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDashboard {
+
+    private Long userId;
+
+    private String username;
+
+    private String fullname;
+
+    private Double balance;
+
+    // Currency of the totals below; each group balance carries its own currency
+    private String currency;
+
+    private Double totalOwing;
+
+    private Double totalOwed;
+
+    private List<GroupBalance> groups;
+
+    private long openRequestsOwing;
+
+    private long openRequestsOwed;
+
+    private long paymentsMade;
+
+    private long paymentsReceived;
+
+    private List<DashboardItem> recentOwing;
+
+    private List<DashboardItem> recentOwed;
+
+    private List<DashboardItem> recentPaymentsMade;
+
+    private List<DashboardItem> recentPaymentsReceived;
+}
@@ -0,0 +1,35 @@
+package com.fairsplit.dto;
+
+import com.fairsplit.config.SparseFieldsAdvice;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * A user as returned by the user endpoints, without the password
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter(SparseFieldsAdvice.FILTER)
+public class UserResponse {
+
+    private Long id;
+
+    private String username;
+
+    private String fullname;
+
+    private Double amount;
+
+    private boolean active;
+
+    private Date createdAt;
+
+    private Date updatedAt;
+}
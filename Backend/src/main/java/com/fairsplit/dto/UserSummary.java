@@ -0,0 +1,30 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A user as embedded in other responses: no balance, password or groups
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummary {
+
+    private Long id;
+
+    private String username;
+
+    private String fullname;
+
+    /**
+     * Build a summary from nullable columns of an outer join
+     * @return the summary, or null if there is no user
+     */
+    static UserSummary of(Long id, String username, String fullname) {
+        return id == null ? null : new UserSummary(id, username, fullname);
+    }
+}
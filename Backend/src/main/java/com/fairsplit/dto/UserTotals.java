@@ -0,0 +1,34 @@
+package com.fairsplit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * What a user owes and is owed on open requests across all their groups
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTotals {
+
+    private Long userId;
+
+    // Base currency the totals below are converted to, at today's rates
+    private String currency;
+
+    private Double owing;
+
+    private Double owed;
+
+    private Long openRequestsOwing;
+
+    private Long openRequestsOwed;
+
+    // The same totals in each settlement currency, unconverted
+    private List<CurrencyTotals> currencies;
+}
@@ -0,0 +1,14 @@
+package com.fairsplit.event;
+
+/**
+ * Published by the services when data shown by a group's read endpoints changes.
+ * Listeners bound to the transaction only see it once the change has committed.
+ * @param groupId the group affected, or null when the change can show up in any group,
+ *                e.g. a user's balance or name, which appear in every group the user is in
+ */
+public record GroupDataChangedEvent(Long groupId) {
+    
+    public static GroupDataChangedEvent allGroups() {
+        return new GroupDataChangedEvent(null);
+    }
+}
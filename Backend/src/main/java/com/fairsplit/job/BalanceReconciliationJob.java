@@ -0,0 +1,28 @@
+package com.fairsplit.job;
+
+import com.fairsplit.service.BalanceReconciliationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the balance reconciliation every night, reporting only unless repair is enabled.
+ * The latest report is served at /api/metrics/reconciliation.
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.reconciliation.enabled", havingValue = "true", matchIfMissing = true)
+public class BalanceReconciliationJob {
+    
+    @Autowired
+    private BalanceReconciliationService balanceReconciliationService;
+    
+    @Value("${fairsplit.reconciliation.repair:false}")
+    private boolean repair;
+    
+    @Scheduled(cron = "${fairsplit.reconciliation.cron:0 0 4 * * *}")
+    public void reconcile() {
+        balanceReconciliationService.reconcile(repair);
+    }
+}
@@ -0,0 +1,56 @@
+package com.fairsplit.job;
+
+import com.fairsplit.repository.ChangeLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Deletes change log entries older than the sync retention, in small batches so each
+ * transaction stays short. The newest entry is always kept, so the token of a client
+ * that is up to date stays valid however quiet the log is; clients holding an older
+ * token get a 410 from /api/sync and load their groups again.
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.sync.prune.enabled", havingValue = "true", matchIfMissing = true)
+public class ChangeLogPruningJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(ChangeLogPruningJob.class);
+    
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    
+    @Value("${fairsplit.sync.retention-days:30}")
+    private int retentionDays;
+    
+    @Value("${fairsplit.sync.prune.batch-size:5000}")
+    private int batchSize;
+    
+    /**
+     * Prune every entry past the retention
+     * @return the number of entries deleted
+     */
+    @Scheduled(cron = "${fairsplit.sync.prune.cron:0 45 3 * * *}")
+    public long pruneChangeLog() {
+        Long newest = changeLogRepository.findLastSeq();
+        if (newest == null) {
+            return 0;
+        }
+        Date cutoff = new Date(System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = changeLogRepository.deleteOlderThan(cutoff, newest, batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        log.info("Pruned {} change log entries recorded before {}", total, cutoff);
+        return total;
+    }
+}
@@ -0,0 +1,121 @@
+package com.fairsplit.job;
+
+import com.fairsplit.model.OutboxEvent;
+import com.fairsplit.notification.Notification;
+import com.fairsplit.notification.NotificationSink;
+import com.fairsplit.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains the notification outbox. Each batch is claimed with FOR UPDATE SKIP LOCKED,
+ * so any number of nodes can run the dispatcher without delivering an event twice,
+ * and the events of one user in a batch are coalesced into a single notification.
+ * Delivered events are deleted; failed ones are retried with exponential backoff
+ * until max-attempts, then dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.outbox.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxDispatcher {
+    
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Autowired
+    private NotificationSink notificationSink;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${fairsplit.outbox.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${fairsplit.outbox.max-attempts:10}")
+    private int maxAttempts;
+    
+    @Value("${fairsplit.outbox.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+    
+    /**
+     * Dispatch batches until the outbox has no more due events
+     * @return the number of events delivered
+     */
+    @Scheduled(fixedDelayString = "${fairsplit.outbox.poll-interval-ms:1000}")
+    public long dispatch() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long delivered = 0;
+        int[] batch;
+        do {
+            // [claimed, delivered], the claim locks are held until the batch transaction ends
+            batch = transaction.execute(status -> dispatchBatch());
+            delivered += batch[1];
+        } while (batch[0] == batchSize);
+        return delivered;
+    }
+    
+    /**
+     * Claim, deliver and settle one batch, must run inside a transaction
+     * @return the number of events claimed and the number delivered
+     */
+    private int[] dispatchBatch() {
+        Date now = new Date();
+        List<OutboxEvent> events = outboxEventRepository.claimBatch(now, batchSize);
+        if (events.isEmpty()) {
+            return new int[] {0, 0};
+        }
+        
+        // Coalesce per recipient, keeping each user's events in the order they were written
+        Map<Long, List<OutboxEvent>> byRecipient = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            byRecipient.computeIfAbsent(event.getRecipientId(), id -> new ArrayList<>()).add(event);
+        }
+        
+        List<OutboxEvent> done = new ArrayList<>(events.size());
+        int delivered = 0;
+        for (Map.Entry<Long, List<OutboxEvent>> entry : byRecipient.entrySet()) {
+            List<OutboxEvent> userEvents = entry.getValue();
+            List<Long> eventIds = new ArrayList<>(userEvents.size());
+            List<String> messages = new ArrayList<>(userEvents.size());
+            for (OutboxEvent event : userEvents) {
+                eventIds.add(event.getId());
+                messages.add(event.getMessage());
+            }
+            
+            try {
+                notificationSink.deliver(new Notification(entry.getKey(), eventIds, messages));
+                done.addAll(userEvents);
+                delivered += userEvents.size();
+            } catch (Exception e) {
+                log.warn("Failed to notify user {} of {} events: {}", entry.getKey(), userEvents.size(), e.getMessage());
+                for (OutboxEvent event : userEvents) {
+                    int attempts = event.getAttempts() + 1;
+                    if (attempts >= maxAttempts) {
+                        log.error("Dropping outbox event {} after {} attempts", event.getId(), attempts);
+                        done.add(event);
+                    } else {
+                        // Managed entity, the new schedule is flushed when the batch commits
+                        event.setAttempts(attempts);
+                        event.setNextAttemptAt(new Date(now.getTime() + (retryBackoffMs << Math.min(attempts - 1, 16))));
+                    }
+                }
+            }
+        }
+        outboxEventRepository.deleteAllInBatch(done);
+        return new int[] {events.size(), delivered};
+    }
+}
@@ -0,0 +1,37 @@
+package com.fairsplit.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the monthly partitions of requests and payments ahead of time, so new
+ * rows never fall into the default partitions. Runs at startup and daily.
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.history.partition-maintenance.enabled", havingValue = "true", matchIfMissing = true)
+public class PartitionMaintenanceJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceJob.class);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${fairsplit.history.partition-maintenance.months-ahead:3}")
+    private int monthsAhead;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${fairsplit.history.partition-maintenance.cron:0 0 3 * * *}")
+    public void ensurePartitions() {
+        // fairsplit_ensure_partitions is defined by the V4 migration
+        jdbcTemplate.execute("SELECT fairsplit_ensure_partitions(" + monthsAhead + ")");
+        log.info("Ensured monthly partitions for the next {} months", monthsAhead);
+    }
+}
@@ -0,0 +1,51 @@
+package com.fairsplit.job;
+
+import com.fairsplit.repository.RequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Moves fulfilled requests older than the configured age to the archive partitions,
+ * in small batches so each transaction stays short. Once archived they no longer
+ * weigh on the indexes behind the unfulfilled and dashboard queries.
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.history.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class RequestArchivalJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(RequestArchivalJob.class);
+    
+    @Autowired
+    private RequestRepository requestRepository;
+    
+    @Value("${fairsplit.history.archive.after-days:180}")
+    private int afterDays;
+    
+    @Value("${fairsplit.history.archive.batch-size:5000}")
+    private int batchSize;
+    
+    /**
+     * Archive every eligible request
+     * @return the number of requests archived
+     */
+    @Scheduled(cron = "${fairsplit.history.archive.cron:0 30 3 * * *}")
+    public long archiveFulfilledRequests() {
+        Date cutoff = new Date(System.currentTimeMillis() - Duration.ofDays(afterDays).toMillis());
+        long total = 0;
+        int archived;
+        do {
+            archived = requestRepository.archiveFulfilledBefore(cutoff, batchSize);
+            total += archived;
+        } while (archived == batchSize);
+        log.info("Archived {} fulfilled requests created before {}", total, cutoff);
+        return total;
+    }
+}
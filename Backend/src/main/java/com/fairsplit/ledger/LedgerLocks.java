@@ -0,0 +1,154 @@
+package com.fairsplit.ledger;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes ledger writes, those that move balances or settle requests, per group and per
+ * user. Each group and each user maps to one of a fixed set of fair locks; a write takes the
+ * locks of its group and of every user it touches, always in stripe order so two writes can
+ * never wait on each other, and keeps them until its transaction has committed. Writes to the
+ * same group or user so apply one after the other in arrival order, while writes to unrelated
+ * groups take different stripes and run in parallel.
+ *
+ * Locks are taken before the transaction starts, so a waiting write holds no database
+ * connection. They serialize writes within one instance only.
+ */
+@Component
+public class LedgerLocks {
+
+    @Value("${fairsplit.ledger.locks.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fairsplit.ledger.locks.stripes:1024}")
+    private int stripeCount;
+
+    private ReentrantLock[] stripes;
+
+    // Stripes held by the outermost ledger write on this thread, sorted
+    private final ThreadLocal<int[]> held = new ThreadLocal<>();
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        // A power of two, so a stripe is picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock(true);
+        }
+    }
+
+    /**
+     * Run a ledger write holding the locks of its group and users. A write made from inside
+     * another one, e.g. the payment created when a request is accepted, runs under the outer
+     * write's locks, so it may only touch the group and users the outer one locked.
+     * @param groupId the group written to, or null
+     * @param userIds the users whose balances or requests are written to; nulls are ignored
+     * @param write the write, which should run its own transaction
+     * @return what the write returns
+     * @throws IllegalStateException if a nested write needs a lock the outer write does not hold
+     */
+    public <T> T withLocks(Long groupId, Collection<Long> userIds, Supplier<T> write) {
+        if (!enabled) {
+            return write.get();
+        }
+        int[] needed = stripesOf(groupId, userIds);
+        int[] outer = held.get();
+        if (outer != null) {
+            for (int stripe : needed) {
+                if (Arrays.binarySearch(outer, stripe) < 0) {
+                    throw new IllegalStateException("A nested ledger write must stay within the group and users of the outer one");
+                }
+            }
+            return write.get();
+        }
+
+        int locked = 0;
+        try {
+            for (int stripe : needed) {
+                lock(stripes[stripe]);
+                locked++;
+            }
+            held.set(needed);
+            return write.get();
+        } finally {
+            held.remove();
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[needed[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Counters for the metrics endpoint
+     * @return lock acquisitions, how many had to wait and for how long on average
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long total = acquisitions.sum();
+        long waited = contended.sum();
+        metrics.put("enabled", enabled);
+        metrics.put("stripes", stripes.length);
+        metrics.put("acquisitions", total);
+        metrics.put("contended", waited);
+        metrics.put("contendedRatio", total == 0 ? 0.0 : (double) waited / total);
+        metrics.put("meanWaitMs", waited == 0 ? 0.0 : waitNanos.sum() / 1e6 / waited);
+        return metrics;
+    }
+
+    private void lock(ReentrantLock stripe) {
+        acquisitions.increment();
+        // The timed tryLock, unlike tryLock(), does not jump ahead of threads already waiting
+        boolean free;
+        try {
+            free = stripe.tryLock(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            free = false;
+        }
+        if (free) {
+            return;
+        }
+        contended.increment();
+        long start = System.nanoTime();
+        stripe.lock();
+        waitNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * The distinct stripes of a group and users, in ascending order
+     */
+    private int[] stripesOf(Long groupId, Collection<Long> userIds) {
+        TreeSet<Integer> needed = new TreeSet<>();
+        if (groupId != null) {
+            needed.add(stripe(groupId * 2));
+        }
+        for (Long userId : userIds) {
+            if (userId != null) {
+                needed.add(stripe(userId * 2 + 1));
+            }
+        }
+        return needed.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Groups and users hash apart, so group 7 and user 7 rarely share a stripe
+    private int stripe(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,51 @@
+package com.fairsplit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * One change to a synced row, written in the same transaction as the change and
+ * read back in seq order by delta sync; a deletion is recorded as a tombstone
+ */
+@Entity
+@Table(name = "change_log")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeLogEntry {
+    
+    // Drawn from the identity column one at a time, so it increases in insert order across nodes
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ChangeType entityType;
+    
+    // ID of the changed row, the user's for a membership
+    @Column(nullable = false)
+    private Long entityId;
+    
+    private Long groupId;
+    
+    @Column(nullable = false)
+    private boolean deleted;
+    
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date changedAt;
+    
+    public ChangeLogEntry(ChangeType entityType, Long entityId, Long groupId, boolean deleted) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.groupId = groupId;
+        this.deleted = deleted;
+        this.changedAt = new Date();
+    }
+}
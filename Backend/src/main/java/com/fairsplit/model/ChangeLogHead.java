@@ -0,0 +1,27 @@
+package com.fairsplit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import jakarta.persistence.*;
+
+/**
+ * The single row whose lock orders change log writes, holding the sequence number of the
+ * newest committed entry; delta sync never serves past it
+ */
+@Entity
+@Table(name = "change_log_head")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeLogHead {
+    
+    // Always 1
+    @Id
+    private Integer id;
+    
+    @Column(nullable = false)
+    private long lastSeq;
+}
@@ -0,0 +1,13 @@
+package com.fairsplit.model;
+
+/**
+ * Kinds of row tracked in the change log
+ */
+public enum ChangeType {
+    EXPENSE,
+    REQUEST,
+    PAYMENT,
+    GROUP,
+    // A user's membership of a group, identified by the user ID and the group ID
+    MEMBERSHIP
+}
@@ -5,8 +5,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Entity
 @Table(name = "expenses")
@@ -26,6 +28,10 @@ public class Expense {
     @Column(nullable = false)
     private Double amount;
     
+    // ISO code of the currency the amount was spent in, null means the group currency
+    @Column(length = 3)
+    private String currency;
+    
     @Column(nullable = false)
     private String category;
     
@@ -48,6 +54,15 @@ public class Expense {
     )
     private List<User> assignedUsers;
     
+    // Null is treated as EQUAL for expenses created before split types existed
+    @Enumerated(EnumType.STRING)
+    private SplitType splitType;
+    
+    // Split value per assigned user ID, only read when the expense is created
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private Map<Long, Double> splits;
+    
     @Temporal(TemporalType.TIMESTAMP)
     @Column(nullable = false)
     private Date createdAt;
@@ -63,6 +78,7 @@ public class Expense {
         this.group = group;
         this.category = category;
         this.assignedUsers = assignedUsers;
+        this.splitType = SplitType.EQUAL;
         this.paid = false;
         this.createdAt = new Date();
         this.updatedAt = new Date();
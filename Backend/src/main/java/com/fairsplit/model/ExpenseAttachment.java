@@ -0,0 +1,55 @@
+package com.fairsplit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import jakarta.persistence.*;
+
+import java.util.Date;
+
+/**
+ * A receipt attached to an expense. The content is the blob stored under sha256,
+ * shared by every attachment with the same bytes.
+ */
+@Entity
+@Table(name = "expense_attachments")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseAttachment {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long expenseId;
+    
+    // Hex SHA-256 of the content, the blob's name in the store
+    @Column(nullable = false, length = 64)
+    private String sha256;
+    
+    @Column(nullable = false)
+    private String filename;
+    
+    @Column(nullable = false, length = 100)
+    private String contentType;
+    
+    @Column(nullable = false)
+    private long size;
+    
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date createdAt;
+    
+    public ExpenseAttachment(Long expenseId, String sha256, String filename, String contentType, long size) {
+        this.expenseId = expenseId;
+        this.sha256 = sha256;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.createdAt = new Date();
+    }
+}
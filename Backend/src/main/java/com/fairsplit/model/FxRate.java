@@ -0,0 +1,42 @@
+package com.fairsplit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * Value of one unit of a currency in the base currency, effective from a date
+ * until the next rate for the same currency
+ */
+@Entity
+@Table(name = "fx_rates", uniqueConstraints = @UniqueConstraint(columnNames = {"currency", "effective_date"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRate {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // ISO 4217 code, e.g. EUR
+    @Column(nullable = false, length = 3)
+    private String currency;
+    
+    @Temporal(TemporalType.DATE)
+    @Column(name = "effective_date", nullable = false)
+    private Date effectiveDate;
+    
+    @Column(nullable = false)
+    private Double rate;
+    
+    public FxRate(String currency, Date effectiveDate, Double rate) {
+        this.currency = currency;
+        this.effectiveDate = effectiveDate;
+        this.rate = rate;
+    }
+}
@@ -12,6 +12,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.UniqueConstraint;
 import java.util.List;
 
 @Entity
@@ -31,12 +32,17 @@ public class Group {
     @Column(nullable = false)
     private boolean isActive;
 
+    // ISO code of the currency the group settles in, null means the base currency
+    @Column(length = 3)
+    private String currency;
+
 
     @ManyToMany
     @JoinTable(
         name = "group_user",
         joinColumns = @JoinColumn(name = "group_id"),
-        inverseJoinColumns = @JoinColumn(name = "user_id")
+        inverseJoinColumns = @JoinColumn(name = "user_id"),
+        uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "user_id"})
     )
 
     @Column(nullable = false)
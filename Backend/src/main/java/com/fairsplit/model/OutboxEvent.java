@@ -0,0 +1,67 @@
+package com.fairsplit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * A pending notification, written in the same transaction as the change it reports
+ * and delivered later by the outbox dispatcher
+ */
+@Entity
+@Table(name = "outbox_events")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEventType type;
+    
+    // User the notification is for
+    @Column(nullable = false)
+    private Long recipientId;
+    
+    private Long requestId;
+    
+    private Long groupId;
+    
+    private Double amount;
+    
+    // Built from names of up to 255 characters each, so not bounded by any of them
+    @Column(nullable = false, columnDefinition = "text")
+    private String message;
+    
+    @Column(nullable = false)
+    private int attempts;
+    
+    // Earliest time the dispatcher may pick the event up, pushed back after a failed delivery
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date nextAttemptAt;
+    
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date createdAt;
+    
+    public OutboxEvent(OutboxEventType type, Long recipientId, Long requestId, Long groupId, Double amount, String message) {
+        this.type = type;
+        this.recipientId = recipientId;
+        this.requestId = requestId;
+        this.groupId = groupId;
+        this.amount = amount;
+        this.message = message;
+        this.attempts = 0;
+        this.createdAt = new Date();
+        this.nextAttemptAt = this.createdAt;
+    }
+}
@@ -0,0 +1,11 @@
+package com.fairsplit.model;
+
+/**
+ * Kinds of notification recorded in the outbox
+ */
+public enum OutboxEventType {
+    // An expense created a request the recipient owes
+    REQUEST_ASSIGNED,
+    // A request the recipient is owed was accepted and paid
+    REQUEST_ACCEPTED
+}
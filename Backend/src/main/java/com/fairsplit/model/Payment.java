@@ -25,6 +25,10 @@ public class Payment {
     @Column(nullable = false)
     private Double amount;
     
+    // ISO code of the currency the amount was paid in, null means the group currency
+    @Column(length = 3)
+    private String currency;
+    
     @ManyToOne
     @JoinColumn(name = "debtor_id", nullable = false)
     private User debtor;
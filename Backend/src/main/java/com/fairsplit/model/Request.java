@@ -19,12 +19,17 @@ public class Request {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    // Always in the settlement currency of the group
     @Column(nullable = false)
     private Double amount;
     
     @Column(nullable = false)
     private boolean isFulfilled;
     
+    // Set by the archival job on old fulfilled requests, which moves them to the archive partitions
+    @Column(nullable = false)
+    private boolean archived;
+    
     @ManyToOne
     //@JoinColumn(name = "expense_id", nullable = false)
     @JoinColumn(name = "expense_id", nullable = true)
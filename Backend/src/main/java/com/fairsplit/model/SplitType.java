@@ -0,0 +1,18 @@
+package com.fairsplit.model;
+
+/**
+ * How an expense amount is divided between its assigned users.
+ * Every type except EQUAL reads one value per assigned user from the expense splits.
+ */
+public enum SplitType {
+    // Same amount for everyone, no values needed
+    EQUAL,
+    // Proportional to arbitrary positive weights
+    WEIGHTS,
+    // Proportional to percentages that must add up to 100
+    PERCENTAGES,
+    // Exact amounts that must add up to the expense amount
+    EXACT,
+    // Proportional to whole-number shares, e.g. 2 shares for a couple and 1 for a single
+    SHARES
+}
@@ -34,6 +34,11 @@ public class User {
     @Column(nullable = false)
     private Double amount;
     
+    // Running total of balance changes not made by payments, see BalanceReconciliationService
+    @Column(nullable = false)
+    @JsonIgnore
+    private double adjustments;
+    
     @Column(nullable = false)
     private boolean isActive;
 
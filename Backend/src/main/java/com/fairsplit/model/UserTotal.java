@@ -0,0 +1,44 @@
+package com.fairsplit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import jakarta.persistence.*;
+
+/**
+ * Open request totals of one user in one settlement currency, kept up to date by
+ * UserTotalsService as requests are created, changed, settled and deleted
+ */
+@Entity
+@Table(name = "user_totals", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "currency"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTotal {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false, length = 3)
+    private String currency;
+    
+    // What the user still owes on open requests, in cents
+    @Column(nullable = false)
+    private long owingCents;
+    
+    // What others still owe the user on open requests, in cents
+    @Column(nullable = false)
+    private long owedCents;
+    
+    @Column(nullable = false)
+    private long openRequestsOwing;
+    
+    @Column(nullable = false)
+    private long openRequestsOwed;
+}
@@ -0,0 +1,33 @@
+package com.fairsplit.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends notifications as JSON lines to a file, so tests and load runs can check what was sent
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.notifications.sink", havingValue = "file")
+public class FileNotificationSink implements NotificationSink {
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${fairsplit.notifications.file:notifications.jsonl}")
+    private Path file;
+    
+    @Override
+    public synchronized void deliver(Notification notification) throws IOException {
+        String line = objectMapper.writeValueAsString(notification) + System.lineSeparator();
+        Files.writeString(file, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,21 @@
+package com.fairsplit.notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes notifications to the application log, the default sink for local runs
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.notifications.sink", havingValue = "log", matchIfMissing = true)
+public class LogNotificationSink implements NotificationSink {
+    
+    private static final Logger log = LoggerFactory.getLogger(LogNotificationSink.class);
+    
+    @Override
+    public void deliver(Notification notification) {
+        log.info("Notify user {}: {}", notification.recipientId(), String.join("; ", notification.messages()));
+    }
+}
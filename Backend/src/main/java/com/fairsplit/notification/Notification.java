@@ -0,0 +1,12 @@
+package com.fairsplit.notification;
+
+import java.util.List;
+
+/**
+ * Everything due for one user in a dispatcher batch, delivered as a single notification
+ * @param recipientId the user being notified
+ * @param eventIds the outbox events coalesced into this notification
+ * @param messages one line per event, oldest first
+ */
+public record Notification(Long recipientId, List<Long> eventIds, List<String> messages) {
+}
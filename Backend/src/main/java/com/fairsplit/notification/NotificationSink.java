@@ -0,0 +1,16 @@
+package com.fairsplit.notification;
+
+/**
+ * Where the outbox dispatcher delivers notifications. Exactly one sink is active,
+ * chosen with fairsplit.notifications.sink.
+ */
+public interface NotificationSink {
+    
+    /**
+     * Deliver a notification. Throwing leaves its events in the outbox to be retried later,
+     * so a sink may see the same events more than once.
+     * @param notification the notification to deliver
+     * @throws Exception if the notification could not be delivered
+     */
+    void deliver(Notification notification) throws Exception;
+}
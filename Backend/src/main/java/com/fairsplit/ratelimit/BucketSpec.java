@@ -0,0 +1,23 @@
+package com.fairsplit.ratelimit;
+
+/**
+ * Size and refill rate of a token bucket
+ * @param tokensPerSecond how fast tokens are earned
+ * @param capacity how many tokens can be saved up for a burst
+ */
+public record BucketSpec(double tokensPerSecond, int capacity) {
+    
+    public BucketSpec {
+        if (tokensPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("A bucket needs a positive rate and a capacity of at least 1");
+        }
+    }
+    
+    public long nanosPerToken() {
+        return (long) (1_000_000_000L / tokensPerSecond);
+    }
+    
+    public long burstNanos() {
+        return nanosPerToken() * capacity;
+    }
+}
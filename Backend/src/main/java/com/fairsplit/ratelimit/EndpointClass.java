@@ -0,0 +1,32 @@
+package com.fairsplit.ratelimit;
+
+import java.util.Set;
+
+/**
+ * Cost classes of API calls, each with its own rate limit budget
+ */
+public enum EndpointClass {
+    // GETs that return a whole table, e.g. GET /api/expenses
+    UNBOUNDED_LIST,
+    // Every other GET
+    READ,
+    // POST, PUT and DELETE
+    WRITE;
+    
+    private static final Set<String> UNBOUNDED_LIST_PATHS = Set.of(
+        "/api/users", "/api/groups", "/api/expenses", "/api/requests", "/api/payments");
+    
+    /**
+     * Classify a call
+     * @param method the HTTP method
+     * @param path the request path, without context path
+     * @return the class whose budget the call is charged to
+     */
+    public static EndpointClass of(String method, String path) {
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return WRITE;
+        }
+        String normalized = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        return UNBOUNDED_LIST_PATHS.contains(normalized) ? UNBOUNDED_LIST : READ;
+    }
+}
@@ -0,0 +1,61 @@
+package com.fairsplit.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process bucket store, the default. Buckets that have refilled completely are
+ * evicted when the map grows past its limit, since a full bucket behaves exactly
+ * like a missing one.
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.ratelimit.store", havingValue = "local", matchIfMissing = true)
+public class LocalRateLimitStore implements RateLimitStore {
+    
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    
+    @Value("${fairsplit.ratelimit.max-buckets:100000}")
+    private int maxBuckets;
+    
+    @Override
+    public long tryAcquire(String key, BucketSpec spec) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                evictFull(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(spec, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+    
+    @Override
+    public void refund(String key, BucketSpec spec) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+    
+    @Override
+    public long size() {
+        return buckets.size();
+    }
+    
+    private void evictFull(long now) {
+        // One thread sweeps at a time, the others carry on without waiting
+        if (evicting.compareAndSet(false, true)) {
+            try {
+                buckets.values().removeIf(bucket -> bucket.isFull(now));
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+}
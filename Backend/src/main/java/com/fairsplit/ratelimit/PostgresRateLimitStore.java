@@ -0,0 +1,73 @@
+package com.fairsplit.ratelimit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bucket store shared between nodes through Postgres. Each bucket is one row holding
+ * its theoretical arrival time in epoch microseconds, and a token is taken with a
+ * single conditional upsert, so nodes never hold locks across round trips.
+ * The table is created by the V2 migration.
+ * Enable with fairsplit.ratelimit.store=postgres.
+ */
+@Component
+@ConditionalOnProperty(name = "fairsplit.ratelimit.store", havingValue = "postgres")
+public class PostgresRateLimitStore implements RateLimitStore {
+    
+    // Inserts a full bucket, or advances an existing one only if that stays within its burst
+    private static final String ACQUIRE_SQL =
+        "INSERT INTO rate_limit_buckets (bucket_key, tat_micros) VALUES (?, ? + ?) " +
+        "ON CONFLICT (bucket_key) DO UPDATE " +
+        "SET tat_micros = GREATEST(rate_limit_buckets.tat_micros, EXCLUDED.tat_micros - ?) + ? " +
+        "WHERE GREATEST(rate_limit_buckets.tat_micros, EXCLUDED.tat_micros - ?) + ? - (EXCLUDED.tat_micros - ?) <= ? " +
+        "RETURNING tat_micros";
+    
+    // How often full buckets are deleted, so the table only holds clients that are being limited
+    private static final long CLEANUP_INTERVAL_MICROS = TimeUnit.MINUTES.toMicros(1);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final AtomicLong lastCleanup = new AtomicLong();
+    
+    @Override
+    public long tryAcquire(String key, BucketSpec spec) {
+        long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        long previousCleanup = lastCleanup.get();
+        if (now - previousCleanup > CLEANUP_INTERVAL_MICROS && lastCleanup.compareAndSet(previousCleanup, now)) {
+            jdbcTemplate.update("DELETE FROM rate_limit_buckets WHERE tat_micros < ?", now);
+        }
+        long perToken = TimeUnit.NANOSECONDS.toMicros(spec.nanosPerToken());
+        long burst = TimeUnit.NANOSECONDS.toMicros(spec.burstNanos());
+        
+        // EXCLUDED.tat_micros is now + perToken, so EXCLUDED.tat_micros - perToken is now
+        List<Long> updated = jdbcTemplate.queryForList(ACQUIRE_SQL, Long.class,
+            key, now, perToken, perToken, perToken, perToken, perToken, perToken, burst);
+        if (!updated.isEmpty()) {
+            return 0;
+        }
+        
+        List<Long> current = jdbcTemplate.queryForList(
+            "SELECT tat_micros FROM rate_limit_buckets WHERE bucket_key = ?", Long.class, key);
+        long ahead = current.isEmpty() ? 0 : Math.max(current.get(0), now) + perToken - now;
+        return TimeUnit.MICROSECONDS.toNanos(Math.max(1, ahead - burst));
+    }
+    
+    @Override
+    public void refund(String key, BucketSpec spec) {
+        jdbcTemplate.update("UPDATE rate_limit_buckets SET tat_micros = tat_micros - ? WHERE bucket_key = ?",
+            TimeUnit.NANOSECONDS.toMicros(spec.nanosPerToken()), key);
+    }
+    
+    @Override
+    public long size() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM rate_limit_buckets", Long.class);
+        return count == null ? 0 : count;
+    }
+}
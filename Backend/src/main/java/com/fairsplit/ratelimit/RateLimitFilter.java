@@ -0,0 +1,71 @@
+package com.fairsplit.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects API calls over their rate limit with 429 Too Many Requests and a
+ * Retry-After header, before they reach a controller or take a database connection.
+ * Clients are identified by IP address; a user header would be sent unchecked, as there is
+ * no authentication yet, so clients could pick a new identity or spend another user's budget.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    @Autowired
+    private RateLimiter rateLimiter;
+    
+    @Value("${fairsplit.ratelimit.enabled:true}")
+    private boolean enabled;
+    
+    // Only trust X-Forwarded-For when running behind a proxy that sets it
+    @Value("${fairsplit.ratelimit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // CORS preflights come from the browser ahead of real calls and cost nothing to answer
+        return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + "/api/")
+            || "OPTIONS".equals(request.getMethod());
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        EndpointClass endpointClass = EndpointClass.of(request.getMethod(), path);
+        
+        long waitNanos = rateLimiter.tryAcquire(clientKey(request), endpointClass);
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+    
+    private String clientKey(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return "ip:" + (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,28 @@
+package com.fairsplit.ratelimit;
+
+/**
+ * Where rate limit buckets live: in this process, or shared between nodes
+ */
+public interface RateLimitStore {
+    
+    /**
+     * Try to take one token from a bucket, creating it full if it does not exist yet
+     * @param key the bucket key, e.g. client and endpoint class
+     * @param spec the size and refill rate of the bucket
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be available
+     */
+    long tryAcquire(String key, BucketSpec spec);
+    
+    /**
+     * Give back a token taken by tryAcquire, for a call that was rejected after all
+     * @param key the bucket key
+     * @param spec the size and refill rate of the bucket
+     */
+    void refund(String key, BucketSpec spec);
+    
+    /**
+     * Get the number of buckets currently held
+     * @return the bucket count
+     */
+    long size();
+}
@@ -0,0 +1,91 @@
+package com.fairsplit.ratelimit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Charges each API call to two buckets: one for the calling client and endpoint
+ * class, so a single client cannot exhaust its class, and one shared by all clients
+ * for the endpoint class, so unbounded list calls as a whole cannot saturate the
+ * database pool.
+ */
+@Service
+public class RateLimiter {
+    
+    @Autowired
+    private RateLimitStore store;
+    
+    private final Map<EndpointClass, BucketSpec> clientSpecs = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, BucketSpec> globalSpecs = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, LongAdder> allowed = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, LongAdder> rejected = new EnumMap<>(EndpointClass.class);
+    
+    public RateLimiter(
+            @Value("${fairsplit.ratelimit.client.unbounded-list.per-second:2}") double clientListRate,
+            @Value("${fairsplit.ratelimit.client.unbounded-list.burst:5}") int clientListBurst,
+            @Value("${fairsplit.ratelimit.client.read.per-second:50}") double clientReadRate,
+            @Value("${fairsplit.ratelimit.client.read.burst:100}") int clientReadBurst,
+            @Value("${fairsplit.ratelimit.client.write.per-second:10}") double clientWriteRate,
+            @Value("${fairsplit.ratelimit.client.write.burst:20}") int clientWriteBurst,
+            @Value("${fairsplit.ratelimit.global.unbounded-list.per-second:20}") double globalListRate,
+            @Value("${fairsplit.ratelimit.global.unbounded-list.burst:40}") int globalListBurst,
+            @Value("${fairsplit.ratelimit.global.read.per-second:2000}") double globalReadRate,
+            @Value("${fairsplit.ratelimit.global.read.burst:4000}") int globalReadBurst,
+            @Value("${fairsplit.ratelimit.global.write.per-second:500}") double globalWriteRate,
+            @Value("${fairsplit.ratelimit.global.write.burst:1000}") int globalWriteBurst) {
+        clientSpecs.put(EndpointClass.UNBOUNDED_LIST, new BucketSpec(clientListRate, clientListBurst));
+        clientSpecs.put(EndpointClass.READ, new BucketSpec(clientReadRate, clientReadBurst));
+        clientSpecs.put(EndpointClass.WRITE, new BucketSpec(clientWriteRate, clientWriteBurst));
+        globalSpecs.put(EndpointClass.UNBOUNDED_LIST, new BucketSpec(globalListRate, globalListBurst));
+        globalSpecs.put(EndpointClass.READ, new BucketSpec(globalReadRate, globalReadBurst));
+        globalSpecs.put(EndpointClass.WRITE, new BucketSpec(globalWriteRate, globalWriteBurst));
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            allowed.put(endpointClass, new LongAdder());
+            rejected.put(endpointClass, new LongAdder());
+        }
+    }
+    
+    /**
+     * Try to admit a call
+     * @param client the client key, an IP address
+     * @param endpointClass the class of the endpoint called
+     * @return 0 if the call is admitted, otherwise the nanoseconds the client should wait before retrying
+     */
+    public long tryAcquire(String client, EndpointClass endpointClass) {
+        String clientKey = endpointClass + ":" + client;
+        long wait = store.tryAcquire(clientKey, clientSpecs.get(endpointClass));
+        if (wait == 0) {
+            wait = store.tryAcquire(endpointClass + ":*", globalSpecs.get(endpointClass));
+            if (wait > 0) {
+                // Turned away by the shared budget, the call doesn't count against the client's
+                store.refund(clientKey, clientSpecs.get(endpointClass));
+            }
+        }
+        (wait == 0 ? allowed : rejected).get(endpointClass).increment();
+        return wait;
+    }
+    
+    /**
+     * Get the limiter counters since startup
+     * @return allowed and rejected counts per endpoint class, and the number of live buckets
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("allowed", allowed.get(endpointClass).sum());
+            counts.put("rejected", rejected.get(endpointClass).sum());
+            counts.put("clientBudget", clientSpecs.get(endpointClass));
+            counts.put("globalBudget", globalSpecs.get(endpointClass));
+            metrics.put(endpointClass.name(), counts);
+        }
+        metrics.put("buckets", store.size());
+        return metrics;
+    }
+}
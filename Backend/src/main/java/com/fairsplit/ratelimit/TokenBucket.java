@@ -0,0 +1,58 @@
+package com.fairsplit.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Instead of a token count and a refill timestamp, which
+ * would need to change together, the whole state is one "theoretical arrival time"
+ * (the generic cell rate algorithm): each call pushes it forward by the time it
+ * takes to earn one token, and a call is rejected when that would put it more
+ * than a full bucket ahead of now. A single compare-and-set updates the bucket.
+ */
+public final class TokenBucket {
+    
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+    
+    public TokenBucket(BucketSpec spec, long nowNanos) {
+        this.nanosPerToken = spec.nanosPerToken();
+        this.burstNanos = spec.burstNanos();
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+    
+    /**
+     * Try to take one token
+     * @param nowNanos the current System.nanoTime()
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be available
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + nanosPerToken;
+            long ahead = next - nowNanos;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * Give back one token taken by tryAcquire
+     */
+    public void refund() {
+        theoreticalArrival.addAndGet(-nanosPerToken);
+    }
+    
+    /**
+     * Check whether the bucket has refilled completely, i.e. it is equivalent to a new bucket
+     * @param nowNanos the current System.nanoTime()
+     * @return true if the bucket can be dropped without changing any decision
+     */
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrival.get() - nowNanos <= 0;
+    }
+}
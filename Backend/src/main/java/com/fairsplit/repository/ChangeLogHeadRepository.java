@@ -0,0 +1,44 @@
+package com.fairsplit.repository;
+
+import com.fairsplit.model.ChangeLogHead;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ChangeLogHeadRepository extends JpaRepository<ChangeLogHead, Integer> {
+    
+    /**
+     * Find the sequence number of the newest committed change log entry
+     * @return the sequence number, or null before the first entry is written
+     */
+    @Query("select h.lastSeq from ChangeLogHead h where h.id = 1")
+    Long findLastSeq();
+    
+    /**
+     * Lock the head row until the current transaction ends
+     * @return the number of rows locked, 0 if the row does not exist yet
+     */
+    @Modifying
+    @Query(value = "UPDATE change_log_head SET last_seq = last_seq WHERE id = 1", nativeQuery = true)
+    int lock();
+    
+    /**
+     * Create the head row, unless a concurrent transaction just did
+     * @return the number of rows inserted
+     */
+    @Modifying
+    @Query(value = "INSERT INTO change_log_head (id, last_seq) VALUES (1, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int createIfMissing();
+    
+    /**
+     * Move the head to the newest entry of the committing transaction
+     * @param seq the sequence number of that entry
+     * @return the number of rows updated
+     */
+    @Modifying
+    @Query("update ChangeLogHead h set h.lastSeq = :seq where h.id = 1 and h.lastSeq < :seq")
+    int advance(@Param("seq") long seq);
+}
@@ -0,0 +1,67 @@
+package com.fairsplit.repository;
+
+import com.fairsplit.model.ChangeLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+    
+    /**
+     * Find the highest sequence number recorded so far
+     * @return the sequence number, or null if the log is empty
+     */
+    @Query("select max(c.seq) from ChangeLogEntry c")
+    Long findLastSeq();
+    
+    /**
+     * Find the oldest entry still in the log
+     * @return an Optional containing the entry, empty if the log is empty
+     */
+    Optional<ChangeLogEntry> findFirstByOrderBySeqAsc();
+    
+    /**
+     * Find the entries in a range of sequence numbers
+     * @param after entries with a higher sequence number than this are returned
+     * @param upTo and no higher than this
+     * @param pageable limits the number of entries returned
+     * @return the entries in sequence order
+     */
+    @Query("select c from ChangeLogEntry c where c.seq > :after and c.seq <= :upTo order by c.seq")
+    List<ChangeLogEntry> findRange(@Param("after") Long after, @Param("upTo") Long upTo, Pageable pageable);
+    
+    /**
+     * Find the entries of one group in a range of sequence numbers
+     * @param groupId the ID of the group
+     * @param after entries with a higher sequence number than this are returned
+     * @param upTo and no higher than this
+     * @param pageable limits the number of entries returned
+     * @return the entries in sequence order
+     */
+    @Query("select c from ChangeLogEntry c where c.groupId = :groupId and c.seq > :after and c.seq <= :upTo order by c.seq")
+    List<ChangeLogEntry> findGroupRange(@Param("groupId") Long groupId, @Param("after") Long after,
+                                        @Param("upTo") Long upTo, Pageable pageable);
+    
+    /**
+     * Delete a batch of entries older than a cutoff, always keeping the entry with the given
+     * sequence number and those after it
+     * @param cutoff entries recorded before this time are deleted
+     * @param keepFrom the lowest sequence number to keep whatever its age
+     * @param batchSize the maximum number of entries to delete
+     * @return the number of entries deleted, 0 when nothing is left
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM change_log WHERE seq IN (" +
+                   "SELECT seq FROM change_log WHERE changed_at < :cutoff AND seq < :keepFrom ORDER BY seq LIMIT :batchSize)",
+           nativeQuery = true)
+    int deleteOlderThan(@Param("cutoff") Date cutoff, @Param("keepFrom") Long keepFrom, @Param("batchSize") int batchSize);
+}
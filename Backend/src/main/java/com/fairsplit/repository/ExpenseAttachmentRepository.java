@@ -0,0 +1,54 @@
+package com.fairsplit.repository;
+
+import com.fairsplit.model.ExpenseAttachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ExpenseAttachmentRepository extends JpaRepository<ExpenseAttachment, Long> {
+    
+    /**
+     * Find the attachments of an expense, oldest first
+     * @param expenseId the ID of the expense
+     * @return the attachments of the expense
+     */
+    List<ExpenseAttachment> findByExpenseIdOrderByIdAsc(Long expenseId);
+    
+    /**
+     * Find an attachment of a specific expense
+     * @param id the ID of the attachment
+     * @param expenseId the ID of the expense it must belong to
+     * @return an Optional containing the attachment if found
+     */
+    Optional<ExpenseAttachment> findByIdAndExpenseId(Long id, Long expenseId);
+    
+    /**
+     * Count the attachments still referring to a blob
+     * @param sha256 the hex SHA-256 of the blob
+     * @return the number of attachments with that content
+     */
+    long countBySha256(String sha256);
+    
+    /**
+     * Find the distinct blobs attached to an expense
+     * @param expenseId the ID of the expense
+     * @return the hex SHA-256 of each distinct content
+     */
+    @Query("select distinct a.sha256 from ExpenseAttachment a where a.expenseId = :expenseId")
+    List<String> findHashesByExpenseId(@Param("expenseId") Long expenseId);
+    
+    /**
+     * Delete all attachments of an expense in one statement
+     * @param expenseId the ID of the expense
+     * @return the number of attachments deleted
+     */
+    @Modifying
+    @Query("delete from ExpenseAttachment a where a.expenseId = :expenseId")
+    int deleteByExpenseId(@Param("expenseId") Long expenseId);
+}
@@ -1,8 +1,14 @@
 package com.fairsplit.repository;
 
+import com.fairsplit.dto.ActivityItem;
+import com.fairsplit.dto.ExpenseResponse;
 import com.fairsplit.model.Expense;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -54,4 +60,79 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
      * @return a List of expenses in the specified group involving the specified user
      */
     List<Expense> findByGroup_IdAndPayer_IdOrGroup_IdAndAssignedUsers_Id(Long groupId, Long userId, Long groupId2, Long userId2);
+    
+    /**
+     * Find all expenses for a group, as response DTOs without their assigned users
+     * @param groupId the ID of the group
+     * @return the expenses of the group
+     */
+    @Query("select new com.fairsplit.dto.ExpenseResponse(e.id, e.name, e.amount, e.currency, e.category, e.paid, " +
+           "e.splitType, p.id, p.username, p.fullname, g.id, g.name, g.currency, e.createdAt, e.updatedAt) " +
+           "from Expense e join e.payer p join e.group g where g.id = :groupId")
+    List<ExpenseResponse> findResponsesByGroupId(@Param("groupId") Long groupId);
+    
+    /**
+     * Find the assigned users of every expense in a group, to complete findResponsesByGroupId
+     * @param groupId the ID of the group
+     * @return rows of expense ID, user ID, username and full name
+     */
+    @Query("select e.id, u.id, u.username, u.fullname from Expense e join e.assignedUsers u where e.group.id = :groupId")
+    List<Object[]> findAssignedUsersByGroupId(@Param("groupId") Long groupId);
+    
+    /**
+     * Find the expenses of a group that come after a position of its activity feed, as feed items;
+     * a keyset scan of idx_expenses_group_activity
+     * @param groupId the ID of the group
+     * @param before creation time of the last expense already seen
+     * @param beforeId ID of the last expense already seen, breaking ties on the creation time
+     * @param pageable limits the number of items returned
+     * @return the expenses, newest first
+     */
+    @Query("select new com.fairsplit.dto.ActivityItem('EXPENSE', e.id, e.name, e.amount, e.currency, " +
+           "p.id, p.username, p.fullname, e.createdAt) " +
+           "from Expense e join e.payer p where e.group.id = :groupId " +
+           "and (e.createdAt < :before or (e.createdAt = :before and e.id < :beforeId)) " +
+           "order by e.createdAt desc, e.id desc")
+    List<ActivityItem> findActivityByGroupId(@Param("groupId") Long groupId, @Param("before") Date before,
+                                             @Param("beforeId") Long beforeId, Pageable pageable);
+    
+    /**
+     * Find expenses by ID, as response DTOs without their assigned users
+     * @param ids the IDs of the expenses
+     * @return the expenses found
+     */
+    @Query("select new com.fairsplit.dto.ExpenseResponse(e.id, e.name, e.amount, e.currency, e.category, e.paid, " +
+           "e.splitType, p.id, p.username, p.fullname, g.id, g.name, g.currency, e.createdAt, e.updatedAt) " +
+           "from Expense e join e.payer p join e.group g where e.id in :ids")
+    List<ExpenseResponse> findResponsesByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Find the assigned users of the given expenses, to complete findResponsesByIds
+     * @param ids the IDs of the expenses
+     * @return rows of expense ID, user ID, username and full name
+     */
+    @Query("select e.id, u.id, u.username, u.fullname from Expense e join e.assignedUsers u where e.id in :ids")
+    List<Object[]> findAssignedUsersByExpenseIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Sum the expenses a user paid in a group over a period, per expense currency
+     * @param userId the ID of the payer
+     * @param groupId the ID of the group
+     * @param from start of the period, inclusive
+     * @param to end of the period, exclusive
+     * @return rows of currency, number of expenses and total amount
+     */
+    @Query("select e.currency, count(e), sum(e.amount) from Expense e " +
+           "where e.payer.id = :userId and e.group.id = :groupId and e.createdAt >= :from and e.createdAt < :to " +
+           "group by e.currency")
+    List<Object[]> sumPaidByPayerInGroup(@Param("userId") Long userId, @Param("groupId") Long groupId,
+                                         @Param("from") Date from, @Param("to") Date to);
+    
+    /**
+     * Find the group and payer of an expense, without loading it, to lock them before changing it
+     * @param id the ID of the expense
+     * @return one row of group ID and payer ID, or no row if there is no such expense
+     */
+    @Query("select g.id, p.id from Expense e left join e.group g left join e.payer p where e.id = :id")
+    List<Object[]> findPartiesById(@Param("id") Long id);
 }
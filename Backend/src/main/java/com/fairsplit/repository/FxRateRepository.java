@@ -0,0 +1,17 @@
+package com.fairsplit.repository;
+
+import com.fairsplit.model.FxRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface FxRateRepository extends JpaRepository<FxRate, Long> {
+    
+    /**
+     * Find all rates for a specific currency
+     * @param currency the ISO currency code
+     * @return a List of dated rates for the specified currency
+     */
+    List<FxRate> findByCurrency(String currency);
+}
@@ -1,8 +1,13 @@
 package com.fairsplit.repository;
 
+import com.fairsplit.dto.GroupSummary;
 import com.fairsplit.model.Group;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -23,4 +28,45 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
      * @return an Optional containing the group if found
      */
     Optional<Group> findByName(String name);
-}
\ No newline at end of file
+    
+    /**
+     * Find which of the given users are members of a group
+     * @param groupId the ID of the group
+     * @param userIds the IDs of the users to check
+     * @return the IDs among userIds that are members
+     */
+    @Query(value = "SELECT user_id FROM group_user WHERE group_id = :groupId AND user_id IN (:userIds)",
+           nativeQuery = true)
+    List<Long> findMemberIds(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Add users to a group in one statement, skipping those already members
+     * @param groupId the ID of the group
+     * @param userIds the IDs of existing users to add
+     * @return the number of memberships inserted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO group_user (group_id, user_id) SELECT :groupId, u.id FROM users u " +
+                   "WHERE u.id IN (:userIds) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int addMembers(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Remove users from a group in one statement
+     * @param groupId the ID of the group
+     * @param userIds the IDs of the users to remove
+     * @return the number of memberships deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM group_user WHERE group_id = :groupId AND user_id IN (:userIds)",
+           nativeQuery = true)
+    int removeMembers(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Find the groups a user is a member of, as summaries
+     * @param userId the ID of the user
+     * @return the user's groups
+     */
+    @Query("select new com.fairsplit.dto.GroupSummary(g.id, g.name, g.currency) from Group g join g.users u where u.id = :userId")
+    List<GroupSummary> findSummariesByMemberId(@Param("userId") Long userId);
+}
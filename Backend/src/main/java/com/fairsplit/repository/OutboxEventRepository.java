@@ -0,0 +1,25 @@
+package com.fairsplit.repository;
+
+import com.fairsplit.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    /**
+     * Claim a batch of due events for the current transaction. Rows locked by another
+     * dispatcher are skipped rather than waited on, so several nodes can drain the outbox at once.
+     * @param now only events due at or before this time are claimed
+     * @param batchSize the maximum number of events to claim
+     * @return the claimed events, oldest first, locked until the transaction ends
+     */
+    @Query(value = "SELECT * FROM outbox_events WHERE next_attempt_at <= :now " +
+                   "ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("now") Date now, @Param("batchSize") int batchSize);
+}
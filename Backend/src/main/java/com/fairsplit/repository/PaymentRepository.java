@@ -1,14 +1,29 @@
 package com.fairsplit.repository;
 
+import com.fairsplit.dto.ActivityItem;
+import com.fairsplit.dto.DashboardItem;
+import com.fairsplit.dto.PaymentResponse;
 import com.fairsplit.model.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     
+    // Selects only the columns of PaymentResponse, for the find*Responses queries below
+    String RESPONSE_SELECT =
+        "select new com.fairsplit.dto.PaymentResponse(p.id, p.name, p.amount, p.currency, " +
+        "d.id, d.username, d.fullname, t.id, t.username, t.fullname, " +
+        "g.id, g.name, g.currency, p.request.id, p.createdAt, p.updatedAt) " +
+        "from Payment p join p.debtor d join p.debtee t left join p.group g ";
+    
     /**
      * Find all payments made by a specific debtor
      * @param userId the ID of the debtor
@@ -44,4 +59,118 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
      * @return a List of payments between the specified debtor and debtee
      */
     List<Payment> findByDebtor_IdAndDebtee_Id(Long debtorId, Long debteeId);
+    
+    /**
+     * Count the payments made by a specific debtor
+     * @param userId the ID of the debtor
+     * @return the number of payments made by the debtor
+     */
+    long countByDebtor_Id(Long userId);
+    
+    /**
+     * Count the payments received by a specific debtee
+     * @param userId the ID of the debtee
+     * @return the number of payments received by the debtee
+     */
+    long countByDebtee_Id(Long userId);
+    
+    /**
+     * Find the most recent payments made by a user, as flat dashboard items
+     * @param userId the ID of the debtor
+     * @param pageable limits the number of items returned
+     * @return the newest payments, the counterparty being the debtee
+     */
+    @Query("select new com.fairsplit.dto.DashboardItem(p.id, p.amount, p.currency, d.id, d.username, g.id, g.name, p.name, true, p.createdAt) " +
+           "from Payment p join p.debtee d left join p.group g " +
+           "where p.debtor.id = :userId " +
+           "order by p.createdAt desc")
+    List<DashboardItem> findRecentByDebtor(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * Find the most recent payments received by a user, as flat dashboard items
+     * @param userId the ID of the debtee
+     * @param pageable limits the number of items returned
+     * @return the newest payments, the counterparty being the debtor
+     */
+    @Query("select new com.fairsplit.dto.DashboardItem(p.id, p.amount, p.currency, d.id, d.username, g.id, g.name, p.name, true, p.createdAt) " +
+           "from Payment p join p.debtor d left join p.group g " +
+           "where p.debtee.id = :userId " +
+           "order by p.createdAt desc")
+    List<DashboardItem> findRecentByDebtee(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * Find all payments made by a user, as response DTOs
+     * @param userId the ID of the debtor
+     * @return the payments made by the user
+     */
+    @Query(RESPONSE_SELECT + "where d.id = :userId")
+    List<PaymentResponse> findResponsesByDebtorId(@Param("userId") Long userId);
+    
+    /**
+     * Find all payments received by a user, as response DTOs
+     * @param userId the ID of the debtee
+     * @return the payments received by the user
+     */
+    @Query(RESPONSE_SELECT + "where t.id = :userId")
+    List<PaymentResponse> findResponsesByDebteeId(@Param("userId") Long userId);
+    
+    /**
+     * Find all payments in a group, as response DTOs
+     * @param groupId the ID of the group
+     * @return the payments of the group
+     */
+    @Query(RESPONSE_SELECT + "where g.id = :groupId")
+    List<PaymentResponse> findResponsesByGroupId(@Param("groupId") Long groupId);
+    
+    /**
+     * Find the payments of a group that come after a position of its activity feed, as feed items;
+     * a keyset scan of idx_payments_group_activity
+     * @param groupId the ID of the group
+     * @param before creation time of the last payment already seen
+     * @param beforeId ID of the last payment already seen, breaking ties on the creation time
+     * @param pageable limits the number of items returned
+     * @return the payments, newest first
+     */
+    @Query("select new com.fairsplit.dto.ActivityItem('PAYMENT', p.id, p.name, p.amount, p.currency, " +
+           "d.id, d.username, d.fullname, t.id, t.username, t.fullname, p.createdAt) " +
+           "from Payment p join p.debtor d join p.debtee t where p.group.id = :groupId " +
+           "and (p.createdAt < :before or (p.createdAt = :before and p.id < :beforeId)) " +
+           "order by p.createdAt desc, p.id desc")
+    List<ActivityItem> findActivityByGroupId(@Param("groupId") Long groupId, @Param("before") Date before,
+                                             @Param("beforeId") Long beforeId, Pageable pageable);
+    
+    /**
+     * Find payments by ID, as response DTOs
+     * @param ids the IDs of the payments
+     * @return the payments found
+     */
+    @Query(RESPONSE_SELECT + "where p.id in :ids")
+    List<PaymentResponse> findResponsesByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Sum the payments a user made and received in a group over a period, per payment currency
+     * @param userId the ID of the user, as debtor or debtee
+     * @param groupId the ID of the group
+     * @param from start of the period, inclusive
+     * @param to end of the period, exclusive
+     * @return rows of currency, total paid and total received
+     */
+    @Query("select p.currency, sum(case when p.debtor.id = :userId then p.amount else 0.0 end), " +
+           "sum(case when p.debtee.id = :userId then p.amount else 0.0 end) " +
+           "from Payment p " +
+           "where p.group.id = :groupId and (p.debtor.id = :userId or p.debtee.id = :userId) " +
+           "and p.createdAt >= :from and p.createdAt < :to " +
+           "group by p.currency")
+    List<Object[]> sumByUserInGroup(@Param("userId") Long userId, @Param("groupId") Long groupId,
+                                    @Param("from") Date from, @Param("to") Date to);
+    
+    /**
+     * Find who a payment is between, without loading it, to lock them before changing it
+     * @param id the ID of the payment
+     * @return one row of the group ID (that of its request if it has none), debtor ID and debtee ID,
+     *         or no row if there is no such payment
+     */
+    @Query("select coalesce(g.id, rg.id), p.debtor.id, p.debtee.id from Payment p " +
+           "left join p.group g left join p.request r left join r.group rg where p.id = :id")
+    List<Object[]> findPartiesById(@Param("id") Long id);
 }
@@ -1,13 +1,31 @@
 package com.fairsplit.repository;
 
+import com.fairsplit.dto.ActivityItem;
+import com.fairsplit.dto.DashboardItem;
+import com.fairsplit.dto.GroupBalance;
+import com.fairsplit.dto.RequestResponse;
 import com.fairsplit.model.Request;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Repository
 public interface RequestRepository extends JpaRepository<Request, Long> {
     
+    // Selects only the columns of RequestResponse, for the find*Responses queries below
+    String RESPONSE_SELECT =
+        "select new com.fairsplit.dto.RequestResponse(r.id, r.amount, r.isFulfilled, " +
+        "e.id, e.name, e.category, d.id, d.username, d.fullname, t.id, t.username, t.fullname, " +
+        "g.id, g.name, g.currency, r.createdAt, r.updatedAt) " +
+        "from Request r join r.debtor d join r.debtee t left join r.expense e left join r.group g ";
+    
     /**
      * Find all requests for a specific expense
      * @param expenseId the ID of the expense to get requests for
@@ -37,11 +55,13 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
     List<Request> findByGroup_Id(Long groupId);
     
     /**
-     * Find all unfulfilled requests for a specific debtor
+     * Find all unfulfilled requests for a specific debtor.
+     * Unfulfilled requests are never archived, so only the hot partitions are scanned.
      * @param userId the ID of the debtor
      * @return a List of unfulfilled requests for the specified debtor
      */
-    List<Request> findByDebtor_IdAndIsFulfilledFalse(Long userId);
+    @Query("select r from Request r where r.debtor.id = :userId and r.isFulfilled = false and r.archived = false")
+    List<Request> findByDebtor_IdAndIsFulfilledFalse(@Param("userId") Long userId);
     
     /**
      * Find all fulfilled requests for a specific debtor
@@ -51,9 +71,173 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
     List<Request> findByDebtor_IdAndIsFulfilledTrue(Long userId);
     
     /**
-     * Find all unfulfilled requests in a specific group
+     * Find all unfulfilled requests in a specific group.
+     * Unfulfilled requests are never archived, so only the hot partitions are scanned.
      * @param groupId the ID of the group
      * @return a List of unfulfilled requests in the specified group
      */
-    List<Request> findByGroup_IdAndIsFulfilledFalse(Long groupId);
+    @Query("select r from Request r where r.group.id = :groupId and r.isFulfilled = false and r.archived = false")
+    List<Request> findByGroup_IdAndIsFulfilledFalse(@Param("groupId") Long groupId);
+    
+    /**
+     * Sum the unfulfilled requests a user owes and is owed, grouped by group
+     * @param userId the ID of the user, as debtor or debtee
+     * @return one GroupBalance per group with outstanding requests involving the user
+     */
+    @Query("select new com.fairsplit.dto.GroupBalance(g.id, g.name, g.currency, " +
+           "sum(case when r.debtor.id = :userId then r.amount else 0.0 end), " +
+           "sum(case when r.debtee.id = :userId then r.amount else 0.0 end), " +
+           "sum(case when r.debtor.id = :userId then 1L else 0L end), " +
+           "sum(case when r.debtee.id = :userId then 1L else 0L end)) " +
+           "from Request r left join r.group g " +
+           "where (r.debtor.id = :userId or r.debtee.id = :userId) and r.isFulfilled = false and r.archived = false " +
+           "group by g.id, g.name")
+    List<GroupBalance> sumOutstandingByGroup(@Param("userId") Long userId);
+    
+    /**
+     * Find the most recent unfulfilled requests a user owes, as flat dashboard items
+     * @param userId the ID of the debtor
+     * @param pageable limits the number of items returned
+     * @return the newest unfulfilled requests, the counterparty being the debtee
+     */
+    @Query("select new com.fairsplit.dto.DashboardItem(r.id, r.amount, g.currency, d.id, d.username, g.id, g.name, e.name, r.isFulfilled, r.createdAt) " +
+           "from Request r join r.debtee d left join r.group g left join r.expense e " +
+           "where r.debtor.id = :userId and r.isFulfilled = false and r.archived = false " +
+           "order by r.createdAt desc")
+    List<DashboardItem> findRecentUnfulfilledByDebtor(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * Find the most recent unfulfilled requests owed to a user, as flat dashboard items
+     * @param userId the ID of the debtee
+     * @param pageable limits the number of items returned
+     * @return the newest unfulfilled requests, the counterparty being the debtor
+     */
+    @Query("select new com.fairsplit.dto.DashboardItem(r.id, r.amount, g.currency, d.id, d.username, g.id, g.name, e.name, r.isFulfilled, r.createdAt) " +
+           "from Request r join r.debtor d left join r.group g left join r.expense e " +
+           "where r.debtee.id = :userId and r.isFulfilled = false and r.archived = false " +
+           "order by r.createdAt desc")
+    List<DashboardItem> findRecentUnfulfilledByDebtee(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * Move one batch of old fulfilled requests to the archive partitions
+     * @param cutoff requests created before this date are archived
+     * @param batchSize the maximum number of requests to move
+     * @return the number of requests archived, 0 when nothing is left
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE requests SET archived = true WHERE (id, archived, created_at) IN (" +
+                   "SELECT id, archived, created_at FROM requests " +
+                   "WHERE archived = false AND is_fulfilled = true AND created_at < :cutoff LIMIT :batchSize)",
+           nativeQuery = true)
+    int archiveFulfilledBefore(@Param("cutoff") Date cutoff, @Param("batchSize") int batchSize);
+    
+    /**
+     * Find all requests for a specific expense, as response DTOs
+     * @param expenseId the ID of the expense
+     * @return the requests of the expense
+     */
+    @Query(RESPONSE_SELECT + "where e.id = :expenseId")
+    List<RequestResponse> findResponsesByExpenseId(@Param("expenseId") Long expenseId);
+    
+    /**
+     * Find all requests where a user is the debtor, as response DTOs
+     * @param userId the ID of the debtor
+     * @return the requests owed by the user
+     */
+    @Query(RESPONSE_SELECT + "where d.id = :userId")
+    List<RequestResponse> findResponsesByDebtorId(@Param("userId") Long userId);
+    
+    /**
+     * Find the unfulfilled requests where a user is the debtor, as response DTOs
+     * @param userId the ID of the debtor
+     * @return the open requests owed by the user
+     */
+    @Query(RESPONSE_SELECT + "where d.id = :userId and r.isFulfilled = false and r.archived = false")
+    List<RequestResponse> findUnfulfilledResponsesByDebtorId(@Param("userId") Long userId);
+    
+    /**
+     * Find all requests where a user is the debtee, as response DTOs
+     * @param userId the ID of the debtee
+     * @return the requests owed to the user
+     */
+    @Query(RESPONSE_SELECT + "where t.id = :userId")
+    List<RequestResponse> findResponsesByDebteeId(@Param("userId") Long userId);
+    
+    /**
+     * Find all requests in a group, as response DTOs
+     * @param groupId the ID of the group
+     * @return the requests of the group
+     */
+    @Query(RESPONSE_SELECT + "where g.id = :groupId")
+    List<RequestResponse> findResponsesByGroupId(@Param("groupId") Long groupId);
+    
+    /**
+     * Find the unfulfilled requests in a group, as response DTOs
+     * @param groupId the ID of the group
+     * @return the open requests of the group
+     */
+    @Query(RESPONSE_SELECT + "where g.id = :groupId and r.isFulfilled = false and r.archived = false")
+    List<RequestResponse> findUnfulfilledResponsesByGroupId(@Param("groupId") Long groupId);
+    
+    /**
+     * Find the requests of a group, archived ones included, that come after a position of its
+     * activity feed, as feed items; a keyset scan of idx_requests_group_activity
+     * @param groupId the ID of the group
+     * @param before creation time of the last request already seen
+     * @param beforeId ID of the last request already seen, breaking ties on the creation time
+     * @param pageable limits the number of items returned
+     * @return the requests, newest first
+     */
+    @Query("select new com.fairsplit.dto.ActivityItem('REQUEST', r.id, e.name, r.amount, g.currency, " +
+           "d.id, d.username, d.fullname, t.id, t.username, t.fullname, r.isFulfilled, r.createdAt) " +
+           "from Request r join r.debtor d join r.debtee t join r.group g left join r.expense e " +
+           "where g.id = :groupId " +
+           "and (r.createdAt < :before or (r.createdAt = :before and r.id < :beforeId)) " +
+           "order by r.createdAt desc, r.id desc")
+    List<ActivityItem> findActivityByGroupId(@Param("groupId") Long groupId, @Param("before") Date before,
+                                             @Param("beforeId") Long beforeId, Pageable pageable);
+    
+    /**
+     * Find requests by ID, as response DTOs
+     * @param ids the IDs of the requests
+     * @return the requests found
+     */
+    @Query(RESPONSE_SELECT + "where r.id in :ids")
+    List<RequestResponse> findResponsesByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Sum the requests a user owes and is owed in a group over a period, archived ones included
+     * @param userId the ID of the user, as debtor or debtee
+     * @param groupId the ID of the group
+     * @param from start of the period, inclusive
+     * @param to end of the period, exclusive
+     * @return one row of the totals owed, owed and still open, owed to the user, and owed to the
+     *         user and still open, in the group currency; null totals if there are no requests
+     */
+    @Query("select sum(case when r.debtor.id = :userId then r.amount else 0.0 end), " +
+           "sum(case when r.debtor.id = :userId and r.isFulfilled = false then r.amount else 0.0 end), " +
+           "sum(case when r.debtee.id = :userId then r.amount else 0.0 end), " +
+           "sum(case when r.debtee.id = :userId and r.isFulfilled = false then r.amount else 0.0 end) " +
+           "from Request r " +
+           "where r.group.id = :groupId and (r.debtor.id = :userId or r.debtee.id = :userId) " +
+           "and r.createdAt >= :from and r.createdAt < :to")
+    List<Object[]> sumByUserInGroup(@Param("userId") Long userId, @Param("groupId") Long groupId,
+                                    @Param("from") Date from, @Param("to") Date to);
+    
+    /**
+     * Find who a request is between, without loading it, to lock them before changing it
+     * @param id the ID of the request
+     * @return one row of group ID, debtor ID and debtee ID, or no row if there is no such request
+     */
+    @Query("select g.id, r.debtor.id, r.debtee.id from Request r left join r.group g where r.id = :id")
+    List<Object[]> findPartiesById(@Param("id") Long id);
+    
+    /**
+     * Find who the requests of an expense are between, without loading them, to lock them before deleting the expense
+     * @param expenseId the ID of the expense
+     * @return rows of debtor ID and debtee ID
+     */
+    @Query("select r.debtor.id, r.debtee.id from Request r where r.expense.id = :expenseId")
+    List<Object[]> findPartiesByExpenseId(@Param("expenseId") Long expenseId);
 }
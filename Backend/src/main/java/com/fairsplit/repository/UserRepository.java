@@ -1,10 +1,17 @@
 package com.fairsplit.repository;
 
+import com.fairsplit.dto.UserResponse;
 import com.fairsplit.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     // the findById, existsById, deleteById are default implemented by springboot
@@ -24,6 +31,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     boolean existsByUsername(String username);
 
+    /**
+     * Stream every username, fetched in chunks; must be consumed and closed inside a transaction
+     * @return a Stream of all usernames
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.username from User u")
+    Stream<String> streamAllUsernames();
+
     /**
      * Delete by username
      * @param username the username to delete
@@ -37,4 +52,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return a List of users that are members of the specified group
      */
     List<User> findByGroups_Id(Long groupId);
+    
+    /**
+     * Find all users, as response DTOs
+     * @return every user without password
+     */
+    @Query("select new com.fairsplit.dto.UserResponse(u.id, u.username, u.fullname, u.amount, u.isActive, u.createdAt, u.updatedAt) " +
+           "from User u")
+    List<UserResponse> findAllResponses();
+    
+    /**
+     * Find the members of a group, as response DTOs
+     * @param groupId the ID of the group
+     * @return the members of the group without password
+     */
+    @Query("select new com.fairsplit.dto.UserResponse(u.id, u.username, u.fullname, u.amount, u.isActive, u.createdAt, u.updatedAt) " +
+           "from Group g join g.users u where g.id = :groupId")
+    List<UserResponse> findResponsesByGroupId(@Param("groupId") Long groupId);
 }
@@ -0,0 +1,59 @@
+package com.fairsplit.repository;
+
+import com.fairsplit.model.UserTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface UserTotalRepository extends JpaRepository<UserTotal, Long> {
+    
+    /**
+     * Find a user's totals, one per currency they have open requests in or had before
+     * @param userId the ID of the user
+     * @return the totals ordered by currency
+     */
+    List<UserTotal> findByUserIdOrderByCurrency(Long userId);
+    
+    /**
+     * Add to a user's totals in one currency, in place so concurrent changes don't overwrite each other
+     * @param userId the ID of the user
+     * @param currency the settlement currency
+     * @param owingCents change in what the user owes, in cents
+     * @param owedCents change in what the user is owed, in cents
+     * @param openRequestsOwing change in the number of open requests the user owes
+     * @param openRequestsOwed change in the number of open requests the user is owed
+     * @return the number of rows updated, 0 if the user has no totals in that currency yet
+     */
+    @Modifying
+    @Query("update UserTotal t set t.owingCents = t.owingCents + :owingCents, t.owedCents = t.owedCents + :owedCents, " +
+           "t.openRequestsOwing = t.openRequestsOwing + :openRequestsOwing, t.openRequestsOwed = t.openRequestsOwed + :openRequestsOwed " +
+           "where t.userId = :userId and t.currency = :currency")
+    int add(@Param("userId") Long userId, @Param("currency") String currency,
+            @Param("owingCents") long owingCents, @Param("owedCents") long owedCents,
+            @Param("openRequestsOwing") long openRequestsOwing, @Param("openRequestsOwed") long openRequestsOwed);
+    
+    /**
+     * Create a user's zero totals in a currency, unless a concurrent transaction just did
+     * @param userId the ID of the user
+     * @param currency the settlement currency
+     * @return the number of rows inserted
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_totals (user_id, currency, owing_cents, owed_cents, open_requests_owing, open_requests_owed) " +
+                   "VALUES (:userId, :currency, 0, 0, 0, 0) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int createIfMissing(@Param("userId") Long userId, @Param("currency") String currency);
+    
+    /**
+     * Delete the totals of a user, so the user can be deleted
+     * @param userId the ID of the user
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Query("delete from UserTotal t where t.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,77 @@
+package com.fairsplit.repository.memory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Secondary index from a foreign key, e.g. a group ID, to the IDs of the entities
+ * that reference it, kept in ID order. An entity may be under several keys, as an
+ * expense is under each of its assigned users.
+ */
+final class EntityIndex<T> {
+    
+    private final Function<T, Collection<Long>> keys;
+    private final Map<Long, NavigableSet<Long>> idsByKey = new ConcurrentHashMap<>();
+    private final Map<Long, Collection<Long>> keysById = new ConcurrentHashMap<>();
+    
+    EntityIndex(Function<T, Collection<Long>> keys) {
+        this.keys = keys;
+    }
+    
+    /**
+     * Index an entity by a single reference, which may be null
+     */
+    static <T> EntityIndex<T> single(Function<T, Long> key) {
+        return new EntityIndex<>(entity -> {
+            Long value = key.apply(entity);
+            return value == null ? List.of() : List.of(value);
+        });
+    }
+    
+    void put(Long id, T entity) {
+        Collection<Long> current = Set.copyOf(keys.apply(entity));
+        Collection<Long> previous = keysById.put(id, current);
+        if (previous != null) {
+            for (Long key : previous) {
+                if (!current.contains(key)) {
+                    removeFrom(key, id);
+                }
+            }
+        }
+        for (Long key : current) {
+            idsByKey.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(id);
+        }
+    }
+    
+    void remove(Long id) {
+        Collection<Long> previous = keysById.remove(id);
+        if (previous != null) {
+            for (Long key : previous) {
+                removeFrom(key, id);
+            }
+        }
+    }
+    
+    Set<Long> get(Long key) {
+        NavigableSet<Long> ids = key == null ? null : idsByKey.get(key);
+        return ids == null ? Set.of() : ids;
+    }
+    
+    void clear() {
+        idsByKey.clear();
+        keysById.clear();
+    }
+    
+    private void removeFrom(Long key, Long id) {
+        idsByKey.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
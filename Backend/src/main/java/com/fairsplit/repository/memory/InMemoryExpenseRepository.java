@@ -0,0 +1,186 @@
+package com.fairsplit.repository.memory;
+
+import com.fairsplit.dto.ActivityItem;
+import com.fairsplit.dto.ExpenseResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.model.Expense;
+import com.fairsplit.model.Group;
+import com.fairsplit.model.User;
+import com.fairsplit.repository.ExpenseRepository;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "fairsplit.persistence", havingValue = "memory")
+public class InMemoryExpenseRepository extends InMemoryRepository<Expense> implements ExpenseRepository {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    private final EntityIndex<Expense> byGroup = index(EntityIndex.single(expense -> idOf(expense.getGroup())));
+    private final EntityIndex<Expense> byPayer = index(EntityIndex.single(expense -> idOf(expense.getPayer())));
+    private final EntityIndex<Expense> byAssignedUser = index(new EntityIndex<>(expense -> {
+        List<Long> ids = new ArrayList<>();
+        if (expense.getAssignedUsers() != null) {
+            for (User user : expense.getAssignedUsers()) {
+                ids.add(user.getId());
+            }
+        }
+        return ids;
+    }));
+    
+    @Override
+    protected Long getId(Expense expense) {
+        return expense.getId();
+    }
+    
+    @Override
+    protected void setId(Expense expense, Long id) {
+        expense.setId(id);
+    }
+    
+    @Override
+    protected void prepare(Expense expense) {
+        expense.setPayer(resolve(expense.getPayer(), User::getId, userRepository));
+        expense.setGroup(resolve(expense.getGroup(), Group::getId, groupRepository));
+        List<User> assignedUsers = new CopyOnWriteArrayList<>();
+        if (expense.getAssignedUsers() != null) {
+            for (User user : expense.getAssignedUsers()) {
+                assignedUsers.add(resolve(user, User::getId, userRepository));
+            }
+        }
+        expense.setAssignedUsers(assignedUsers);
+    }
+    
+    @Override
+    public List<Expense> findByGroup_Id(Long groupId) {
+        return byIndex(byGroup, groupId).toList();
+    }
+    
+    @Override
+    public List<Expense> findByPayer_Id(Long userId) {
+        return byIndex(byPayer, userId).toList();
+    }
+    
+    @Override
+    public List<Expense> findByAssignedUsers_Id(Long userId) {
+        return byIndex(byAssignedUser, userId).toList();
+    }
+    
+    @Override
+    public List<Expense> findByGroup_IdAndCategory(Long groupId, String category) {
+        return byIndex(byGroup, groupId).filter(expense -> Objects.equals(category, expense.getCategory())).toList();
+    }
+    
+    @Override
+    public List<Expense> findByGroup_IdAndCreatedAtBetween(Long groupId, Date startDate, Date endDate) {
+        return byIndex(byGroup, groupId)
+            .filter(expense -> !expense.getCreatedAt().before(startDate) && !expense.getCreatedAt().after(endDate))
+            .toList();
+    }
+    
+    @Override
+    public List<Expense> findByGroup_IdAndPayer_IdOrGroup_IdAndAssignedUsers_Id(Long groupId, Long userId, Long groupId2, Long userId2) {
+        // Union of the two index lookups, each narrowed to its group, without duplicates
+        Set<Long> ids = new LinkedHashSet<>();
+        byIndex(byPayer, userId).filter(expense -> Objects.equals(groupId, idOf(expense.getGroup())))
+            .forEach(expense -> ids.add(expense.getId()));
+        byIndex(byAssignedUser, userId2).filter(expense -> Objects.equals(groupId2, idOf(expense.getGroup())))
+            .forEach(expense -> ids.add(expense.getId()));
+        return byIds(ids.stream().sorted().toList()).toList();
+    }
+    
+    @Override
+    public List<ExpenseResponse> findResponsesByGroupId(Long groupId) {
+        return groupExpenses(groupId).map(ResponseMapper::toResponse).toList();
+    }
+    
+    @Override
+    public List<Object[]> findAssignedUsersByGroupId(Long groupId) {
+        List<Object[]> rows = new ArrayList<>();
+        byIndex(byGroup, groupId).forEach(expense -> {
+            for (User user : expense.getAssignedUsers()) {
+                rows.add(new Object[] {expense.getId(), user.getId(), user.getUsername(), user.getFullname()});
+            }
+        });
+        return rows;
+    }
+    
+    @Override
+    public List<ActivityItem> findActivityByGroupId(Long groupId, Date before, Long beforeId, Pageable pageable) {
+        return page(newestBefore(groupExpenses(groupId), Expense::getCreatedAt, Expense::getId, before, beforeId)
+            .map(ResponseMapper::toActivity)
+            .toList(), pageable);
+    }
+    
+    @Override
+    public List<ExpenseResponse> findResponsesByIds(Collection<Long> ids) {
+        return byIds(ids).filter(expense -> expense.getPayer() != null && expense.getGroup() != null)
+            .map(ResponseMapper::toResponse)
+            .toList();
+    }
+    
+    @Override
+    public List<Object[]> findAssignedUsersByExpenseIds(Collection<Long> ids) {
+        List<Object[]> rows = new ArrayList<>();
+        byIds(ids).forEach(expense -> {
+            for (User user : expense.getAssignedUsers()) {
+                rows.add(new Object[] {expense.getId(), user.getId(), user.getUsername(), user.getFullname()});
+            }
+        });
+        return rows;
+    }
+    
+    @Override
+    public List<Object[]> sumPaidByPayerInGroup(Long userId, Long groupId, Date from, Date to) {
+        Map<String, Object[]> totals = new LinkedHashMap<>();
+        byIndex(byPayer, userId)
+            .filter(expense -> Objects.equals(groupId, idOf(expense.getGroup())))
+            .filter(expense -> !expense.getCreatedAt().before(from) && expense.getCreatedAt().before(to))
+            .forEach(expense -> {
+                Object[] row = totals.computeIfAbsent(expense.getCurrency(), currency -> new Object[] {currency, 0L, 0.0});
+                row[1] = (Long) row[1] + 1;
+                row[2] = (Double) row[2] + expense.getAmount();
+            });
+        return new ArrayList<>(totals.values());
+    }
+    
+    @Override
+    public List<Object[]> findPartiesById(Long id) {
+        List<Object[]> rows = new ArrayList<>();
+        findById(id).ifPresent(expense -> rows.add(new Object[] {idOf(expense.getGroup()), idOf(expense.getPayer())}));
+        return rows;
+    }
+    
+    // The projection inner-joins the payer and group
+    private Stream<Expense> groupExpenses(Long groupId) {
+        return byIndex(byGroup, groupId).filter(expense -> expense.getPayer() != null);
+    }
+    
+    static Long idOf(User user) {
+        return user == null ? null : user.getId();
+    }
+    
+    static Long idOf(Group group) {
+        return group == null ? null : group.getId();
+    }
+}
@@ -0,0 +1,121 @@
+package com.fairsplit.repository.memory;
+
+import com.fairsplit.dto.GroupSummary;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.model.Group;
+import com.fairsplit.model.User;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Repository
+@ConditionalOnProperty(name = "fairsplit.persistence", havingValue = "memory")
+public class InMemoryGroupRepository extends InMemoryRepository<Group> implements GroupRepository {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Override
+    protected Long getId(Group group) {
+        return group.getId();
+    }
+    
+    @Override
+    protected void setId(Group group, Long id) {
+        group.setId(id);
+    }
+    
+    @Override
+    protected void prepare(Group group) {
+        // Members are shared with concurrent readers, keep them in a list safe to iterate while it changes
+        List<User> members = new CopyOnWriteArrayList<>();
+        if (group.getUsers() != null) {
+            Set<Long> seen = new HashSet<>();
+            for (User user : group.getUsers()) {
+                User member = resolve(user, User::getId, userRepository);
+                if (member.getId() == null || seen.add(member.getId())) {
+                    members.add(member);
+                }
+            }
+        }
+        group.setUsers(members);
+    }
+    
+    @Override
+    public List<Group> findByIsActive(boolean isActive) {
+        return where(group -> group.isActive() == isActive);
+    }
+    
+    @Override
+    public Optional<Group> findByName(String name) {
+        return entities.values().stream().filter(group -> name != null && name.equals(group.getName())).findFirst();
+    }
+    
+    @Override
+    public List<Long> findMemberIds(Long groupId, Collection<Long> userIds) {
+        List<Long> memberIds = new ArrayList<>();
+        findById(groupId).ifPresent(group -> {
+            for (User user : group.getUsers()) {
+                if (userIds.contains(user.getId())) {
+                    memberIds.add(user.getId());
+                }
+            }
+        });
+        return memberIds;
+    }
+    
+    @Override
+    public List<GroupSummary> findSummariesByMemberId(Long userId) {
+        return where(group -> group.getUsers().stream().anyMatch(user -> userId.equals(user.getId()))).stream()
+            .map(ResponseMapper::toSummary)
+            .toList();
+    }
+    
+    @Override
+    public int addMembers(Long groupId, Collection<Long> userIds) {
+        Group group = findById(groupId).orElse(null);
+        if (group == null) {
+            return 0;
+        }
+        int added = 0;
+        // One membership per user, as the group_user primary key enforces
+        synchronized (group) {
+            Set<Long> memberIds = new HashSet<>(findMemberIds(groupId, userIds));
+            for (User user : userRepository.findAllById(userIds)) {
+                if (memberIds.add(user.getId())) {
+                    group.addUser(user);
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+    
+    @Override
+    public int removeMembers(Long groupId, Collection<Long> userIds) {
+        Group group = findById(groupId).orElse(null);
+        if (group == null) {
+            return 0;
+        }
+        int removed = 0;
+        synchronized (group) {
+            for (User user : new ArrayList<>(group.getUsers())) {
+                if (userIds.contains(user.getId())) {
+                    group.removeUser(user);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+}
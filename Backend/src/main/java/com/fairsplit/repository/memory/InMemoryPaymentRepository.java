@@ -0,0 +1,192 @@
+package com.fairsplit.repository.memory;
+
+import com.fairsplit.dto.ActivityItem;
+import com.fairsplit.dto.DashboardItem;
+import com.fairsplit.dto.PaymentResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.model.Group;
+import com.fairsplit.model.Payment;
+import com.fairsplit.model.Request;
+import com.fairsplit.model.User;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.PaymentRepository;
+import com.fairsplit.repository.RequestRepository;
+import com.fairsplit.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.fairsplit.repository.memory.InMemoryExpenseRepository.idOf;
+
+@Repository
+@ConditionalOnProperty(name = "fairsplit.persistence", havingValue = "memory")
+public class InMemoryPaymentRepository extends InMemoryRepository<Payment> implements PaymentRepository {
+    
+    @Autowired
+    private RequestRepository requestRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    private final EntityIndex<Payment> byDebtor = index(EntityIndex.single(payment -> idOf(payment.getDebtor())));
+    private final EntityIndex<Payment> byDebtee = index(EntityIndex.single(payment -> idOf(payment.getDebtee())));
+    private final EntityIndex<Payment> byGroup = index(EntityIndex.single(payment -> idOf(payment.getGroup())));
+    private final EntityIndex<Payment> byRequest = index(EntityIndex.single(payment ->
+        payment.getRequest() == null ? null : payment.getRequest().getId()));
+    
+    @Override
+    protected Long getId(Payment payment) {
+        return payment.getId();
+    }
+    
+    @Override
+    protected void setId(Payment payment, Long id) {
+        payment.setId(id);
+    }
+    
+    @Override
+    protected void prepare(Payment payment) {
+        payment.setRequest(resolve(payment.getRequest(), Request::getId, requestRepository));
+        payment.setDebtor(resolve(payment.getDebtor(), User::getId, userRepository));
+        payment.setDebtee(resolve(payment.getDebtee(), User::getId, userRepository));
+        payment.setGroup(resolve(payment.getGroup(), Group::getId, groupRepository));
+    }
+    
+    @Override
+    public List<Payment> findByDebtor_Id(Long userId) {
+        return byIndex(byDebtor, userId).toList();
+    }
+    
+    @Override
+    public List<Payment> findByDebtee_Id(Long userId) {
+        return byIndex(byDebtee, userId).toList();
+    }
+    
+    @Override
+    public List<Payment> findByGroup_Id(Long groupId) {
+        return byIndex(byGroup, groupId).toList();
+    }
+    
+    @Override
+    public Optional<Payment> findByRequest_Id(Long requestId) {
+        return byIndex(byRequest, requestId).findFirst();
+    }
+    
+    @Override
+    public List<Payment> findByDebtor_IdAndDebtee_Id(Long debtorId, Long debteeId) {
+        return byIndex(byDebtor, debtorId).filter(payment -> Objects.equals(debteeId, idOf(payment.getDebtee()))).toList();
+    }
+    
+    @Override
+    public long countByDebtor_Id(Long userId) {
+        return byDebtor.get(userId).size();
+    }
+    
+    @Override
+    public long countByDebtee_Id(Long userId) {
+        return byDebtee.get(userId).size();
+    }
+    
+    @Override
+    public List<DashboardItem> findRecentByDebtor(Long userId, Pageable pageable) {
+        return recent(byIndex(byDebtor, userId), Payment::getDebtee, pageable);
+    }
+    
+    @Override
+    public List<DashboardItem> findRecentByDebtee(Long userId, Pageable pageable) {
+        return recent(byIndex(byDebtee, userId), Payment::getDebtor, pageable);
+    }
+    
+    @Override
+    public List<PaymentResponse> findResponsesByDebtorId(Long userId) {
+        return responses(byIndex(byDebtor, userId));
+    }
+    
+    @Override
+    public List<PaymentResponse> findResponsesByDebteeId(Long userId) {
+        return responses(byIndex(byDebtee, userId));
+    }
+    
+    @Override
+    public List<PaymentResponse> findResponsesByGroupId(Long groupId) {
+        return responses(byIndex(byGroup, groupId));
+    }
+    
+    @Override
+    public List<ActivityItem> findActivityByGroupId(Long groupId, Date before, Long beforeId, Pageable pageable) {
+        return page(newestBefore(byIndex(byGroup, groupId), Payment::getCreatedAt, Payment::getId, before, beforeId)
+            .filter(payment -> payment.getDebtor() != null && payment.getDebtee() != null)
+            .map(ResponseMapper::toActivity)
+            .toList(), pageable);
+    }
+    
+    @Override
+    public List<PaymentResponse> findResponsesByIds(Collection<Long> ids) {
+        return responses(byIds(ids));
+    }
+    
+    @Override
+    public List<Object[]> sumByUserInGroup(Long userId, Long groupId, Date from, Date to) {
+        Map<String, Object[]> totals = new LinkedHashMap<>();
+        byIndex(byGroup, groupId)
+            .filter(payment -> !payment.getCreatedAt().before(from) && payment.getCreatedAt().before(to))
+            .forEach(payment -> {
+                boolean paid = Objects.equals(userId, idOf(payment.getDebtor()));
+                boolean received = Objects.equals(userId, idOf(payment.getDebtee()));
+                if (paid || received) {
+                    Object[] row = totals.computeIfAbsent(payment.getCurrency(), currency -> new Object[] {currency, 0.0, 0.0});
+                    row[1] = (Double) row[1] + (paid ? payment.getAmount() : 0);
+                    row[2] = (Double) row[2] + (received ? payment.getAmount() : 0);
+                }
+            });
+        return new ArrayList<>(totals.values());
+    }
+    
+    // The projections inner-join the debtor and debtee
+    private static List<PaymentResponse> responses(Stream<Payment> payments) {
+        return payments.filter(payment -> payment.getDebtor() != null && payment.getDebtee() != null)
+            .map(ResponseMapper::toResponse)
+            .toList();
+    }
+    
+    private static List<DashboardItem> recent(Stream<Payment> payments, Function<Payment, User> counterparty, Pageable pageable) {
+        List<DashboardItem> items = payments.filter(payment -> counterparty.apply(payment) != null)
+            .sorted(Comparator.comparing(Payment::getCreatedAt).reversed())
+            .map(payment -> {
+                Group group = payment.getGroup();
+                User other = counterparty.apply(payment);
+                return new DashboardItem(payment.getId(), payment.getAmount(), payment.getCurrency(),
+                    other.getId(), other.getUsername(), idOf(group), group == null ? null : group.getName(),
+                    payment.getName(), true, payment.getCreatedAt());
+            })
+            .toList();
+        return page(items, pageable);
+    }
+    
+    @Override
+    public List<Object[]> findPartiesById(Long id) {
+        List<Object[]> rows = new ArrayList<>();
+        findById(id).ifPresent(payment -> {
+            Long groupId = payment.getGroup() != null ? idOf(payment.getGroup())
+                : payment.getRequest() != null ? idOf(payment.getRequest().getGroup()) : null;
+            rows.add(new Object[] {groupId, idOf(payment.getDebtor()), idOf(payment.getDebtee())});
+        });
+        return rows;
+    }
+}
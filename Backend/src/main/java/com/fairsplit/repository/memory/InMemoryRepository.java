@@ -0,0 +1,312 @@
+package com.fairsplit.repository.memory;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Base of the in-memory repositories selected by fairsplit.persistence=memory. Entities
+ * are kept in ID order in a concurrent map, with secondary indexes on their references.
+ *
+ * Like a persistence context, finds return the stored instance itself and save stores
+ * the instance it is given, after swapping references to other entities for their
+ * stored instances the way a merge would. There are no transactions: changes are
+ * visible at once and are not rolled back.
+ */
+public abstract class InMemoryRepository<T> implements JpaRepository<T, Long> {
+    
+    protected final Map<Long, T> entities = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<EntityIndex<T>> indexes = new ArrayList<>();
+    
+    protected abstract Long getId(T entity);
+    
+    protected abstract void setId(T entity, Long id);
+    
+    /**
+     * Resolve references and prepare collections before an entity is stored
+     * @param entity the entity being saved
+     */
+    protected void prepare(T entity) {
+    }
+    
+    /**
+     * Register a secondary index, kept up to date on every save and delete
+     */
+    protected EntityIndex<T> index(EntityIndex<T> index) {
+        indexes.add(index);
+        return index;
+    }
+    
+    /**
+     * Swap a reference to another entity for its stored instance
+     * @throws DataIntegrityViolationException if the referenced entity does not exist, as a foreign key would
+     */
+    protected static <R> R resolve(R reference, Function<R, Long> id, JpaRepository<R, Long> repository) {
+        if (reference == null || id.apply(reference) == null) {
+            return reference;
+        }
+        return repository.findById(id.apply(reference)).orElseThrow(() -> new DataIntegrityViolationException(
+            reference.getClass().getSimpleName() + " not found with id: " + id.apply(reference)));
+    }
+    
+    /**
+     * Get the entities under a key of an index, in ID order
+     */
+    protected Stream<T> byIndex(EntityIndex<T> index, Long key) {
+        return byIds(index.get(key));
+    }
+    
+    protected Stream<T> byIds(Collection<Long> ids) {
+        return ids.stream().map(entities::get).filter(entity -> entity != null);
+    }
+    
+    protected List<T> where(Predicate<T> predicate) {
+        return entities.values().stream().filter(predicate).toList();
+    }
+    
+    @Override
+    public <S extends T> S save(S entity) {
+        prepare(entity);
+        Long id = getId(entity);
+        if (id == null) {
+            id = sequence.incrementAndGet();
+            setId(entity, id);
+        } else {
+            sequence.accumulateAndGet(id, Math::max);
+        }
+        entities.put(id, entity);
+        for (EntityIndex<T> index : indexes) {
+            index.put(id, entity);
+        }
+        return entity;
+    }
+    
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+    
+    @Override
+    public Optional<T> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(entities.get(id));
+    }
+    
+    @Override
+    public boolean existsById(Long id) {
+        return id != null && entities.containsKey(id);
+    }
+    
+    @Override
+    public List<T> findAll() {
+        return new ArrayList<>(entities.values());
+    }
+    
+    @Override
+    public List<T> findAllById(Iterable<Long> ids) {
+        List<T> found = new ArrayList<>();
+        for (Long id : ids) {
+            findById(id).ifPresent(found::add);
+        }
+        return found;
+    }
+    
+    @Override
+    public long count() {
+        return entities.size();
+    }
+    
+    @Override
+    public void deleteById(Long id) {
+        if (id != null && entities.remove(id) != null) {
+            for (EntityIndex<T> index : indexes) {
+                index.remove(id);
+            }
+        }
+    }
+    
+    @Override
+    public void delete(T entity) {
+        deleteById(getId(entity));
+    }
+    
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        for (Long id : ids) {
+            deleteById(id);
+        }
+    }
+    
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        for (T entity : entities) {
+            delete(entity);
+        }
+    }
+    
+    @Override
+    public void deleteAll() {
+        entities.clear();
+        for (EntityIndex<T> index : indexes) {
+            index.clear();
+        }
+    }
+    
+    @Override
+    public List<T> findAll(Sort sort) {
+        List<T> all = findAll();
+        all.sort(comparator(sort));
+        return all;
+    }
+    
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        List<T> all = pageable.getSort().isSorted() ? findAll(pageable.getSort()) : findAll();
+        return new PageImpl<>(page(all, pageable), pageable, all.size());
+    }
+    
+    @Override
+    public void flush() {
+    }
+    
+    @Override
+    public <S extends T> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+    
+    @Override
+    public <S extends T> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+    
+    @Override
+    public void deleteAllInBatch(Iterable<T> entities) {
+        deleteAll(entities);
+    }
+    
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        deleteAllById(ids);
+    }
+    
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+    
+    @Override
+    @Deprecated
+    public T getOne(Long id) {
+        return getReferenceById(id);
+    }
+    
+    @Override
+    @Deprecated
+    public T getById(Long id) {
+        return getReferenceById(id);
+    }
+    
+    @Override
+    public T getReferenceById(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("No entity with id " + id));
+    }
+    
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        throw queryByExample();
+    }
+    
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        throw queryByExample();
+    }
+    
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        throw queryByExample();
+    }
+    
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw queryByExample();
+    }
+    
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        throw queryByExample();
+    }
+    
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        throw queryByExample();
+    }
+    
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw queryByExample();
+    }
+    
+    /**
+     * Apply the offset and size of a page request to a list already in order
+     */
+    protected static <E> List<E> page(List<E> list, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return list;
+        }
+        int from = (int) Math.min(list.size(), pageable.getOffset());
+        int to = Math.min(list.size(), from + pageable.getPageSize());
+        return new ArrayList<>(list.subList(from, to));
+    }
+    
+    /**
+     * Keyset scan: the entities strictly before a position in (creation time, ID) order, newest first
+     */
+    protected static <E> Stream<E> newestBefore(Stream<E> entities, Function<E, Date> createdAt, Function<E, Long> id,
+                                                Date before, Long beforeId) {
+        Comparator<E> newestFirst = Comparator.comparing(createdAt).thenComparing(id).reversed();
+        return entities.filter(entity -> {
+                int byTime = createdAt.apply(entity).compareTo(before);
+                return byTime < 0 || (byTime == 0 && id.apply(entity) < beforeId);
+            })
+            .sorted(newestFirst);
+    }
+    
+    private static <E> Comparator<E> comparator(Sort sort) {
+        Comparator<E> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<E> byProperty = Comparator.comparing(
+                entity -> (Comparable<Object>) new BeanWrapperImpl(entity).getPropertyValue(order.getProperty()),
+                Comparator.nullsLast(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+    
+    private static UnsupportedOperationException queryByExample() {
+        return new UnsupportedOperationException("Query by example is not supported by the in-memory repositories");
+    }
+}
@@ -0,0 +1,262 @@
+package com.fairsplit.repository.memory;
+
+import com.fairsplit.dto.ActivityItem;
+import com.fairsplit.dto.DashboardItem;
+import com.fairsplit.dto.GroupBalance;
+import com.fairsplit.dto.RequestResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.model.Expense;
+import com.fairsplit.model.Group;
+import com.fairsplit.model.Request;
+import com.fairsplit.model.User;
+import com.fairsplit.repository.ExpenseRepository;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.RequestRepository;
+import com.fairsplit.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.fairsplit.repository.memory.InMemoryExpenseRepository.idOf;
+
+@Repository
+@ConditionalOnProperty(name = "fairsplit.persistence", havingValue = "memory")
+public class InMemoryRequestRepository extends InMemoryRepository<Request> implements RequestRepository {
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    private final EntityIndex<Request> byExpense = index(EntityIndex.single(request ->
+        request.getExpense() == null ? null : request.getExpense().getId()));
+    private final EntityIndex<Request> byDebtor = index(EntityIndex.single(request -> idOf(request.getDebtor())));
+    private final EntityIndex<Request> byDebtee = index(EntityIndex.single(request -> idOf(request.getDebtee())));
+    private final EntityIndex<Request> byGroup = index(EntityIndex.single(request -> idOf(request.getGroup())));
+    
+    @Override
+    protected Long getId(Request request) {
+        return request.getId();
+    }
+    
+    @Override
+    protected void setId(Request request, Long id) {
+        request.setId(id);
+    }
+    
+    @Override
+    protected void prepare(Request request) {
+        request.setExpense(resolve(request.getExpense(), Expense::getId, expenseRepository));
+        request.setDebtor(resolve(request.getDebtor(), User::getId, userRepository));
+        request.setDebtee(resolve(request.getDebtee(), User::getId, userRepository));
+        request.setGroup(resolve(request.getGroup(), Group::getId, groupRepository));
+    }
+    
+    @Override
+    public List<Request> findByExpense_Id(Long expenseId) {
+        return byIndex(byExpense, expenseId).toList();
+    }
+    
+    @Override
+    public List<Request> findByDebtor_Id(Long userId) {
+        return byIndex(byDebtor, userId).toList();
+    }
+    
+    @Override
+    public List<Request> findByDebtee_Id(Long userId) {
+        return byIndex(byDebtee, userId).toList();
+    }
+    
+    @Override
+    public List<Request> findByGroup_Id(Long groupId) {
+        return byIndex(byGroup, groupId).toList();
+    }
+    
+    @Override
+    public List<Request> findByDebtor_IdAndIsFulfilledFalse(Long userId) {
+        return byIndex(byDebtor, userId).filter(InMemoryRequestRepository::isOpen).toList();
+    }
+    
+    @Override
+    public List<Request> findByDebtor_IdAndIsFulfilledTrue(Long userId) {
+        return byIndex(byDebtor, userId).filter(Request::isFulfilled).toList();
+    }
+    
+    @Override
+    public List<Request> findByGroup_IdAndIsFulfilledFalse(Long groupId) {
+        return byIndex(byGroup, groupId).filter(InMemoryRequestRepository::isOpen).toList();
+    }
+    
+    @Override
+    public List<GroupBalance> sumOutstandingByGroup(Long userId) {
+        Map<Long, GroupBalance> balances = new LinkedHashMap<>();
+        Stream.concat(byIndex(byDebtor, userId), byIndex(byDebtee, userId))
+            .filter(InMemoryRequestRepository::isOpen)
+            .distinct()
+            .forEach(request -> {
+                Group group = request.getGroup();
+                GroupBalance balance = balances.computeIfAbsent(idOf(group), id -> new GroupBalance(id,
+                    group == null ? null : group.getName(), group == null ? null : group.getCurrency(), 0.0, 0.0, 0L, 0L));
+                if (Objects.equals(userId, idOf(request.getDebtor()))) {
+                    balance.setOwing(balance.getOwing() + request.getAmount());
+                    balance.setOpenRequestsOwing(balance.getOpenRequestsOwing() + 1);
+                }
+                if (Objects.equals(userId, idOf(request.getDebtee()))) {
+                    balance.setOwed(balance.getOwed() + request.getAmount());
+                    balance.setOpenRequestsOwed(balance.getOpenRequestsOwed() + 1);
+                }
+            });
+        return new ArrayList<>(balances.values());
+    }
+    
+    @Override
+    public List<DashboardItem> findRecentUnfulfilledByDebtor(Long userId, Pageable pageable) {
+        return recent(byIndex(byDebtor, userId), Request::getDebtee, pageable);
+    }
+    
+    @Override
+    public List<DashboardItem> findRecentUnfulfilledByDebtee(Long userId, Pageable pageable) {
+        return recent(byIndex(byDebtee, userId), Request::getDebtor, pageable);
+    }
+    
+    @Override
+    public int archiveFulfilledBefore(Date cutoff, int batchSize) {
+        List<Request> batch = entities.values().stream()
+            .filter(request -> !request.isArchived() && request.isFulfilled() && request.getCreatedAt().before(cutoff))
+            .limit(batchSize)
+            .toList();
+        for (Request request : batch) {
+            request.setArchived(true);
+        }
+        return batch.size();
+    }
+    
+    @Override
+    public List<RequestResponse> findResponsesByExpenseId(Long expenseId) {
+        return responses(byIndex(byExpense, expenseId));
+    }
+    
+    @Override
+    public List<RequestResponse> findResponsesByDebtorId(Long userId) {
+        return responses(byIndex(byDebtor, userId));
+    }
+    
+    @Override
+    public List<RequestResponse> findUnfulfilledResponsesByDebtorId(Long userId) {
+        return responses(byIndex(byDebtor, userId).filter(InMemoryRequestRepository::isOpen));
+    }
+    
+    @Override
+    public List<RequestResponse> findResponsesByDebteeId(Long userId) {
+        return responses(byIndex(byDebtee, userId));
+    }
+    
+    @Override
+    public List<RequestResponse> findResponsesByGroupId(Long groupId) {
+        return responses(byIndex(byGroup, groupId));
+    }
+    
+    @Override
+    public List<RequestResponse> findUnfulfilledResponsesByGroupId(Long groupId) {
+        return responses(byIndex(byGroup, groupId).filter(InMemoryRequestRepository::isOpen));
+    }
+    
+    @Override
+    public List<ActivityItem> findActivityByGroupId(Long groupId, Date before, Long beforeId, Pageable pageable) {
+        return page(newestBefore(byIndex(byGroup, groupId), Request::getCreatedAt, Request::getId, before, beforeId)
+            .filter(request -> request.getDebtor() != null && request.getDebtee() != null)
+            .map(ResponseMapper::toActivity)
+            .toList(), pageable);
+    }
+    
+    @Override
+    public List<RequestResponse> findResponsesByIds(Collection<Long> ids) {
+        return responses(byIds(ids));
+    }
+    
+    @Override
+    public List<Object[]> sumByUserInGroup(Long userId, Long groupId, Date from, Date to) {
+        List<Request> requests = byIndex(byGroup, groupId)
+            .filter(request -> Objects.equals(userId, idOf(request.getDebtor())) || Objects.equals(userId, idOf(request.getDebtee())))
+            .filter(request -> !request.getCreatedAt().before(from) && request.getCreatedAt().before(to))
+            .toList();
+        if (requests.isEmpty()) {
+            List<Object[]> none = new ArrayList<>();
+            none.add(new Object[] {null, null, null, null});
+            return none;
+        }
+        double owed = 0, owedOpen = 0, owedToUser = 0, owedToUserOpen = 0;
+        for (Request request : requests) {
+            if (Objects.equals(userId, idOf(request.getDebtor()))) {
+                owed += request.getAmount();
+                owedOpen += request.isFulfilled() ? 0 : request.getAmount();
+            }
+            if (Objects.equals(userId, idOf(request.getDebtee()))) {
+                owedToUser += request.getAmount();
+                owedToUserOpen += request.isFulfilled() ? 0 : request.getAmount();
+            }
+        }
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {owed, owedOpen, owedToUser, owedToUserOpen});
+        return rows;
+    }
+    
+    // Open requests are the unfulfilled ones still in the hot partitions
+    private static boolean isOpen(Request request) {
+        return !request.isFulfilled() && !request.isArchived();
+    }
+    
+    // The projections inner-join the debtor and debtee
+    private static List<RequestResponse> responses(Stream<Request> requests) {
+        return requests.filter(request -> request.getDebtor() != null && request.getDebtee() != null)
+            .map(ResponseMapper::toResponse)
+            .toList();
+    }
+    
+    private static List<DashboardItem> recent(Stream<Request> requests, Function<Request, User> counterparty, Pageable pageable) {
+        List<DashboardItem> items = requests.filter(InMemoryRequestRepository::isOpen)
+            .filter(request -> counterparty.apply(request) != null)
+            .sorted(Comparator.comparing(Request::getCreatedAt).reversed())
+            .map(request -> {
+                Group group = request.getGroup();
+                User other = counterparty.apply(request);
+                return new DashboardItem(request.getId(), request.getAmount(), group == null ? null : group.getCurrency(),
+                    other.getId(), other.getUsername(), idOf(group), group == null ? null : group.getName(),
+                    request.getExpense() == null ? null : request.getExpense().getName(), request.isFulfilled(), request.getCreatedAt());
+            })
+            .toList();
+        return page(items, pageable);
+    }
+    
+    @Override
+    public List<Object[]> findPartiesById(Long id) {
+        List<Object[]> rows = new ArrayList<>();
+        findById(id).ifPresent(request -> rows.add(new Object[] {
+            idOf(request.getGroup()), idOf(request.getDebtor()), idOf(request.getDebtee())}));
+        return rows;
+    }
+    
+    @Override
+    public List<Object[]> findPartiesByExpenseId(Long expenseId) {
+        List<Object[]> rows = new ArrayList<>();
+        byIndex(byExpense, expenseId)
+            .forEach(request -> rows.add(new Object[] {idOf(request.getDebtor()), idOf(request.getDebtee())}));
+        return rows;
+    }
+}
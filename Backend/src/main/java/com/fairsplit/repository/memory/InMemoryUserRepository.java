@@ -0,0 +1,119 @@
+package com.fairsplit.repository.memory;
+
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.dto.UserResponse;
+import com.fairsplit.model.User;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "fairsplit.persistence", havingValue = "memory")
+public class InMemoryUserRepository extends InMemoryRepository<User> implements UserRepository {
+    
+    // Group membership is owned by Group.users, as with the group_user join table
+    @Autowired
+    @Lazy
+    private GroupRepository groupRepository;
+    
+    private final Map<String, Long> idsByUsername = new ConcurrentHashMap<>();
+    private final Map<Long, String> usernamesById = new ConcurrentHashMap<>();
+    
+    @Override
+    protected Long getId(User user) {
+        return user.getId();
+    }
+    
+    @Override
+    protected void setId(User user, Long id) {
+        user.setId(id);
+    }
+    
+    @Override
+    protected void prepare(User user) {
+        if (user.getGroups() == null) {
+            user.setGroups(new CopyOnWriteArrayList<>());
+        }
+        Long id = user.getId();
+        Long owner = idsByUsername.get(user.getUsername());
+        if (owner != null && !owner.equals(id)) {
+            throw new DataIntegrityViolationException("Username already exists: " + user.getUsername());
+        }
+    }
+    
+    @Override
+    public <S extends User> S save(S user) {
+        S saved = super.save(user);
+        String previous = usernamesById.put(saved.getId(), saved.getUsername());
+        if (previous != null && !previous.equals(saved.getUsername())) {
+            idsByUsername.remove(previous, saved.getId());
+        }
+        idsByUsername.put(saved.getUsername(), saved.getId());
+        return saved;
+    }
+    
+    @Override
+    public void deleteById(Long id) {
+        super.deleteById(id);
+        String username = id == null ? null : usernamesById.remove(id);
+        if (username != null) {
+            idsByUsername.remove(username, id);
+        }
+    }
+    
+    @Override
+    public void deleteAll() {
+        super.deleteAll();
+        idsByUsername.clear();
+        usernamesById.clear();
+    }
+    
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return username == null ? Optional.empty() : findById(idsByUsername.get(username));
+    }
+    
+    @Override
+    public boolean existsByUsername(String username) {
+        return username != null && idsByUsername.containsKey(username);
+    }
+    
+    @Override
+    public Stream<String> streamAllUsernames() {
+        return entities.values().stream().map(User::getUsername);
+    }
+    
+    @Override
+    public void deleteByUsername(String username) {
+        findByUsername(username).ifPresent(this::delete);
+    }
+    
+    @Override
+    public List<User> findByGroups_Id(Long groupId) {
+        return groupRepository.findById(groupId)
+            .map(group -> (List<User>) new ArrayList<>(group.getUsers()))
+            .orElseGet(ArrayList::new);
+    }
+    
+    @Override
+    public List<UserResponse> findAllResponses() {
+        return ResponseMapper.map(findAll(), ResponseMapper::toResponse);
+    }
+    
+    @Override
+    public List<UserResponse> findResponsesByGroupId(Long groupId) {
+        return ResponseMapper.map(findByGroups_Id(groupId), ResponseMapper::toResponse);
+    }
+}
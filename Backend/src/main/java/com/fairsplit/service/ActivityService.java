@@ -0,0 +1,178 @@
+package com.fairsplit.service;
+
+import com.fairsplit.dto.ActivityItem;
+import com.fairsplit.dto.ActivityPage;
+import com.fairsplit.repository.ExpenseRepository;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.PaymentRepository;
+import com.fairsplit.repository.RequestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+@Service
+public class ActivityService {
+
+    // Page size when none is asked for, and the most one page can hold
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Where every source starts on the first page: after any row, 9999-12-31T23:59:59.999Z
+    private static final Position START = new Position(new Date(253402300799999L), Long.MAX_VALUE);
+
+    // Cursor entry of a source with nothing left to read
+    private static final String EXHAUSTED = "-";
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    /**
+     * Get one page of a group's activity, its expenses, requests and payments newest first.
+     * Each source is read with a keyset query from where the previous page left it, at most one
+     * page per source, and the three runs are merged; the cost depends on the page size, not on
+     * how much history the group has.
+     * @param groupId the group ID
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit the number of items per page, or null for the default
+     * @return Optional containing the page if the group exists
+     * @throws IllegalArgumentException if the cursor is malformed or the limit out of range
+     */
+    @Transactional(readOnly = true)
+    public Optional<ActivityPage> getGroupActivity(Long groupId, String cursor, Integer limit) {
+        int size = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Position[] positions = decode(cursor);
+        if (!groupRepository.existsById(groupId)) {
+            return Optional.empty();
+        }
+
+        // In this order, which also breaks ties between items created in the same millisecond
+        List<Source> sources = List.of(
+            expenseRepository::findActivityByGroupId,
+            requestRepository::findActivityByGroupId,
+            paymentRepository::findActivityByGroupId);
+
+        Pageable page = PageRequest.of(0, size);
+        List<List<ActivityItem>> runs = new ArrayList<>(sources.size());
+        PriorityQueue<Head> heads = new PriorityQueue<>(Head.NEWEST_FIRST);
+        for (int i = 0; i < sources.size(); i++) {
+            Position position = positions[i];
+            List<ActivityItem> run = position == null ? List.of()
+                : sources.get(i).fetch(groupId, position.createdAt(), position.id(), page);
+            runs.add(run);
+            if (!run.isEmpty()) {
+                heads.add(new Head(i, 0, run.get(0)));
+            }
+        }
+
+        // k-way merge of the newest-first runs, stopping once the page is full
+        List<ActivityItem> items = new ArrayList<>(size);
+        int[] taken = new int[sources.size()];
+        while (items.size() < size && !heads.isEmpty()) {
+            Head head = heads.poll();
+            items.add(head.item());
+            taken[head.source()]++;
+            List<ActivityItem> run = runs.get(head.source());
+            if (head.index() + 1 < run.size()) {
+                heads.add(new Head(head.source(), head.index() + 1, run.get(head.index() + 1)));
+            }
+        }
+
+        // Each source resumes after the last item taken from it; one whose query came back
+        // short and was used up entirely has nothing left
+        Position[] next = new Position[sources.size()];
+        boolean more = false;
+        for (int i = 0; i < sources.size(); i++) {
+            List<ActivityItem> run = runs.get(i);
+            if (positions[i] == null || (taken[i] == run.size() && run.size() < size)) {
+                next[i] = null;
+            } else if (taken[i] == 0) {
+                next[i] = positions[i];
+            } else {
+                ActivityItem last = run.get(taken[i] - 1);
+                next[i] = new Position(last.getCreatedAt(), last.getId());
+            }
+            more |= next[i] != null;
+        }
+        return Optional.of(new ActivityPage(items, more ? encode(next) : null));
+    }
+
+    /**
+     * Encode the position of every source as an opaque URL-safe cursor
+     */
+    private static String encode(Position[] positions) {
+        StringBuilder cursor = new StringBuilder();
+        for (Position position : positions) {
+            if (cursor.length() > 0) {
+                cursor.append(',');
+            }
+            cursor.append(position == null ? EXHAUSTED : position.createdAt().getTime() + "." + position.id());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a cursor made by encode, a null or blank one being the start of every source
+     */
+    private static Position[] decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new Position[] {START, START, START};
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(",", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Position[] positions = new Position[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                if (!parts[i].equals(EXHAUSTED)) {
+                    int dot = parts[i].indexOf('.');
+                    positions[i] = new Position(new Date(Long.parseLong(parts[i].substring(0, dot))),
+                        Long.parseLong(parts[i].substring(dot + 1)));
+                }
+            }
+            return positions;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    // A keyset query of one source: the items strictly after (before, beforeId), newest first
+    private interface Source {
+        List<ActivityItem> fetch(Long groupId, Date before, Long beforeId, Pageable pageable);
+    }
+
+    // Last item read from a source
+    private record Position(Date createdAt, Long id) {
+    }
+
+    // Next unmerged item of a source's run
+    private record Head(int source, int index, ActivityItem item) {
+        static final Comparator<Head> NEWEST_FIRST = Comparator
+            .comparing((Head head) -> head.item().getCreatedAt()).reversed()
+            .thenComparingInt(Head::source)
+            .thenComparing((Head head) -> head.item().getId(), Comparator.reverseOrder());
+    }
+}
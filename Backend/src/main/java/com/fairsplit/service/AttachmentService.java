@@ -0,0 +1,181 @@
+package com.fairsplit.service;
+
+import com.fairsplit.attachment.BlobDownload;
+import com.fairsplit.attachment.BlobStore;
+import com.fairsplit.attachment.StagedBlob;
+import com.fairsplit.dto.AttachmentResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.model.ExpenseAttachment;
+import com.fairsplit.repository.ExpenseAttachmentRepository;
+import com.fairsplit.repository.ExpenseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+@Service
+public class AttachmentService {
+    
+    @Autowired
+    private ExpenseAttachmentRepository attachmentRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private BlobStore blobStore;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    /**
+     * Get the attachments of an expense
+     * @param expenseId the expense ID
+     * @return the attachments' metadata, oldest first
+     */
+    public List<AttachmentResponse> getAttachments(Long expenseId) {
+        return ResponseMapper.map(attachmentRepository.findByExpenseIdOrderByIdAsc(expenseId), ResponseMapper::toResponse);
+    }
+    
+    /**
+     * Get an attachment of an expense
+     * @param expenseId the expense ID
+     * @param attachmentId the attachment ID
+     * @return Optional containing the attachment if it exists and belongs to the expense
+     */
+    public Optional<ExpenseAttachment> getAttachment(Long expenseId, Long attachmentId) {
+        return attachmentRepository.findByIdAndExpenseId(attachmentId, expenseId);
+    }
+    
+    /**
+     * Get where the content of an attachment is stored
+     * @param attachment the attachment
+     * @return the path of its blob
+     */
+    public Path getContentPath(ExpenseAttachment attachment) {
+        return blobStore.path(attachment.getSha256());
+    }
+    
+    /**
+     * Attach a receipt to an expense. The content is streamed to a staging file and hashed
+     * before the transaction starts, and moved under its hash only once the row has committed.
+     * @param expenseId the expense ID
+     * @param filename the client's file name
+     * @param contentType the MIME type, one of BlobDownload.INLINE_TYPES
+     * @param content the bytes of the receipt
+     * @return the saved attachment
+     * @throws IllegalArgumentException if the expense is not found, or the content is empty or not of an accepted type
+     */
+    public ExpenseAttachment addAttachment(Long expenseId, String filename, String contentType, InputStream content) throws IOException {
+        if (!expenseRepository.existsById(expenseId)) {
+            throw new IllegalArgumentException("Expense not found with id: " + expenseId);
+        }
+        String type = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        if (!BlobDownload.INLINE_TYPES.contains(type)) {
+            throw new IllegalArgumentException("Receipts must be JPEG, PNG, GIF, WebP or HEIC images or PDFs");
+        }
+        
+        StagedBlob blob = blobStore.stage(content);
+        if (blob.size() == 0) {
+            blobStore.discard(blob);
+            throw new IllegalArgumentException("Receipt is empty");
+        }
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        blobStore.commit(blob);
+                    }
+                    
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            blobStore.discard(blob);
+                        }
+                    }
+                });
+                return attachmentRepository.save(new ExpenseAttachment(expenseId, blob.sha256(), cleanFilename(filename), type, blob.size()));
+            });
+        } catch (RuntimeException e) {
+            blobStore.discard(blob);
+            throw e;
+        }
+    }
+    
+    /**
+     * Delete an attachment, and its blob once no other attachment shares the content
+     * @param expenseId the expense ID
+     * @param attachmentId the attachment ID
+     * @return true if deleted, false if not found
+     */
+    @Transactional
+    public boolean deleteAttachment(Long expenseId, Long attachmentId) {
+        return attachmentRepository.findByIdAndExpenseId(attachmentId, expenseId)
+            .map(attachment -> {
+                attachmentRepository.delete(attachment);
+                collectAfterCommit(List.of(attachment.getSha256()));
+                return true;
+            })
+            .orElse(false);
+    }
+    
+    /**
+     * Delete all attachments of an expense that is being deleted, in the caller's transaction.
+     * Blobs no longer referenced are deleted after it commits.
+     * @param expenseId the expense ID
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteAttachmentsOfExpense(Long expenseId) {
+        List<String> hashes = attachmentRepository.findHashesByExpenseId(expenseId);
+        if (hashes.isEmpty()) {
+            return;
+        }
+        attachmentRepository.deleteByExpenseId(expenseId);
+        collectAfterCommit(hashes);
+    }
+    
+    /**
+     * Delete the blobs left without attachments once the current transaction commits.
+     * The reference counts are read in a new transaction, after the deletes are visible.
+     */
+    private void collectAfterCommit(Collection<String> hashes) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                TransactionTemplate count = new TransactionTemplate(transactionManager);
+                count.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                count.setReadOnly(true);
+                for (String sha256 : hashes) {
+                    blobStore.deleteIfUnreferenced(sha256,
+                        () -> Boolean.TRUE.equals(count.execute(status -> attachmentRepository.countBySha256(sha256) == 0)));
+                }
+            }
+        });
+    }
+    
+    /**
+     * Keep only the last path segment of a client file name, without control characters
+     */
+    private static String cleanFilename(String filename) {
+        String name = filename == null ? "" : filename.replaceAll("[\\p{Cntrl}]", "");
+        name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1).trim();
+        if (name.isEmpty()) {
+            return "receipt";
+        }
+        return name.length() > 255 ? name.substring(name.length() - 255) : name;
+    }
+}
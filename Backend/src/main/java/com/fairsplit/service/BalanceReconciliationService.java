@@ -0,0 +1,319 @@
+package com.fairsplit.service;
+
+import com.fairsplit.dto.ReconciliationReport;
+import com.fairsplit.event.GroupDataChangedEvent;
+import com.fairsplit.model.Request;
+import com.fairsplit.repository.RequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Checks user balances against the payment history, and fulfilled flags against linked payments.
+ * Users and requests are walked in ID ranges split across a fork-join pool; each range runs
+ * in its own repeatable-read transaction and only keeps that range's totals in memory, with
+ * payments pre-aggregated per user, currency and (for converted payments) date by the database.
+ */
+@Service
+public class BalanceReconciliationService {
+    
+    private static final Logger log = LoggerFactory.getLogger(BalanceReconciliationService.class);
+    
+    // Payments per user in a range, summed in SQL. Balances are kept in the base currency: payments
+    // already in it collapse into one row, others are summed per currency and day for the rate lookup.
+    // Parameters: base currency (three times), then the user ID range.
+    private static final String PAYMENT_TOTALS_SQL =
+        "SELECT user_id, currency, converted_on, SUM(amount) AS total FROM (" +
+        "SELECT p.%1$s AS user_id, p.amount, COALESCE(p.currency, g.currency, rg.currency, ?) AS currency, " +
+        "CASE WHEN COALESCE(p.currency, g.currency, rg.currency, ?) = ? THEN NULL ELSE CAST(p.created_at AS DATE) END AS converted_on " +
+        "FROM payments p " +
+        "LEFT JOIN \"groups\" g ON g.id = p.group_id " +
+        "LEFT JOIN requests r ON p.group_id IS NULL AND r.id = p.request_id " +
+        "LEFT JOIN \"groups\" rg ON rg.id = r.group_id " +
+        "WHERE p.%1$s >= ? AND p.%1$s < ?) t " +
+        "GROUP BY user_id, currency, converted_on";
+    
+    private static final int MAX_SAMPLES = 100;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private FxRateService fxRateService;
+    
+    @Autowired
+    private RequestRepository requestRepository;
+    
+    @Autowired
+    private UserTotalsService userTotalsService;
+    
+    @Autowired
+    private ChangeLogService changeLogService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${fairsplit.reconciliation.range-size:10000}")
+    private long rangeSize;
+    
+    @Value("${fairsplit.reconciliation.parallelism:4}")
+    private int parallelism;
+    
+    @Value("${fairsplit.reconciliation.tolerance-cents:1}")
+    private long toleranceCents;
+    
+    private volatile ReconciliationReport lastReport;
+    
+    /**
+     * Get the report of the most recent run
+     * @return the last report, or null if reconciliation has not run yet
+     */
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+    
+    /**
+     * Reconcile every user balance and request
+     * @param repair whether to correct the discrepancies found, otherwise they are only reported
+     * @return the report of this run
+     */
+    public ReconciliationReport reconcile(boolean repair) {
+        Date startedAt = new Date();
+        RangeResult total = new RangeResult();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            total.merge(pool.invoke(new RangeTask(false, repair, idBounds("users"))));
+            total.merge(pool.invoke(new RangeTask(true, repair, idBounds("requests"))));
+        } finally {
+            pool.shutdown();
+        }
+        if (total.repaired > 0) {
+            // Repaired balances and requests show in the group read endpoints
+            eventPublisher.publishEvent(GroupDataChangedEvent.allGroups());
+        }
+        
+        ReconciliationReport report = new ReconciliationReport(startedAt, new Date(), repair,
+            total.usersChecked, total.balanceMismatches, total.requestsChecked, total.fulfilledMismatches,
+            total.repaired, total.failedRanges, total.samples);
+        log.info("Reconciliation {}: {} users, {} balance mismatches, {} requests, {} fulfilled mismatches, {} repaired, {} failed ranges",
+            repair ? "with repair" : "report only", total.usersChecked, total.balanceMismatches,
+            total.requestsChecked, total.fulfilledMismatches, total.repaired, total.failedRanges);
+        lastReport = report;
+        return report;
+    }
+    
+    /**
+     * Get the ID range of a table
+     * @param table the table name
+     * @return the lowest ID and one past the highest, equal if the table is empty
+     */
+    private long[] idBounds(String table) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COALESCE(MIN(id), 0), COALESCE(MAX(id) + 1, 0) FROM " + table,
+            (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)});
+    }
+    
+    /**
+     * Check the balances of users with IDs in [from, to)
+     * @return the discrepancies found in the range
+     */
+    private RangeResult reconcileUsers(long from, long to, boolean repair) {
+        RangeResult result = new RangeResult();
+        // Net payments per user, in cents of the base currency
+        String base = fxRateService.getBaseCurrency();
+        Map<Long, Long> netCents = new HashMap<>();
+        jdbcTemplate.query(String.format(PAYMENT_TOTALS_SQL, "debtee_id"),
+            rs -> { netCents.merge(rs.getLong("user_id"), baseCents(rs, base), Long::sum); }, base, base, base, from, to);
+        jdbcTemplate.query(String.format(PAYMENT_TOTALS_SQL, "debtor_id"),
+            rs -> { netCents.merge(rs.getLong("user_id"), -baseCents(rs, base), Long::sum); }, base, base, base, from, to);
+        
+        List<Object[]> repairs = new ArrayList<>();
+        Date now = new Date();
+        jdbcTemplate.query("SELECT id, amount, adjustments FROM users WHERE id >= ? AND id < ?", rs -> {
+            long id = rs.getLong("id");
+            double amount = rs.getDouble("amount");
+            long expectedCents = SplitCalculator.toCents(rs.getDouble("adjustments")) + netCents.getOrDefault(id, 0L);
+            result.usersChecked++;
+            if (Math.abs(SplitCalculator.toCents(amount) - expectedCents) > toleranceCents) {
+                result.balanceMismatches++;
+                result.sample(String.format("user %d: balance %.2f, expected %.2f", id, amount, expectedCents / 100.0));
+                if (repair) {
+                    // Only overwrite balances no payment has touched since this range was read
+                    repairs.add(new Object[] {expectedCents / 100.0, new Timestamp(now.getTime()), id, amount});
+                }
+            }
+        }, from, to);
+        
+        if (!repairs.isEmpty()) {
+            for (int updated : jdbcTemplate.batchUpdate(
+                    "UPDATE users SET amount = ?, updated_at = ? WHERE id = ? AND amount = ?", repairs)) {
+                result.repaired += updated;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Check the fulfilled flags of requests with IDs in [from, to)
+     * @return the discrepancies found in the range
+     */
+    private RangeResult reconcileRequests(long from, long to, boolean repair) {
+        RangeResult result = new RangeResult();
+        List<Object[]> repairs = new ArrayList<>();
+        Date now = new Date();
+        jdbcTemplate.query(
+            "SELECT r.id, r.is_fulfilled, r.archived, " +
+            "EXISTS (SELECT 1 FROM payments p WHERE p.request_id = r.id) AS paid " +
+            "FROM requests r WHERE r.id >= ? AND r.id < ?", rs -> {
+                long id = rs.getLong("id");
+                boolean fulfilled = rs.getBoolean("is_fulfilled");
+                boolean paid = rs.getBoolean("paid");
+                result.requestsChecked++;
+                if (fulfilled != paid) {
+                    result.fulfilledMismatches++;
+                    result.sample(String.format("request %d: fulfilled=%b but %s", id, fulfilled,
+                        paid ? "it has a payment" : "it has no payment"));
+                    if (repair) {
+                        // Open requests belong in the hot partitions
+                        repairs.add(new Object[] {paid, paid && rs.getBoolean("archived"), new Timestamp(now.getTime()), id, fulfilled});
+                    }
+                }
+            }, from, to);
+        
+        if (!repairs.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(
+                "UPDATE requests SET is_fulfilled = ?, archived = ?, updated_at = ? WHERE id = ? AND is_fulfilled = ?", repairs);
+            List<Long> repairedIds = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] > 0) {
+                    repairedIds.add((Long) repairs.get(i)[3]);
+                }
+            }
+            result.repaired += repairedIds.size();
+            
+            // Move the open request counters and tell syncing clients, as a payment or its deletion would have
+            List<Request> repaired = requestRepository.findAllById(repairedIds);
+            userTotalsService.recordOpened(repaired.stream().filter(request -> !request.isFulfilled()).toList());
+            userTotalsService.recordClosed(repaired.stream().filter(Request::isFulfilled).toList());
+            changeLogService.recordRequests(repaired, false);
+        }
+        return result;
+    }
+    
+    /**
+     * Convert one row of PAYMENT_TOTALS_SQL to cents of the base currency
+     */
+    private long baseCents(ResultSet rs, String base) throws SQLException {
+        double total = rs.getDouble("total");
+        Date convertedOn = rs.getDate("converted_on");
+        if (convertedOn != null) {
+            total = fxRateService.convert(total, rs.getString("currency"), base, convertedOn);
+        }
+        return SplitCalculator.toCents(total);
+    }
+    
+    /**
+     * Splits an ID range in halves until it is at most rangeSize wide, then reconciles it
+     * in one transaction. A failing range is counted and skipped rather than failing the run.
+     */
+    private class RangeTask extends RecursiveTask<RangeResult> {
+        
+        private final boolean requests;
+        private final boolean repair;
+        private final long from;
+        private final long to;
+        
+        RangeTask(boolean requests, boolean repair, long[] bounds) {
+            this(requests, repair, bounds[0], bounds[1]);
+        }
+        
+        RangeTask(boolean requests, boolean repair, long from, long to) {
+            this.requests = requests;
+            this.repair = repair;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected RangeResult compute() {
+            if (to - from > rangeSize) {
+                long middle = from + (to - from) / 2;
+                RangeTask left = new RangeTask(requests, repair, from, middle);
+                left.fork();
+                RangeResult result = new RangeTask(requests, repair, middle, to).compute();
+                result.merge(left.join());
+                return result;
+            }
+            if (from >= to) {
+                return new RangeResult();
+            }
+            
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            transaction.setReadOnly(!repair);
+            try {
+                return transaction.execute(status -> requests
+                    ? reconcileRequests(from, to, repair)
+                    : reconcileUsers(from, to, repair));
+            } catch (RuntimeException e) {
+                log.warn("Reconciliation of {} [{}, {}) failed: {}", requests ? "requests" : "users", from, to, e.getMessage());
+                RangeResult failed = new RangeResult();
+                failed.failedRanges = 1;
+                return failed;
+            }
+        }
+    }
+    
+    /**
+     * Counters for one or more reconciled ranges
+     */
+    private static class RangeResult {
+        
+        long usersChecked;
+        long balanceMismatches;
+        long requestsChecked;
+        long fulfilledMismatches;
+        long repaired;
+        long failedRanges;
+        List<String> samples = new ArrayList<>();
+        
+        void sample(String discrepancy) {
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(discrepancy);
+            }
+        }
+        
+        void merge(RangeResult other) {
+            usersChecked += other.usersChecked;
+            balanceMismatches += other.balanceMismatches;
+            requestsChecked += other.requestsChecked;
+            fulfilledMismatches += other.fulfilledMismatches;
+            repaired += other.repaired;
+            failedRanges += other.failedRanges;
+            for (String discrepancy : other.samples) {
+                sample(discrepancy);
+            }
+        }
+    }
+}
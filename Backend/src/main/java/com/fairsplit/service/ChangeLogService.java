@@ -0,0 +1,150 @@
+package com.fairsplit.service;
+
+import com.fairsplit.model.ChangeLogEntry;
+import com.fairsplit.model.ChangeType;
+import com.fairsplit.model.Payment;
+import com.fairsplit.model.Request;
+import com.fairsplit.repository.ChangeLogHeadRepository;
+import com.fairsplit.repository.ChangeLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Records changes to synced rows in the change log. Always called from inside the
+ * transaction of the change, so an entry exists exactly when the change was committed;
+ * SyncService serves them to clients in sequence order.
+ *
+ * Entries are held until the transaction commits and only then written, under the lock
+ * of the change log head, which is advanced to the newest of them. Sequence numbers so
+ * become visible in order, however long a transaction ran before committing.
+ */
+@Service
+public class ChangeLogService {
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private ChangeLogHeadRepository changeLogHeadRepository;
+
+    /**
+     * Record that a row was created or updated
+     * @param type the kind of row
+     * @param id the row ID
+     * @param groupId the group the row belongs to
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChanged(ChangeType type, Long id, Long groupId) {
+        pending().add(new ChangeLogEntry(type, id, groupId, false));
+    }
+
+    /**
+     * Record a tombstone for a deleted row
+     * @param type the kind of row
+     * @param id the row ID
+     * @param groupId the group the row belonged to
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(ChangeType type, Long id, Long groupId) {
+        pending().add(new ChangeLogEntry(type, id, groupId, true));
+    }
+
+    /**
+     * Record that requests were created, updated or deleted
+     * @param requests the requests, saved already so they have IDs
+     * @param deleted true for tombstones
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRequests(Collection<Request> requests, boolean deleted) {
+        List<ChangeLogEntry> entries = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            entries.add(new ChangeLogEntry(ChangeType.REQUEST, request.getId(), request.getGroup().getId(), deleted));
+        }
+        pending().addAll(entries);
+    }
+
+    /**
+     * Record that a payment was created or deleted, along with the request it settles
+     * @param payment the payment, saved already so it has an ID
+     * @param deleted true for a tombstone of the payment; the request is always updated, not deleted
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordPayment(Payment payment, boolean deleted) {
+        Request request = payment.getRequest();
+        Long groupId = payment.getGroup() != null ? payment.getGroup().getId()
+            : request != null ? request.getGroup().getId() : null;
+        pending().add(new ChangeLogEntry(ChangeType.PAYMENT, payment.getId(), groupId, deleted));
+        if (request != null) {
+            pending().add(new ChangeLogEntry(ChangeType.REQUEST, request.getId(), request.getGroup().getId(), false));
+        }
+    }
+
+    /**
+     * Record that users joined or left a group
+     * @param groupId the ID of the group
+     * @param userIds the IDs of the users
+     * @param deleted true if they left
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMembers(Long groupId, Collection<Long> userIds, boolean deleted) {
+        List<ChangeLogEntry> entries = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            entries.add(new ChangeLogEntry(ChangeType.MEMBERSHIP, userId, groupId, deleted));
+        }
+        pending().addAll(entries);
+    }
+
+    /**
+     * The entries recorded so far in the current transaction, written when it commits
+     */
+    private List<ChangeLogEntry> pending() {
+        // Looked up among the transaction's own synchronizations, which are set aside while a nested one runs
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingEntries pending) {
+                return pending.entries;
+            }
+        }
+        PendingEntries pending = new PendingEntries();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending.entries;
+    }
+
+    /**
+     * Write a committing transaction's entries under the head lock and advance the head
+     */
+    private void write(List<ChangeLogEntry> entries) {
+        // Flush the transaction's other changes first, so the head lock is held only for the inserts
+        changeLogRepository.flush();
+        if (changeLogHeadRepository.lock() == 0) {
+            changeLogHeadRepository.createIfMissing();
+            changeLogHeadRepository.lock();
+        }
+        long newest = 0;
+        for (ChangeLogEntry entry : changeLogRepository.saveAll(entries)) {
+            newest = Math.max(newest, entry.getSeq());
+        }
+        changeLogRepository.flush();
+        changeLogHeadRepository.advance(newest);
+    }
+
+    // One transaction's entries, kept until it commits
+    private class PendingEntries implements TransactionSynchronization {
+
+        private final List<ChangeLogEntry> entries = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!entries.isEmpty()) {
+                write(entries);
+            }
+        }
+    }
+}
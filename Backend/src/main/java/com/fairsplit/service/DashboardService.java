@@ -0,0 +1,102 @@
+package com.fairsplit.service;
+
+import com.fairsplit.dto.DashboardItem;
+import com.fairsplit.dto.GroupBalance;
+import com.fairsplit.dto.UserDashboard;
+import com.fairsplit.repository.PaymentRepository;
+import com.fairsplit.repository.RequestRepository;
+import com.fairsplit.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class DashboardService {
+    
+    // Upper bound on the number of recent items per list, to keep the response small
+    private static final int MAX_RECENT_ITEMS = 50;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private RequestRepository requestRepository;
+    
+    @Autowired
+    private PaymentRepository paymentRepository;
+    
+    @Autowired
+    private FxRateService fxRateService;
+    
+    /**
+     * Build the dashboard summary for a user from aggregate queries instead of full entity lists
+     * @param userId the user ID
+     * @param recentItems how many of the most recent requests and payments to include per list
+     * @return Optional containing the dashboard if the user exists
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserDashboard> getDashboard(Long userId, int recentItems) {
+        return userRepository.findById(userId)
+            .map(user -> {
+                Pageable recent = PageRequest.of(0, Math.max(1, Math.min(recentItems, MAX_RECENT_ITEMS)));
+                
+                // Each group is summed in its own currency; the totals across groups are converted to the base currency
+                String baseCurrency = fxRateService.getBaseCurrency();
+                Date now = new Date();
+                List<GroupBalance> groups = requestRepository.sumOutstandingByGroup(userId);
+                double totalOwing = 0;
+                double totalOwed = 0;
+                long openRequestsOwing = 0;
+                long openRequestsOwed = 0;
+                for (GroupBalance group : groups) {
+                    if (group.getCurrency() == null) {
+                        group.setCurrency(baseCurrency);
+                    }
+                    totalOwing += fxRateService.convert(group.getOwing(), group.getCurrency(), baseCurrency, now);
+                    totalOwed += fxRateService.convert(group.getOwed(), group.getCurrency(), baseCurrency, now);
+                    openRequestsOwing += group.getOpenRequestsOwing();
+                    openRequestsOwed += group.getOpenRequestsOwed();
+                }
+                
+                return new UserDashboard(
+                    user.getId(),
+                    user.getUsername(),
+                    user.getFullname(),
+                    user.getAmount(),
+                    baseCurrency,
+                    totalOwing,
+                    totalOwed,
+                    groups,
+                    openRequestsOwing,
+                    openRequestsOwed,
+                    paymentRepository.countByDebtor_Id(userId),
+                    paymentRepository.countByDebtee_Id(userId),
+                    withCurrency(requestRepository.findRecentUnfulfilledByDebtor(userId, recent), baseCurrency),
+                    withCurrency(requestRepository.findRecentUnfulfilledByDebtee(userId, recent), baseCurrency),
+                    withCurrency(paymentRepository.findRecentByDebtor(userId, recent), baseCurrency),
+                    withCurrency(paymentRepository.findRecentByDebtee(userId, recent), baseCurrency)
+                );
+            });
+    }
+    
+    /**
+     * Fill in the base currency on items stored before currencies were recorded
+     * @param items the dashboard items
+     * @param baseCurrency the currency to use when an item has none
+     * @return the same items
+     */
+    private List<DashboardItem> withCurrency(List<DashboardItem> items, String baseCurrency) {
+        for (DashboardItem item : items) {
+            if (item.getCurrency() == null) {
+                item.setCurrency(baseCurrency);
+            }
+        }
+        return items;
+    }
+}
@@ -1,21 +1,38 @@
 package com.fairsplit.service;
 
+import com.fairsplit.dto.ExpenseResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.dto.UserSummary;
+import com.fairsplit.event.GroupDataChangedEvent;
+import com.fairsplit.ledger.LedgerLocks;
+import com.fairsplit.model.ChangeType;
 import com.fairsplit.model.Expense;
 import com.fairsplit.model.Group;
 import com.fairsplit.model.User;
 import com.fairsplit.model.Request;
+import com.fairsplit.model.SplitType;
 import com.fairsplit.repository.ExpenseRepository;
 import com.fairsplit.repository.GroupRepository;
 import com.fairsplit.repository.UserRepository;
 import com.fairsplit.repository.RequestRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ExpenseService {
@@ -32,12 +49,37 @@ public class ExpenseService {
     @Autowired
     private RequestRepository requestRepository;
     
+    @Autowired
+    private FxRateService fxRateService;
+    
+    @Autowired
+    private OutboxService outboxService;
+    
+    @Autowired
+    private AttachmentService attachmentService;
+    
+    @Autowired
+    private ChangeLogService changeLogService;
+    
+    @Autowired
+    private UserTotalsService userTotalsService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private LedgerLocks ledgerLocks;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     /**
      * Get all expenses
      * @return List of all expenses
      */
-    public List<Expense> getAllExpenses() {
-        return expenseRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getAllExpenses() {
+        return ResponseMapper.map(expenseRepository.findAll(), ResponseMapper::toResponse);
     }
     
     /**
@@ -50,12 +92,43 @@ public class ExpenseService {
     }
     
     /**
-     * Get all expenses for a specific group
+     * Get all expenses for a specific group, in two queries: the expense columns, then the assigned users
      * @param groupId the group ID
      * @return List of expenses for that group
      */
-    public List<Expense> getExpensesByGroupId(Long groupId) {
-        return expenseRepository.findByGroup_Id(groupId);
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getExpensesByGroupId(Long groupId) {
+        return withAssignedUsers(expenseRepository.findResponsesByGroupId(groupId),
+            expenseRepository.findAssignedUsersByGroupId(groupId));
+    }
+    
+    /**
+     * Get expenses by ID, in two queries like getExpensesByGroupId
+     * @param ids the expense IDs
+     * @return the expenses found, in no particular order
+     */
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getExpensesByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withAssignedUsers(expenseRepository.findResponsesByIds(ids),
+            expenseRepository.findAssignedUsersByExpenseIds(ids));
+    }
+    
+    /**
+     * Fill in the assigned users of expenses from rows of expense ID, user ID, username and full name
+     */
+    private static List<ExpenseResponse> withAssignedUsers(List<ExpenseResponse> expenses, List<Object[]> rows) {
+        Map<Long, List<UserSummary>> assigned = new HashMap<>();
+        for (Object[] row : rows) {
+            assigned.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                .add(new UserSummary((Long) row[1], (String) row[2], (String) row[3]));
+        }
+        for (ExpenseResponse expense : expenses) {
+            expense.setAssignedUsers(assigned.getOrDefault(expense.getId(), new ArrayList<>()));
+        }
+        return expenses;
     }
     
     /**
@@ -67,10 +140,11 @@ public class ExpenseService {
      * @param endDate optional end date filter
      * @return List of filtered expenses
      */
-    public List<Expense> getFilteredExpenses(Long groupId, Long userId, String category, Date startDate, Date endDate) {
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getFilteredExpenses(Long groupId, Long userId, String category, Date startDate, Date endDate) {
         // If no filters applied, return all expenses for the group
         if (userId == null && category == null && startDate == null && endDate == null) {
-            return expenseRepository.findByGroup_Id(groupId);
+            return getExpensesByGroupId(groupId);
         }
         
         // Apply filters
@@ -104,17 +178,40 @@ public class ExpenseService {
                 .toList();
         }
         
-        return result;
+        return ResponseMapper.map(result, ResponseMapper::toResponse);
     }
     
     /**
-     * Create a new expense and generate associated requests
+     * Create a new expense and generate associated requests, one per assigned user
+     * with that user's share according to the expense split type
      * @param expense the expense to create
      * @return the created expense
      * @throws IllegalArgumentException if the expense is invalid
      */
-    @Transactional
     public Expense createExpense(Expense expense) throws IllegalArgumentException {
+        // Lock the group and the users named in the expense until the transaction commits;
+        // an expense for the whole group is covered by the group's lock
+        Set<Long> userIds = new HashSet<>();
+        if (expense.getPayer() != null) {
+            userIds.add(expense.getPayer().getId());
+        }
+        if (expense.getAssignedUsers() != null) {
+            for (User assignedUser : expense.getAssignedUsers()) {
+                userIds.add(assignedUser.getId());
+            }
+        }
+        if (expense.getSplits() != null) {
+            userIds.addAll(expense.getSplits().keySet());
+        }
+        Long groupId = expense.getGroup() == null ? null : expense.getGroup().getId();
+        return ledgerLocks.withLocks(groupId, userIds,
+            () -> new TransactionTemplate(transactionManager).execute(status -> insertExpense(expense)));
+    }
+    
+    /**
+     * Validate and save an expense with its requests, inside the transaction createExpense opened
+     */
+    private Expense insertExpense(Expense expense) {
         // Validate expense
         if (expense.getName() == null || expense.getName().isEmpty()) {
             throw new IllegalArgumentException("Expense name cannot be empty");
@@ -136,14 +233,36 @@ public class ExpenseService {
         Group group = groupRepository.findById(expense.getGroup().getId())
             .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         
-        // Verify that the assigned users exist and belong to the group
-        List<User> assignedUsers = new ArrayList<>();
+        // Verify that the assigned users exist and belong to the group, loading them in one query
+        SplitType splitType = expense.getSplitType() == null ? SplitType.EQUAL : expense.getSplitType();
+        Map<Long, Double> splits = expense.getSplits();
+        Set<Long> assignedIds = new LinkedHashSet<>();
         if (expense.getAssignedUsers() != null && !expense.getAssignedUsers().isEmpty()) {
             for (User assignedUser : expense.getAssignedUsers()) {
-                User user = userRepository.findById(assignedUser.getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Assigned user not found"));
+                assignedIds.add(assignedUser.getId());
+            }
+        } else if (splitType != SplitType.EQUAL && splits != null) {
+            // Uneven splits name their users through the split values
+            assignedIds.addAll(splits.keySet());
+        }
+        
+        List<User> assignedUsers = new ArrayList<>();
+        if (!assignedIds.isEmpty()) {
+            Set<Long> memberIds = new HashSet<>();
+            for (User member : group.getUsers()) {
+                memberIds.add(member.getId());
+            }
+            Map<Long, User> usersById = new HashMap<>();
+            for (User user : userRepository.findAllById(assignedIds)) {
+                usersById.put(user.getId(), user);
+            }
+            for (Long assignedId : assignedIds) {
+                User user = usersById.get(assignedId);
+                if (user == null) {
+                    throw new IllegalArgumentException("Assigned user not found");
+                }
                 
-                if (!user.getGroups().contains(group)) {
+                if (!memberIds.contains(assignedId)) {
                     throw new IllegalArgumentException("Assigned user does not belong to the group");
                 }
                 
@@ -154,30 +273,70 @@ public class ExpenseService {
             assignedUsers.addAll(group.getUsers());
         }
         
+        // Work out every user's share before saving anything, so an invalid split is rejected up front
+        double[] values = null;
+        if (splitType != SplitType.EQUAL) {
+            if (splits == null || splits.size() != assignedUsers.size()) {
+                throw new IllegalArgumentException("A split value is required for every assigned user");
+            }
+            values = new double[assignedUsers.size()];
+            for (int i = 0; i < values.length; i++) {
+                Double value = splits.get(assignedUsers.get(i).getId());
+                if (value == null) {
+                    throw new IllegalArgumentException("A split value is required for every assigned user");
+                }
+                values[i] = value;
+            }
+        }
+        long[] shares = SplitCalculator.split(splitType, expense.getAmount(), values, assignedUsers.size());
+        
+        // Requests are always in the group currency: convert the total once at today's rate
+        // and spread it in proportion to the shares worked out in the expense currency
+        Date now = new Date();
+        String groupCurrency = fxRateService.settlementCurrency(group);
+        String expenseCurrency = fxRateService.normalize(expense.getCurrency(), groupCurrency);
+        if (!expenseCurrency.equals(groupCurrency)) {
+            double converted = fxRateService.convert(expense.getAmount(), expenseCurrency, groupCurrency, now);
+            double[] weights = new double[shares.length];
+            for (int i = 0; i < shares.length; i++) {
+                weights[i] = shares[i];
+            }
+            shares = SplitCalculator.split(SplitType.WEIGHTS, converted, weights, shares.length);
+        }
+        
         expense.setAssignedUsers(assignedUsers);
+        expense.setSplitType(splitType);
+        expense.setCurrency(expenseCurrency);
         expense.setPaid(false);
-        expense.setCreatedAt(new Date());
-        expense.setUpdatedAt(new Date());
+        expense.setCreatedAt(now);
+        expense.setUpdatedAt(now);
         
         // Save the expense
         Expense savedExpense = expenseRepository.save(expense);
         
-        // Generate REQUESTS for each assigned user (except the payer)
-        double amountPerUser = savedExpense.getAmount() / savedExpense.getAssignedUsers().size();
-        
-        for (User assignedUser : savedExpense.getAssignedUsers()) {
-            // Don't create a request for the payer to themselves
-            if (!assignedUser.getId().equals(payer.getId())) {
-                Request request = new Request(
-                    amountPerUser,
+        // Generate REQUESTS for each assigned user (except the payer), saved together in one batch
+        List<Request> requests = new ArrayList<>(assignedUsers.size());
+        for (int i = 0; i < assignedUsers.size(); i++) {
+            User assignedUser = assignedUsers.get(i);
+            // Don't create a request for the payer to themselves, nor for a zero share
+            if (!assignedUser.getId().equals(payer.getId()) && shares[i] > 0) {
+                requests.add(new Request(
+                    shares[i] / 100.0,
                     savedExpense,
                     assignedUser, // Debtor (person who owes money)
                     payer,       // Debtee (person who paid)
                     group
-                );
-                requestRepository.save(request);
+                ));
             }
         }
+        requestRepository.saveAll(requests);
+        userTotalsService.recordOpened(requests);
+        changeLogService.recordChanged(ChangeType.EXPENSE, savedExpense.getId(), group.getId());
+        changeLogService.recordRequests(requests, false);
+        
+        // Notify the debtors once this transaction commits
+        outboxService.recordRequestsAssigned(savedExpense, requests);
+        eventPublisher.publishEvent(new GroupDataChangedEvent(group.getId()));
         
         return savedExpense;
     }
@@ -189,6 +348,19 @@ public class ExpenseService {
      * @return Optional containing the updated expense if found
      */
     public Optional<Expense> updateExpense(Long id, Expense expenseDetails) {
+        List<Object[]> parties = expenseRepository.findPartiesById(id);
+        if (parties.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] party = parties.get(0);
+        return ledgerLocks.withLocks((Long) party[0], Collections.singletonList((Long) party[1]),
+            () -> new TransactionTemplate(transactionManager).execute(status -> changeExpense(id, expenseDetails)));
+    }
+    
+    /**
+     * Apply the changes to an expense, inside the transaction updateExpense opened
+     */
+    private Optional<Expense> changeExpense(Long id, Expense expenseDetails) {
         return expenseRepository.findById(id)
             .map(expense -> {
                 if (expenseDetails.getName() != null) {
@@ -204,25 +376,59 @@ public class ExpenseService {
                 }
                 
                 expense.setUpdatedAt(new Date());
+                changeLogService.recordChanged(ChangeType.EXPENSE, id, expense.getGroup().getId());
+                eventPublisher.publishEvent(new GroupDataChangedEvent(expense.getGroup().getId()));
                 return expenseRepository.save(expense);
             });
     }
     
     /**
-     * Delete an expense and its associated requests
+     * Delete an expense with its associated requests and attachments; receipt files
+     * no other expense shares are removed once the deletion commits
      * @param id the expense ID
      * @return true if deleted, false if not found
+     * @throws IllegalStateException if any of its requests has been fulfilled
      */
-    @Transactional
     public boolean deleteExpense(Long id) {
+        // Lock the group, the payer and everyone the expense's requests are between
+        List<Object[]> parties = expenseRepository.findPartiesById(id);
+        if (parties.isEmpty()) {
+            return false;
+        }
+        Object[] party = parties.get(0);
+        Set<Long> userIds = new HashSet<>();
+        userIds.add((Long) party[1]);
+        for (Object[] requestParty : requestRepository.findPartiesByExpenseId(id)) {
+            userIds.add((Long) requestParty[0]);
+            userIds.add((Long) requestParty[1]);
+        }
+        return ledgerLocks.withLocks((Long) party[0], userIds,
+            () -> new TransactionTemplate(transactionManager).execute(status -> removeExpense(id)));
+    }
+    
+    /**
+     * Delete an expense with its requests and attachments, inside the transaction deleteExpense opened
+     */
+    private boolean removeExpense(Long id) {
         return expenseRepository.findById(id)
             .map(expense -> {
-                // First delete associated requests
+                // First delete associated requests; payments no longer have a foreign key to
+                // their request since V4, so settled requests must be kept here
                 List<Request> requests = requestRepository.findByExpense_Id(id);
+                if (requests.stream().anyMatch(Request::isFulfilled)) {
+                    throw new IllegalStateException("Cannot delete an expense with fulfilled requests");
+                }
                 requestRepository.deleteAll(requests);
+                userTotalsService.recordClosed(requests);
+                changeLogService.recordRequests(requests, true);
+                
+                // and attachments, whose blobs are collected after commit
+                attachmentService.deleteAttachmentsOfExpense(id);
                 
                 // Then delete the expense
                 expenseRepository.delete(expense);
+                changeLogService.recordDeleted(ChangeType.EXPENSE, id, expense.getGroup().getId());
+                eventPublisher.publishEvent(new GroupDataChangedEvent(expense.getGroup().getId()));
                 return true;
             })
             .orElse(false);
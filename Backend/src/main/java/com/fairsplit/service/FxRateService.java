@@ -0,0 +1,155 @@
+package com.fairsplit.service;
+
+import com.fairsplit.model.FxRate;
+import com.fairsplit.model.Group;
+import com.fairsplit.repository.FxRateRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Currency;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-process cache of dated FX rates. Rates are loaded once from the fx_rates table
+ * and an optional CSV file, so conversions on the expense and payment paths are map
+ * lookups rather than database queries. Lookups are by date: a conversion at a given
+ * time uses the latest rate effective on or before that day.
+ */
+@Service
+public class FxRateService {
+    
+    @Autowired
+    private FxRateRepository fxRateRepository;
+    
+    // Currency every rate is quoted against, and the default settlement currency of groups
+    @Value("${fairsplit.fx.base-currency:USD}")
+    private String baseCurrency;
+    
+    // Optional CSV file of currency,yyyy-MM-dd,rate lines, merged over the table
+    @Value("${fairsplit.fx.rates-file:}")
+    private String ratesFile;
+    
+    // currency -> (epoch day -> value of one unit in the base currency); replaced wholesale on reload
+    private volatile Map<String, NavigableMap<Long, Double>> rates = Map.of();
+    
+    @PostConstruct
+    public void reload() {
+        Map<String, NavigableMap<Long, Double>> loaded = new HashMap<>();
+        for (FxRate fxRate : fxRateRepository.findAll()) {
+            put(loaded, fxRate.getCurrency(), toEpochDay(fxRate.getEffectiveDate()), fxRate.getRate());
+        }
+        if (ratesFile != null && !ratesFile.isBlank()) {
+            loadFile(Path.of(ratesFile), loaded);
+        }
+        this.rates = loaded;
+    }
+    
+    /**
+     * Get the base currency rates are quoted against
+     * @return the ISO code of the base currency
+     */
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+    
+    /**
+     * Get the currency a group settles in
+     * @param group the group, may be null
+     * @return the group currency, or the base currency if the group has none
+     */
+    public String settlementCurrency(Group group) {
+        if (group == null || group.getCurrency() == null) {
+            return baseCurrency;
+        }
+        return group.getCurrency();
+    }
+    
+    /**
+     * Check and normalize a currency code
+     * @param currency the currency code, may be null
+     * @param fallback the currency to use when none is given
+     * @return the upper-case ISO currency code
+     * @throws IllegalArgumentException if the code is not a known ISO 4217 currency
+     */
+    public String normalize(String currency, String fallback) {
+        if (currency == null || currency.isBlank()) {
+            return fallback;
+        }
+        String code = currency.trim().toUpperCase();
+        Currency.getInstance(code); // throws IllegalArgumentException for unknown codes
+        return code;
+    }
+    
+    /**
+     * Convert an amount between currencies using the rates effective at a point in time
+     * @param amount the amount in the source currency
+     * @param from the source currency
+     * @param to the target currency
+     * @param at the time of the conversion, e.g. the expense createdAt
+     * @return the converted amount, not rounded
+     * @throws IllegalArgumentException if no rate is known for either currency on that date
+     */
+    public double convert(double amount, String from, String to, Date at) {
+        if (from.equals(to)) {
+            return amount;
+        }
+        long day = toEpochDay(at);
+        return amount * rateOn(from, day) / rateOn(to, day);
+    }
+    
+    private double rateOn(String currency, long day) {
+        if (currency.equals(baseCurrency)) {
+            return 1.0;
+        }
+        NavigableMap<Long, Double> byDay = rates.get(currency);
+        Map.Entry<Long, Double> entry = byDay == null ? null : byDay.floorEntry(day);
+        if (entry == null) {
+            throw new IllegalArgumentException("No FX rate for " + currency + " on " + LocalDate.ofEpochDay(day));
+        }
+        return entry.getValue();
+    }
+    
+    private static void put(Map<String, NavigableMap<Long, Double>> target, String currency, long day, double rate) {
+        target.computeIfAbsent(currency, code -> new TreeMap<>()).put(day, rate);
+    }
+    
+    private static long toEpochDay(Date date) {
+        if (date instanceof java.sql.Date sqlDate) {
+            return sqlDate.toLocalDate().toEpochDay();
+        }
+        return date.toInstant().atZone(ZoneOffset.UTC).toLocalDate().toEpochDay();
+    }
+    
+    private static void loadFile(Path path, Map<String, NavigableMap<Long, Double>> target) {
+        try {
+            List<String> lines = Files.readAllLines(path);
+            for (String line : lines) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("currency")) {
+                    continue;
+                }
+                String[] fields = trimmed.split(",");
+                if (fields.length != 3) {
+                    throw new IllegalArgumentException("Malformed FX rate line: " + line);
+                }
+                put(target, fields[0].trim().toUpperCase(), LocalDate.parse(fields[1].trim()).toEpochDay(),
+                    Double.parseDouble(fields[2].trim()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read FX rates file " + path, e);
+        }
+    }
+}
@@ -1,29 +1,53 @@
 package com.fairsplit.service;
 
+import com.fairsplit.dto.GroupResponse;
+import com.fairsplit.dto.MembershipChange;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.event.GroupDataChangedEvent;
+import com.fairsplit.model.ChangeType;
 import com.fairsplit.model.Group;
 import com.fairsplit.model.User;
 import com.fairsplit.repository.GroupRepository;
 import com.fairsplit.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class GroupService {
+    // Bound on the IDs in one bulk call, keeping the IN lists well under the driver's parameter limit
+    private static final int MAX_BULK_USERS = 10000;
+
     @Autowired
     private GroupRepository groupRepository;
 
     @Autowired 
     private UserRepository userRepository;
 
+    @Autowired
+    private FxRateService fxRateService;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Get all groups from the database
-     * @return a list of all groups
+     * @return a list of all groups with their members
      */
-    public List<Group> getAllGroups() {
-        return groupRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<GroupResponse> getAllGroups() {
+        return ResponseMapper.map(groupRepository.findAll(), ResponseMapper::toResponse);
     }
 
     /**
@@ -42,6 +66,7 @@ public class GroupService {
      * @return the updated group
      * @throws IllegalArgumentException if the group or user is not found, or if the user is not a member of the group
      */
+    @Transactional
     public Group removeUserFromGroup(Long groupId, Long userId) {
         Optional<Group> existingGroupOpt = groupRepository.findById(groupId);
         if (!existingGroupOpt.isPresent()) {
@@ -63,7 +88,9 @@ public class GroupService {
         
         // Remove user from the group
         group.removeUser(user);
+        changeLogService.recordMembers(groupId, List.of(userId), true);
 
+        eventPublisher.publishEvent(new GroupDataChangedEvent(groupId));
         return groupRepository.save(group);
     }
 
@@ -74,6 +101,7 @@ public class GroupService {
      * @return the updated group
      * @throws IllegalArgumentException if the group or user is not found, or if the user is already a member of the group
      */
+    @Transactional
     public Group addUserToGroup(Long groupId, Long userId) {
         Optional<Group> existingGroupOpt = groupRepository.findById(groupId);
         if (!existingGroupOpt.isPresent()) {
@@ -95,16 +123,121 @@ public class GroupService {
         
         // Add user to the group
         group.addUser(user);
+        changeLogService.recordMembers(groupId, List.of(userId), false);
 
+        eventPublisher.publishEvent(new GroupDataChangedEvent(groupId));
         return groupRepository.save(group);
     }
 
+    /**
+     * Add many users to a group with set-based SQL: one query to validate the users, one to
+     * find existing memberships and one insert, instead of loading and saving the group per user
+     * @param groupId the ID of the group
+     * @param userIds the IDs of the users to add, duplicates are reported once
+     * @return the outcome for every distinct user ID, in the order sent
+     * @throws IllegalArgumentException if the group is not found or the ID list is empty or too long
+     */
+    @Transactional
+    public List<MembershipChange> addUsersToGroup(Long groupId, List<Long> userIds) {
+        Set<Long> ids = validateBulk(groupId, userIds);
+        Set<Long> existing = existingUserIds(ids);
+        Set<Long> members = new HashSet<>(groupRepository.findMemberIds(groupId, ids));
+
+        List<Long> toAdd = new ArrayList<>();
+        List<MembershipChange> changes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (!existing.contains(id)) {
+                changes.add(new MembershipChange(id, MembershipChange.Status.USER_NOT_FOUND));
+            } else if (members.contains(id)) {
+                changes.add(new MembershipChange(id, MembershipChange.Status.ALREADY_MEMBER));
+            } else {
+                toAdd.add(id);
+                changes.add(new MembershipChange(id, MembershipChange.Status.ADDED));
+            }
+        }
+
+        // A concurrent add of the same user is absorbed by ON CONFLICT DO NOTHING
+        if (!toAdd.isEmpty()) {
+            groupRepository.addMembers(groupId, toAdd);
+            changeLogService.recordMembers(groupId, toAdd, false);
+            eventPublisher.publishEvent(new GroupDataChangedEvent(groupId));
+        }
+        return changes;
+    }
+
+    /**
+     * Remove many users from a group with one set-based delete
+     * @param groupId the ID of the group
+     * @param userIds the IDs of the users to remove, duplicates are reported once
+     * @return the outcome for every distinct user ID, in the order sent
+     * @throws IllegalArgumentException if the group is not found or the ID list is empty or too long
+     */
+    @Transactional
+    public List<MembershipChange> removeUsersFromGroup(Long groupId, List<Long> userIds) {
+        Set<Long> ids = validateBulk(groupId, userIds);
+        Set<Long> existing = existingUserIds(ids);
+        Set<Long> members = new HashSet<>(groupRepository.findMemberIds(groupId, ids));
+
+        List<MembershipChange> changes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (!existing.contains(id)) {
+                changes.add(new MembershipChange(id, MembershipChange.Status.USER_NOT_FOUND));
+            } else if (members.contains(id)) {
+                changes.add(new MembershipChange(id, MembershipChange.Status.REMOVED));
+            } else {
+                changes.add(new MembershipChange(id, MembershipChange.Status.NOT_MEMBER));
+            }
+        }
+
+        if (!members.isEmpty()) {
+            groupRepository.removeMembers(groupId, members);
+            changeLogService.recordMembers(groupId, members, true);
+            eventPublisher.publishEvent(new GroupDataChangedEvent(groupId));
+        }
+        return changes;
+    }
+
+    /**
+     * Check a bulk membership call and drop duplicate and null IDs, keeping the order sent
+     */
+    private Set<Long> validateBulk(Long groupId, List<Long> userIds) {
+        if (!groupRepository.existsById(groupId)) {
+            throw new IllegalArgumentException("Group not found with id: " + groupId);
+        }
+        if (userIds == null || userIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one user ID is required");
+        }
+        if (userIds.size() > MAX_BULK_USERS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_USERS + " user IDs per call");
+        }
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one user ID is required");
+        }
+        return ids;
+    }
+
+    /**
+     * Find which of the given user IDs exist, in one query
+     */
+    private Set<Long> existingUserIds(Set<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (User user : userRepository.findAllById(ids)) {
+            existing.add(user.getId());
+        }
+        return existing;
+    }
+
     /**
      * Delete a group by its ID
      * @param id the ID of the group to delete
      */
+    @Transactional
     public void deleteGroupById(Long id) {
         groupRepository.deleteById(id);
+        changeLogService.recordDeleted(ChangeType.GROUP, id, id);
+        eventPublisher.publishEvent(new GroupDataChangedEvent(id));
     }
     
     /**
@@ -114,6 +247,7 @@ public class GroupService {
      * @return the updated group
      * @throws IllegalArgumentException if the group is not found
      */
+    @Transactional
     public Group updateGroup(Long id, Group newGroupDetails) {
         Optional<Group> existingGroupOpt = groupRepository.findById(id);
         if (!existingGroupOpt.isPresent()) {
@@ -133,17 +267,32 @@ public class GroupService {
         }
         
         // Don't update users list here - that should be handled by specific add/remove user methods
-        return groupRepository.save(existingGroup);
+        changeLogService.recordChanged(ChangeType.GROUP, id, id);
+        Group savedGroup = groupRepository.save(existingGroup);
+        eventPublisher.publishEvent(new GroupDataChangedEvent(id));
+        return savedGroup;
     }
 
     /**
      * Create a new group
      * @param group the group to create
      * @return the saved group
+     * @throws IllegalArgumentException if the settlement currency is not a valid ISO code
      */
+    @Transactional
     public Group createGroup(Group group)  {
         group.setActive(true);
-        return groupRepository.save(group);
+        group.setCurrency(fxRateService.normalize(group.getCurrency(), fxRateService.getBaseCurrency()));
+        Group savedGroup = groupRepository.save(group);
+        changeLogService.recordChanged(ChangeType.GROUP, savedGroup.getId(), savedGroup.getId());
+        if (savedGroup.getUsers() != null && !savedGroup.getUsers().isEmpty()) {
+            List<Long> userIds = new ArrayList<>(savedGroup.getUsers().size());
+            for (User user : savedGroup.getUsers()) {
+                userIds.add(user.getId());
+            }
+            changeLogService.recordMembers(savedGroup.getId(), userIds, false);
+        }
+        return savedGroup;
     }
 
 
@@ -153,9 +302,12 @@ public class GroupService {
      * @param id the ID of the group to delete
      * @return true if the group was deleted, false if not found
      */
+    @Transactional
     public boolean deleteGroup(Long id) {
         if (groupRepository.existsById(id)) {
             groupRepository.deleteById(id);
+            changeLogService.recordDeleted(ChangeType.GROUP, id, id);
+            eventPublisher.publishEvent(new GroupDataChangedEvent(id));
             return true;
         }
         return false;
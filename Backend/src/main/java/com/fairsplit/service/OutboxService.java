@@ -0,0 +1,67 @@
+package com.fairsplit.service;
+
+import com.fairsplit.model.Expense;
+import com.fairsplit.model.OutboxEvent;
+import com.fairsplit.model.OutboxEventType;
+import com.fairsplit.model.Request;
+import com.fairsplit.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records notifications in the outbox. Always called from inside the transaction of
+ * the change being reported, so an event exists exactly when the change was committed;
+ * delivery happens later in OutboxDispatcher, off the request path.
+ */
+@Service
+public class OutboxService {
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    /**
+     * Record that an expense assigned requests to its users, one event per debtor
+     * @param expense the saved expense
+     * @param requests the requests generated for it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRequestsAssigned(Expense expense, List<Request> requests) {
+        List<OutboxEvent> events = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            events.add(new OutboxEvent(
+                OutboxEventType.REQUEST_ASSIGNED,
+                request.getDebtor().getId(),
+                request.getId(),
+                request.getGroup().getId(),
+                request.getAmount(),
+                String.format("%s added %s in %s, you owe %.2f %s",
+                    request.getDebtee().getUsername(), expense.getName(), request.getGroup().getName(),
+                    request.getAmount(), request.getGroup().getCurrency())
+            ));
+        }
+        outboxEventRepository.saveAll(events);
+    }
+    
+    /**
+     * Record that a request was accepted, notifying the user who is owed
+     * @param request the fulfilled request
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRequestAccepted(Request request) {
+        outboxEventRepository.save(new OutboxEvent(
+            OutboxEventType.REQUEST_ACCEPTED,
+            request.getDebtee().getId(),
+            request.getId(),
+            request.getGroup().getId(),
+            request.getAmount(),
+            String.format("%s paid %.2f %s for %s",
+                request.getDebtor().getUsername(), request.getAmount(),
+                request.getGroup().getCurrency(), request.getExpense().getName())
+        ));
+    }
+}
@@ -1,15 +1,25 @@
 package com.fairsplit.service;
 
+import com.fairsplit.dto.PaymentResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.event.GroupDataChangedEvent;
+import com.fairsplit.ledger.LedgerLocks;
 import com.fairsplit.model.Payment;
 import com.fairsplit.model.Request;
 import com.fairsplit.model.User;
+import com.fairsplit.repository.GroupRepository;
 import com.fairsplit.repository.PaymentRepository;
 import com.fairsplit.repository.RequestRepository;
 import com.fairsplit.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -26,12 +36,34 @@ public class PaymentService {
     @Autowired
     private RequestRepository requestRepository;
     
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private FxRateService fxRateService;
+    
+    @Autowired
+    private ChangeLogService changeLogService;
+    
+    @Autowired
+    private UserTotalsService userTotalsService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private LedgerLocks ledgerLocks;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     /**
      * Get all payments
      * @return List of all payments
      */
-    public List<Payment> getAllPayments() {
-        return paymentRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<PaymentResponse> getAllPayments() {
+        return ResponseMapper.map(paymentRepository.findAll(), ResponseMapper::toResponse);
     }
     
     /**
@@ -48,8 +80,8 @@ public class PaymentService {
      * @param userId the debtor's user ID
      * @return List of payments made by the debtor
      */
-    public List<Payment> getPaymentsByDebtorId(Long userId) {
-        return paymentRepository.findByDebtor_Id(userId);
+    public List<PaymentResponse> getPaymentsByDebtorId(Long userId) {
+        return paymentRepository.findResponsesByDebtorId(userId);
     }
     
     /**
@@ -57,8 +89,8 @@ public class PaymentService {
      * @param userId the debtee's user ID
      * @return List of payments received by the debtee
      */
-    public List<Payment> getPaymentsByDebteeId(Long userId) {
-        return paymentRepository.findByDebtee_Id(userId);
+    public List<PaymentResponse> getPaymentsByDebteeId(Long userId) {
+        return paymentRepository.findResponsesByDebteeId(userId);
     }
     
     /**
@@ -66,8 +98,8 @@ public class PaymentService {
      * @param groupId the group ID
      * @return List of payments in the group
      */
-    public List<Payment> getPaymentsByGroupId(Long groupId) {
-        return paymentRepository.findByGroup_Id(groupId);
+    public List<PaymentResponse> getPaymentsByGroupId(Long groupId) {
+        return paymentRepository.findResponsesByGroupId(groupId);
     }
     
     /**
@@ -75,8 +107,30 @@ public class PaymentService {
      * @param payment the payment to create
      * @return the created payment
      */
-    @Transactional
     public Payment createPayment(Payment payment) throws IllegalArgumentException {
+        // Lock the group and both users until the transaction commits. A payment for a request
+        // locks the request's group and parties too, so two payments for it can't both go through
+        Long groupId = payment.getGroup() == null ? null : payment.getGroup().getId();
+        List<Long> userIds = new ArrayList<>(4);
+        userIds.add(payment.getDebtor() == null ? null : payment.getDebtor().getId());
+        userIds.add(payment.getDebtee() == null ? null : payment.getDebtee().getId());
+        if (payment.getRequest() != null && payment.getRequest().getId() != null) {
+            List<Object[]> parties = requestRepository.findPartiesById(payment.getRequest().getId());
+            if (!parties.isEmpty()) {
+                Object[] party = parties.get(0);
+                groupId = (Long) party[0];
+                userIds.add((Long) party[1]);
+                userIds.add((Long) party[2]);
+            }
+        }
+        return ledgerLocks.withLocks(groupId, userIds,
+            () -> new TransactionTemplate(transactionManager).execute(status -> insertPayment(payment)));
+    }
+    
+    /**
+     * Validate and save a payment, moving the balances, inside the transaction createPayment opened
+     */
+    private Payment insertPayment(Payment payment) {
         // Validate payment: check all input valid
         if (payment.getName() == null || payment.getName().isEmpty()) {
             throw new IllegalArgumentException("Payment name cannot be empty");
@@ -86,39 +140,74 @@ public class PaymentService {
             throw new IllegalArgumentException("Payment amount must be positive");
         }
         
-        if (payment.getDebtor() == null || payment.getDebtee() == null) {
+        if (payment.getDebtor() == null || payment.getDebtee() == null
+                || payment.getDebtor().getId() == null || payment.getDebtee().getId() == null) {
             throw new IllegalArgumentException("Payment must have a debtor and debtee");
         }
         
+        // Move balances from their current values, read under the locks, not from what the caller sent
+        payment.setDebtor(userRepository.findById(payment.getDebtor().getId())
+            .orElseThrow(() -> new IllegalArgumentException("Debtor user not found")));
+        payment.setDebtee(userRepository.findById(payment.getDebtee().getId())
+            .orElseThrow(() -> new IllegalArgumentException("Debtee user not found")));
+        if (payment.getRequest() != null && payment.getRequest().getId() != null) {
+            payment.setRequest(requestRepository.findById(payment.getRequest().getId())
+                .orElseThrow(() -> new IllegalArgumentException("Request not found")));
+        }
+        // The settlement currency is the group's, so load the group rather than trust the body
+        if (payment.getGroup() != null) {
+            if (payment.getGroup().getId() == null) {
+                throw new IllegalArgumentException("Group not found");
+            }
+            payment.setGroup(groupRepository.findById(payment.getGroup().getId())
+                .orElseThrow(() -> new IllegalArgumentException("Group not found")));
+        }
+        
         // Set timestamps
         payment.setCreatedAt(new Date());
         payment.setUpdatedAt(new Date());
         
+        // Payments can be made in any currency, but requests and balances are settled in the group currency
+        payment.setCurrency(fxRateService.normalize(payment.getCurrency(), settlementCurrency(payment)));
+        double settledAmount = settledAmount(payment);
+        
         // If payment is linked to a request, mark the request as fulfilled
         if (payment.getRequest() != null) {
             Request request = payment.getRequest();
             
-            // Verify that the payment amount matches the request amount
-            if (!payment.getAmount().equals(request.getAmount())) {
+            // Verify that the payment amount matches the request amount, to the cent
+            if (SplitCalculator.toCents(settledAmount) != SplitCalculator.toCents(request.getAmount())) {
                 throw new IllegalArgumentException("Payment amount must match request amount");
             }
             
-            // Mark the request as fulfilled
+            // Payments have no unique key on their request since V4, so a request is paid at most once here
+            if (request.isFulfilled() || paymentRepository.findByRequest_Id(request.getId()).isPresent()) {
+                throw new IllegalArgumentException("Request has already been paid");
+            }
+            
+            // Mark the request as fulfilled, it no longer counts in the open totals
+            userTotalsService.recordClosed(List.of(request));
             request.setFulfilled(true);
             request.setUpdatedAt(new Date());
             requestRepository.save(request);
         }
         
-        // Update user balances
+        // Update user balances, which span every group and so are kept in the base currency
+        double balanceAmount = balanceAmount(payment, settledAmount);
         User debtor = payment.getDebtor();
-        debtor.setAmount(debtor.getAmount() - payment.getAmount());
+        debtor.setAmount(debtor.getAmount() - balanceAmount);
         userRepository.save(debtor);
         
         User debtee = payment.getDebtee();
-        debtee.setAmount(debtee.getAmount() + payment.getAmount());
+        debtee.setAmount(debtee.getAmount() + balanceAmount);
         userRepository.save(debtee);
         
-        return paymentRepository.save(payment);
+        // Balances show in every group the two users are in
+        eventPublisher.publishEvent(GroupDataChangedEvent.allGroups());
+        
+        Payment savedPayment = paymentRepository.save(payment);
+        changeLogService.recordPayment(savedPayment, false);
+        return savedPayment;
     }
     
     /**
@@ -126,30 +215,82 @@ public class PaymentService {
      * @param id the payment ID
      * @return true if deleted, false if not found
      */
-    @Transactional
     public boolean deletePayment(Long id) {
+        List<Object[]> parties = paymentRepository.findPartiesById(id);
+        if (parties.isEmpty()) {
+            return false;
+        }
+        Object[] party = parties.get(0);
+        return ledgerLocks.withLocks((Long) party[0], Arrays.asList((Long) party[1], (Long) party[2]),
+            () -> new TransactionTemplate(transactionManager).execute(status -> removePayment(id)));
+    }
+    
+    /**
+     * Revert and delete a payment, inside the transaction deletePayment opened
+     */
+    private boolean removePayment(Long id) {
         return paymentRepository.findById(id)
             .map(payment -> {
                 // If payment is linked to a request, mark the request as unfulfilled
                 if (payment.getRequest() != null) {
                     Request request = payment.getRequest();
+                    if (request.isFulfilled()) {
+                        userTotalsService.recordOpened(List.of(request));
+                    }
                     request.setFulfilled(false);
+                    // Open requests live in the hot partitions, bring it back if it was archived
+                    request.setArchived(false);
                     request.setUpdatedAt(new Date());
                     requestRepository.save(request);
                 }
                 
-                // Revert user balances
+                // Revert user balances, converted at the rate of the day the payment was made
+                double balanceAmount = balanceAmount(payment, settledAmount(payment));
                 User debtor = payment.getDebtor();
-                debtor.setAmount(debtor.getAmount() + payment.getAmount());
+                debtor.setAmount(debtor.getAmount() + balanceAmount);
                 userRepository.save(debtor);
                 
                 User debtee = payment.getDebtee();
-                debtee.setAmount(debtee.getAmount() - payment.getAmount());
+                debtee.setAmount(debtee.getAmount() - balanceAmount);
                 userRepository.save(debtee);
                 
                 paymentRepository.delete(payment);
+                changeLogService.recordPayment(payment, true);
+                eventPublisher.publishEvent(GroupDataChangedEvent.allGroups());
                 return true;
             })
             .orElse(false);
     }
+    
+    /**
+     * Get the currency a payment is settled in: that of its group, or of its request's group
+     * @param payment the payment
+     * @return the ISO code of the settlement currency
+     */
+    private String settlementCurrency(Payment payment) {
+        if (payment.getGroup() == null && payment.getRequest() != null) {
+            return fxRateService.settlementCurrency(payment.getRequest().getGroup());
+        }
+        return fxRateService.settlementCurrency(payment.getGroup());
+    }
+    
+    /**
+     * Convert a payment amount to its settlement currency at the rate of its creation date
+     * @param payment the payment
+     * @return the amount in the settlement currency
+     */
+    private double settledAmount(Payment payment) {
+        String currency = payment.getCurrency() == null ? settlementCurrency(payment) : payment.getCurrency();
+        return fxRateService.convert(payment.getAmount(), currency, settlementCurrency(payment), payment.getCreatedAt());
+    }
+    
+    /**
+     * Convert a settled amount to the base currency user balances are kept in, at the rate of the payment's creation date
+     * @param payment the payment
+     * @param settledAmount the amount in its settlement currency
+     * @return the amount in the base currency
+     */
+    private double balanceAmount(Payment payment, double settledAmount) {
+        return fxRateService.convert(settledAmount, settlementCurrency(payment), fxRateService.getBaseCurrency(), payment.getCreatedAt());
+    }
 }
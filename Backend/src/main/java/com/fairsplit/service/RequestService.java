@@ -1,14 +1,24 @@
 package com.fairsplit.service;
 
+import com.fairsplit.dto.RequestResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.event.GroupDataChangedEvent;
+import com.fairsplit.ledger.LedgerLocks;
+import com.fairsplit.model.ChangeType;
 import com.fairsplit.model.Request;
 import com.fairsplit.model.User;
 import com.fairsplit.model.Payment;
+import com.fairsplit.repository.GroupRepository;
 import com.fairsplit.repository.RequestRepository;
 import com.fairsplit.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -22,15 +32,40 @@ public class RequestService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private GroupRepository groupRepository;
+    
     @Autowired
     private PaymentService paymentService;
     
+    @Autowired
+    private FxRateService fxRateService;
+    
+    @Autowired
+    private OutboxService outboxService;
+    
+    @Autowired
+    private ChangeLogService changeLogService;
+    
+    @Autowired
+    private UserTotalsService userTotalsService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private LedgerLocks ledgerLocks;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     /**
      * Get all requests
      * @return List of all requests
      */
-    public List<Request> getAllRequests() {
-        return requestRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<RequestResponse> getAllRequests() {
+        return ResponseMapper.map(requestRepository.findAll(), ResponseMapper::toResponse);
     }
     
     /**
@@ -47,8 +82,8 @@ public class RequestService {
      * @param expenseId the expense ID
      * @return List of requests for that expense
      */
-    public List<Request> getRequestsByExpenseId(Long expenseId) {
-        return requestRepository.findByExpense_Id(expenseId);
+    public List<RequestResponse> getRequestsByExpenseId(Long expenseId) {
+        return requestRepository.findResponsesByExpenseId(expenseId);
     }
     
     /**
@@ -56,8 +91,8 @@ public class RequestService {
      * @param userId the user ID
      * @return List of requests where the user is the debtor
      */
-    public List<Request> getRequestsByDebtorId(Long userId) {
-        return requestRepository.findByDebtor_Id(userId);
+    public List<RequestResponse> getRequestsByDebtorId(Long userId) {
+        return requestRepository.findResponsesByDebtorId(userId);
     }
     
     /**
@@ -65,8 +100,8 @@ public class RequestService {
      * @param userId the user ID
      * @return List of unfulfilled requests where the user is the debtor
      */
-    public List<Request> getUnfulfilledRequestsByDebtorId(Long userId) {
-        return requestRepository.findByDebtor_IdAndIsFulfilledFalse(userId);
+    public List<RequestResponse> getUnfulfilledRequestsByDebtorId(Long userId) {
+        return requestRepository.findUnfulfilledResponsesByDebtorId(userId);
     }
     
     /**
@@ -74,8 +109,8 @@ public class RequestService {
      * @param userId the user ID
      * @return List of requests where the user is the debtee
      */
-    public List<Request> getRequestsByDebteeId(Long userId) {
-        return requestRepository.findByDebtee_Id(userId);
+    public List<RequestResponse> getRequestsByDebteeId(Long userId) {
+        return requestRepository.findResponsesByDebteeId(userId);
     }
     
     /**
@@ -83,8 +118,8 @@ public class RequestService {
      * @param groupId the group ID
      * @return List of requests for that group
      */
-    public List<Request> getRequestsByGroupId(Long groupId) {
-        return requestRepository.findByGroup_Id(groupId);
+    public List<RequestResponse> getRequestsByGroupId(Long groupId) {
+        return requestRepository.findResponsesByGroupId(groupId);
     }
     
     /**
@@ -92,8 +127,8 @@ public class RequestService {
      * @param groupId the group ID
      * @return List of unfulfilled requests for that group
      */
-    public List<Request> getUnfulfilledRequestsByGroupId(Long groupId) {
-        return requestRepository.findByGroup_IdAndIsFulfilledFalse(groupId);
+    public List<RequestResponse> getUnfulfilledRequestsByGroupId(Long groupId) {
+        return requestRepository.findUnfulfilledResponsesByGroupId(groupId);
     }
     
     /**
@@ -102,6 +137,19 @@ public class RequestService {
      * @return the created request
      */
     public Request createRequest(Request request) throws IllegalArgumentException {
+        // Lock the group and both users until the transaction commits
+        Long groupId = request.getGroup() == null ? null : request.getGroup().getId();
+        List<Long> userIds = Arrays.asList(
+            request.getDebtor() == null ? null : request.getDebtor().getId(),
+            request.getDebtee() == null ? null : request.getDebtee().getId());
+        return ledgerLocks.withLocks(groupId, userIds,
+            () -> new TransactionTemplate(transactionManager).execute(status -> insertRequest(request)));
+    }
+    
+    /**
+     * Validate and save a request, inside the transaction createRequest opened
+     */
+    private Request insertRequest(Request request) {
         // Validate request
         if (request.getAmount() == null || request.getAmount() <= 0) {
             throw new IllegalArgumentException("Request amount must be positive");
@@ -119,12 +167,20 @@ public class RequestService {
             throw new IllegalArgumentException("Request must be associated with a group");
         }
         
+        // The totals are kept in the group currency, so load the group rather than trust the body
+        request.setGroup(groupRepository.findById(request.getGroup().getId())
+            .orElseThrow(() -> new IllegalArgumentException("Group not found")));
+        
         // Set default values
         request.setFulfilled(false);
         request.setCreatedAt(new Date());
         request.setUpdatedAt(new Date());
         
-        return requestRepository.save(request);
+        Request savedRequest = requestRepository.save(request);
+        userTotalsService.recordOpened(List.of(savedRequest));
+        changeLogService.recordChanged(ChangeType.REQUEST, savedRequest.getId(), request.getGroup().getId());
+        eventPublisher.publishEvent(new GroupDataChangedEvent(request.getGroup().getId()));
+        return savedRequest;
     }
     
     /**
@@ -134,14 +190,31 @@ public class RequestService {
      * @return Optional containing the updated request if found
      */
     public Optional<Request> updateRequest(Long id, Request requestDetails) {
+        List<Object[]> parties = requestRepository.findPartiesById(id);
+        if (parties.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] party = parties.get(0);
+        return ledgerLocks.withLocks((Long) party[0], Arrays.asList((Long) party[1], (Long) party[2]),
+            () -> new TransactionTemplate(transactionManager).execute(status -> changeRequest(id, requestDetails)));
+    }
+    
+    /**
+     * Apply the changes to a request, inside the transaction updateRequest opened
+     */
+    private Optional<Request> changeRequest(Long id, Request requestDetails) {
         return requestRepository.findById(id)
             .map(request -> {
                 // Only allow updating the amount if the request is not fulfilled
                 if (!request.isFulfilled() && requestDetails.getAmount() != null && requestDetails.getAmount() > 0) {
+                    double previousAmount = request.getAmount();
                     request.setAmount(requestDetails.getAmount());
+                    userTotalsService.recordAmountChanged(request, previousAmount);
                 }
                 
                 request.setUpdatedAt(new Date());
+                changeLogService.recordChanged(ChangeType.REQUEST, id, request.getGroup().getId());
+                eventPublisher.publishEvent(new GroupDataChangedEvent(request.getGroup().getId()));
                 return requestRepository.save(request);
             });
     }
@@ -151,17 +224,32 @@ public class RequestService {
      * @param id the request ID
      * @return Optional containing the fulfilled request if found
      */
-    @Transactional
     public Optional<Request> acceptRequest(Long id) {
+        // Only the IDs are read before locking, the request itself is loaded once the locks are held
+        List<Object[]> parties = requestRepository.findPartiesById(id);
+        if (parties.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] party = parties.get(0);
+        return ledgerLocks.withLocks((Long) party[0], Arrays.asList((Long) party[1], (Long) party[2]),
+            () -> new TransactionTemplate(transactionManager).execute(status -> settleRequest(id)));
+    }
+    
+    /**
+     * Pay and fulfil a request, inside the transaction acceptRequest opened
+     */
+    private Optional<Request> settleRequest(Long id) {
         return requestRepository.findById(id)
             .map(request -> {
                 if (request.isFulfilled()) {
                     throw new IllegalStateException("Request has already been fulfilled");
                 }
                 
-                // Check if debtor has enough balance to pay
+                // Check if debtor has enough balance to pay; balances are in the base currency
                 User debtor = request.getDebtor();
-                if (debtor.getAmount() < request.getAmount()) {
+                double owed = fxRateService.convert(request.getAmount(), fxRateService.settlementCurrency(request.getGroup()),
+                    fxRateService.getBaseCurrency(), new Date());
+                if (debtor.getAmount() < owed) {
                     throw new IllegalStateException("Debtor does not have enough balance to fulfill this request");
                 }
 
@@ -182,6 +270,9 @@ public class RequestService {
                 request.setFulfilled(true);
                 request.setUpdatedAt(new Date());
                 
+                // Notify the debtee once this transaction commits
+                outboxService.recordRequestAccepted(request);
+                
                 return requestRepository.save(request);
             });
     }
@@ -192,6 +283,19 @@ public class RequestService {
      * @return true if deleted, false if not found
      */
     public boolean deleteRequest(Long id) {
+        List<Object[]> parties = requestRepository.findPartiesById(id);
+        if (parties.isEmpty()) {
+            return false;
+        }
+        Object[] party = parties.get(0);
+        return ledgerLocks.withLocks((Long) party[0], Arrays.asList((Long) party[1], (Long) party[2]),
+            () -> new TransactionTemplate(transactionManager).execute(status -> removeRequest(id)));
+    }
+    
+    /**
+     * Delete an unfulfilled request, inside the transaction deleteRequest opened
+     */
+    private boolean removeRequest(Long id) {
         return requestRepository.findById(id)
             .map(request -> {
                 if (request.isFulfilled()) {
@@ -199,6 +303,9 @@ public class RequestService {
                 }
                 
                 requestRepository.delete(request);
+                userTotalsService.recordClosed(List.of(request));
+                changeLogService.recordDeleted(ChangeType.REQUEST, id, request.getGroup().getId());
+                eventPublisher.publishEvent(new GroupDataChangedEvent(request.getGroup().getId()));
                 return true;
             })
             .orElse(false);
@@ -0,0 +1,114 @@
+package com.fairsplit.service;
+
+import com.fairsplit.model.SplitType;
+
+/**
+ * Divides an expense amount between users according to a {@link SplitType}.
+ * All arithmetic is done in whole cents, and the resulting shares always add up
+ * to the expense amount exactly.
+ */
+public final class SplitCalculator {
+    
+    // Tolerance when checking that percentages add up to 100
+    private static final double PERCENT_TOLERANCE = 1e-6;
+    
+    private SplitCalculator() {
+    }
+    
+    /**
+     * Convert an amount to whole cents
+     * @param amount the amount in currency units
+     * @return the amount rounded to the nearest cent
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+    
+    /**
+     * Split an amount between users
+     * @param type the split type
+     * @param amount the total amount to split, in currency units
+     * @param values one value per user (weight, percentage, exact amount or share), ignored for EQUAL
+     * @param users the number of users to split between
+     * @return the share of each user in cents, in the same order as values
+     * @throws IllegalArgumentException if the values are missing, negative or do not add up
+     */
+    public static long[] split(SplitType type, double amount, double[] values, int users) {
+        if (users <= 0) {
+            throw new IllegalArgumentException("An expense must be split between at least one user");
+        }
+        long totalCents = toCents(amount);
+        if (type == null || type == SplitType.EQUAL) {
+            return splitEqually(totalCents, users);
+        }
+        if (values == null || values.length != users) {
+            throw new IllegalArgumentException("A " + type + " split needs one value per assigned user");
+        }
+        
+        // Validation pass: every value must be usable, and their total is needed for the proportional types
+        double total = 0;
+        for (double value : values) {
+            if (!(value >= 0) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException("Split values must be non-negative numbers");
+            }
+            if (type == SplitType.SHARES && value != Math.rint(value)) {
+                throw new IllegalArgumentException("Shares must be whole numbers");
+            }
+            total += value;
+        }
+        
+        switch (type) {
+            case EXACT:
+                return splitExactly(totalCents, values);
+            case PERCENTAGES:
+                if (Math.abs(total - 100) > PERCENT_TOLERANCE) {
+                    throw new IllegalArgumentException("Percentages must add up to 100");
+                }
+                return splitProportionally(totalCents, values, total);
+            default:
+                if (total <= 0) {
+                    throw new IllegalArgumentException("At least one " + type.name().toLowerCase() + " value must be positive");
+                }
+                return splitProportionally(totalCents, values, total);
+        }
+    }
+    
+    private static long[] splitEqually(long totalCents, int users) {
+        long[] shares = new long[users];
+        long base = totalCents / users;
+        long remainder = totalCents % users;
+        for (int i = 0; i < users; i++) {
+            // Hand the leftover cents to the first users, one each
+            shares[i] = base + (i < remainder ? 1 : 0);
+        }
+        return shares;
+    }
+    
+    private static long[] splitExactly(long totalCents, double[] values) {
+        long[] shares = new long[values.length];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            shares[i] = toCents(values[i]);
+            sum += shares[i];
+        }
+        if (sum != totalCents) {
+            throw new IllegalArgumentException("Exact amounts must add up to the expense amount");
+        }
+        return shares;
+    }
+    
+    private static long[] splitProportionally(long totalCents, double[] values, double total) {
+        // Round the running total instead of each share: each share is then within one cent
+        // of its exact value and the shares add up to totalCents without a correction pass
+        long[] shares = new long[values.length];
+        double cumulative = 0;
+        long allocated = 0;
+        for (int i = 0; i < values.length; i++) {
+            cumulative += values[i];
+            long upTo = i == values.length - 1 ? totalCents : Math.round(totalCents * (cumulative / total));
+            shares[i] = upTo - allocated;
+            allocated = upTo;
+        }
+        return shares;
+    }
+}
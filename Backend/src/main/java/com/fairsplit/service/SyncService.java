@@ -0,0 +1,197 @@
+package com.fairsplit.service;
+
+import com.fairsplit.dto.ExpenseResponse;
+import com.fairsplit.dto.PaymentResponse;
+import com.fairsplit.dto.RequestResponse;
+import com.fairsplit.dto.ResponseMapper;
+import com.fairsplit.dto.SyncChange;
+import com.fairsplit.dto.SyncPage;
+import com.fairsplit.model.ChangeLogEntry;
+import com.fairsplit.model.ChangeType;
+import com.fairsplit.model.Group;
+import com.fairsplit.model.User;
+import com.fairsplit.repository.ChangeLogHeadRepository;
+import com.fairsplit.repository.ChangeLogRepository;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.PaymentRepository;
+import com.fairsplit.repository.RequestRepository;
+import com.fairsplit.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delta sync: serves the change log to clients that keep a copy of their groups. A client
+ * asks for a token, loads the groups through the regular endpoints, then polls with the
+ * token for the rows changed since. Re-applying a change is harmless, as every change
+ * carries the current state of its row, so loading after taking the token loses nothing.
+ */
+@Service
+public class SyncService {
+
+    // Page size when none is asked for, and the most one page can hold
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Entries are only served up to the change log head, below which every entry has committed
+    // or rolled back, so a token never skips a late commit
+    @Autowired
+    private ChangeLogHeadRepository changeLogHeadRepository;
+
+    /**
+     * Get the changes after a token, keeping only the latest change of each row in the page
+     * @param since a token from a previous call, or null to get a token to start from
+     * @param groupId optional group ID, to only get the changes of that group
+     * @param limit the maximum number of log entries to read, or null for the default
+     * @return the page of changes with the token for the next call
+     * @throws IllegalArgumentException if the token is negative or the limit out of range
+     * @throws IllegalStateException if changes after the token have been pruned from the log,
+     *                               the client must load its groups again
+     */
+    @Transactional(readOnly = true)
+    public SyncPage getChanges(Long since, Long groupId, Integer limit) {
+        int size = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (since != null && since < 0) {
+            throw new IllegalArgumentException("Invalid token");
+        }
+
+        Long committed = changeLogHeadRepository.findLastSeq();
+        long head = committed == null ? 0 : committed;
+        if (since == null) {
+            return new SyncPage(new ArrayList<>(), head, false);
+        }
+        if (!isRetained(since)) {
+            throw new IllegalStateException("Changes after token " + since + " are no longer in the change log");
+        }
+        if (since >= head) {
+            return new SyncPage(new ArrayList<>(), since, false);
+        }
+
+        // One extra entry tells whether there is more
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<ChangeLogEntry> entries = groupId == null
+            ? changeLogRepository.findRange(since, head, page)
+            : changeLogRepository.findGroupRange(groupId, since, head, page);
+        boolean hasMore = entries.size() > size;
+        if (hasMore) {
+            entries = entries.subList(0, size);
+        }
+        // Once caught up, move the token to the head so that it stays recent even for a quiet group
+        long nextToken = hasMore ? entries.get(entries.size() - 1).getSeq() : head;
+
+        return new SyncPage(toChanges(latestPerRow(entries)), nextToken, hasMore);
+    }
+
+    /**
+     * Check that no entry after a token has been pruned. The log always keeps its newest
+     * entry and tokens are sequence numbers of entries, so a token is still good while its
+     * own entry is there; 0, a token taken from an empty log, while the log starts at 1.
+     */
+    private boolean isRetained(long since) {
+        if (since == 0) {
+            return changeLogRepository.findFirstByOrderBySeqAsc().map(first -> first.getSeq() == 1).orElse(true);
+        }
+        return changeLogRepository.existsById(since);
+    }
+
+    /**
+     * Drop the entries superseded by a later one for the same row, keeping sequence order
+     */
+    private static List<ChangeLogEntry> latestPerRow(List<ChangeLogEntry> entries) {
+        Map<List<Object>, ChangeLogEntry> latest = new LinkedHashMap<>();
+        for (ChangeLogEntry entry : entries) {
+            // A membership is one user in one group
+            List<Object> row = entry.getEntityType() == ChangeType.MEMBERSHIP
+                ? List.of(entry.getEntityType(), entry.getEntityId(), entry.getGroupId())
+                : List.of(entry.getEntityType(), entry.getEntityId());
+            latest.remove(row);
+            latest.put(row, entry);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * Attach the current state of every changed row, loaded with one query per kind of row.
+     * A row that is gone by now is reported deleted; its own tombstone follows in a later page.
+     */
+    private List<SyncChange> toChanges(List<ChangeLogEntry> entries) {
+        Map<ChangeType, Set<Long>> ids = new EnumMap<>(ChangeType.class);
+        for (ChangeLogEntry entry : entries) {
+            if (!entry.isDeleted()) {
+                ids.computeIfAbsent(entry.getEntityType(), type -> new HashSet<>()).add(entry.getEntityId());
+            }
+        }
+
+        Map<ChangeType, Map<Long, Object>> rows = new EnumMap<>(ChangeType.class);
+        for (Map.Entry<ChangeType, Set<Long>> byType : ids.entrySet()) {
+            Map<Long, Object> loaded = new HashMap<>();
+            switch (byType.getKey()) {
+                case EXPENSE -> {
+                    for (ExpenseResponse expense : expenseService.getExpensesByIds(byType.getValue())) {
+                        loaded.put(expense.getId(), expense);
+                    }
+                }
+                case REQUEST -> {
+                    for (RequestResponse request : requestRepository.findResponsesByIds(byType.getValue())) {
+                        loaded.put(request.getId(), request);
+                    }
+                }
+                case PAYMENT -> {
+                    for (PaymentResponse payment : paymentRepository.findResponsesByIds(byType.getValue())) {
+                        loaded.put(payment.getId(), payment);
+                    }
+                }
+                case GROUP -> {
+                    for (Group group : groupRepository.findAllById(byType.getValue())) {
+                        loaded.put(group.getId(), ResponseMapper.toResponse(group));
+                    }
+                }
+                case MEMBERSHIP -> {
+                    for (User user : userRepository.findAllById(byType.getValue())) {
+                        loaded.put(user.getId(), ResponseMapper.toSummary(user));
+                    }
+                }
+            }
+            rows.put(byType.getKey(), loaded);
+        }
+
+        List<SyncChange> changes = new ArrayList<>(entries.size());
+        for (ChangeLogEntry entry : entries) {
+            Object data = entry.isDeleted() ? null : rows.get(entry.getEntityType()).get(entry.getEntityId());
+            changes.add(new SyncChange(entry.getSeq(), entry.getEntityType(), entry.getEntityId(),
+                entry.getGroupId(), data == null, data));
+        }
+        return changes;
+    }
+}
@@ -1,9 +1,17 @@
 package com.fairsplit.service;
 
+import com.fairsplit.dto.UserResponse;
+import com.fairsplit.event.GroupDataChangedEvent;
+import com.fairsplit.ledger.LedgerLocks;
 import com.fairsplit.model.User;
 import com.fairsplit.repository.UserRepository;
+import com.fairsplit.username.UsernameIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,12 +23,27 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private UsernameIndex usernameIndex;
+    
+    @Autowired
+    private UserTotalsService userTotalsService;
+    
+    @Autowired
+    private LedgerLocks ledgerLocks;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     /**
      * Get all users from the database
      * @return List of all users
      */
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public List<UserResponse> getAllUsers() {
+        return userRepository.findAllResponses();
     }
     
     /**
@@ -46,12 +69,12 @@ public class UserService {
      * @param groupId the group ID to filter users by
      * @return List of users belonging to the specified group
      */
-    public List<User> getFilteredUsers(Long groupId) {
+    public List<UserResponse> getFilteredUsers(Long groupId) {
         if (groupId == null) {
             return getAllUsers();
         }
         // Find users who belong to the specified group
-        return userRepository.findByGroups_Id(groupId);
+        return userRepository.findResponsesByGroupId(groupId);
     }
 
     /**
@@ -74,8 +97,12 @@ public class UserService {
 
         user.setUpdatedAt(new Date());
         user.setActive(true);
+        // The opening balance is not backed by any payment
+        user.setAdjustments(user.getAmount());
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        usernameIndex.add(savedUser.getUsername());
+        return savedUser;
     }
     /**
      * Update a user's balance by adding an amount to their current balance
@@ -84,11 +111,23 @@ public class UserService {
      * @return the updated user if found, otherwise empty Optional
      */
     public Optional<User> updateUserBalance(Long id, double newAmount){
+        // Balances are also moved by payments, so hold the user's lock until the transaction commits
+        return ledgerLocks.withLocks(null, List.of(id),
+            () -> new TransactionTemplate(transactionManager).execute(status -> setBalance(id, newAmount)));
+    }
+    
+    /**
+     * Set a user's balance, inside the transaction updateUserBalance opened
+     */
+    private Optional<User> setBalance(Long id, double newAmount) {
         Optional<User> userOptional = userRepository.findById(id);
         if (userOptional.isPresent()) {
             User user = userOptional.get();
+            user.setAdjustments(user.getAdjustments() + newAmount - user.getAmount());
             user.setAmount(newAmount);
             user.setUpdatedAt(new Date());
+            // Balances show in every group the user is in
+            eventPublisher.publishEvent(GroupDataChangedEvent.allGroups());
             return Optional.of(userRepository.save(user));
         }
         return Optional.empty();
@@ -101,13 +140,24 @@ public class UserService {
      * @return the updated user if found, otherwise empty Optional
      */
     public Optional<User> addUserAmount(Long id, double amountToAdd) {
+        return ledgerLocks.withLocks(null, List.of(id),
+            () -> new TransactionTemplate(transactionManager).execute(status -> addToBalance(id, amountToAdd)));
+    }
+    
+    /**
+     * Add to a user's balance, inside the transaction addUserAmount opened
+     */
+    private Optional<User> addToBalance(Long id, double amountToAdd) {
         Optional<User> userOptional = userRepository.findById(id);
         if (userOptional.isPresent()) {
             User user = userOptional.get();
             double currentAmount = user.getAmount();
             double newAmount = currentAmount + amountToAdd;
+            user.setAdjustments(user.getAdjustments() + amountToAdd);
             user.setAmount(newAmount);
             user.setUpdatedAt(new Date());
+            // Balances show in every group the user is in
+            eventPublisher.publishEvent(GroupDataChangedEvent.allGroups());
             return Optional.of(userRepository.save(user));
         }
         return Optional.empty();
@@ -121,6 +171,14 @@ public class UserService {
      * @throws IllegalArgumentException if trying to update to a username that already exists
      */
     public Optional<User> updateUser(Long id, User userDetails) throws IllegalArgumentException {
+        return ledgerLocks.withLocks(null, List.of(id),
+            () -> new TransactionTemplate(transactionManager).execute(status -> changeUser(id, userDetails)));
+    }
+    
+    /**
+     * Apply the changes to a user, inside the transaction updateUser opened
+     */
+    private Optional<User> changeUser(Long id, User userDetails) {
         Optional<User> user = userRepository.findById(id);
         if (user.isPresent()) {
             User existingUser = user.get();
@@ -131,6 +189,8 @@ public class UserService {
                     throw new IllegalArgumentException("Username already exists");
                 }
                 existingUser.setUsername(userDetails.getUsername());
+                // The old name stays in the filter until the next rebuild, costing only a database check
+                usernameIndex.add(userDetails.getUsername());
             }
             
             if (userDetails.getPassword() != null) {
@@ -142,12 +202,14 @@ public class UserService {
             }
             
             if (userDetails.getAmount() != null) {
+                existingUser.setAdjustments(existingUser.getAdjustments() + userDetails.getAmount() - existingUser.getAmount());
                 existingUser.setAmount(userDetails.getAmount());
             }
             
             // Update timestamp
             existingUser.setUpdatedAt(new Date());
             
+            eventPublisher.publishEvent(GroupDataChangedEvent.allGroups());
             return Optional.of(userRepository.save(existingUser));
         }
         
@@ -159,14 +221,27 @@ public class UserService {
      * @param id the ID of the user to delete
      * @return true if the user was deleted, false if not found
      */
+    @Transactional
     public boolean deleteUser(Long id) {
         if (userRepository.existsById(id)) {
+            // The open request counters reference the user
+            userTotalsService.deleteTotals(id);
             userRepository.deleteById(id);
+            eventPublisher.publishEvent(GroupDataChangedEvent.allGroups());
             return true;
         }
         return false;
     }
 
+    /**
+     * Check if a username is free to register, without a query when it definitely is
+     * @param username the username to check
+     * @return true if no user has the username
+     */
+    public boolean isUsernameAvailable(String username) {
+        return usernameIndex.isAvailable(username);
+    }
+
     /**
      * Check if a username already exists
      * @param username the username to check
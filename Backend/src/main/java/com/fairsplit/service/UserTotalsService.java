@@ -0,0 +1,153 @@
+package com.fairsplit.service;
+
+import com.fairsplit.dto.CurrencyTotals;
+import com.fairsplit.dto.UserTotals;
+import com.fairsplit.model.Request;
+import com.fairsplit.model.UserTotal;
+import com.fairsplit.repository.UserRepository;
+import com.fairsplit.repository.UserTotalRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Keeps every user's open request totals as counters, one row per user and settlement
+ * currency, so reading them costs the same however many requests and groups the user has.
+ * The request, expense and payment services report each request that opens, closes or
+ * changes amount from inside their own transaction; the counters commit or roll back with it.
+ */
+@Service
+public class UserTotalsService {
+
+    // Rows are updated in this order, so two transactions touching the same users can't deadlock
+    private static final Comparator<Key> ROW_ORDER = Comparator.comparing(Key::userId).thenComparing(Key::currency);
+
+    @Autowired
+    private UserTotalRepository userTotalRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FxRateService fxRateService;
+
+    /**
+     * Get what a user owes and is owed on open requests, per currency and converted to the base currency
+     * @param userId the user ID
+     * @return Optional containing the totals if the user exists
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserTotals> getTotals(Long userId) {
+        List<UserTotal> rows = userTotalRepository.findByUserIdOrderByCurrency(userId);
+        if (rows.isEmpty() && !userRepository.existsById(userId)) {
+            return Optional.empty();
+        }
+
+        String baseCurrency = fxRateService.getBaseCurrency();
+        Date now = new Date();
+        UserTotals totals = new UserTotals(userId, baseCurrency, 0.0, 0.0, 0L, 0L, new ArrayList<>(rows.size()));
+        for (UserTotal row : rows) {
+            double owing = row.getOwingCents() / 100.0;
+            double owed = row.getOwedCents() / 100.0;
+            totals.getCurrencies().add(new CurrencyTotals(row.getCurrency(), owing, owed,
+                row.getOpenRequestsOwing(), row.getOpenRequestsOwed()));
+            totals.setOwing(totals.getOwing() + fxRateService.convert(owing, row.getCurrency(), baseCurrency, now));
+            totals.setOwed(totals.getOwed() + fxRateService.convert(owed, row.getCurrency(), baseCurrency, now));
+            totals.setOpenRequestsOwing(totals.getOpenRequestsOwing() + row.getOpenRequestsOwing());
+            totals.setOpenRequestsOwed(totals.getOpenRequestsOwed() + row.getOpenRequestsOwed());
+        }
+        return Optional.of(totals);
+    }
+
+    /**
+     * Count requests that became open: created, or reopened by deleting their payment
+     * @param requests the requests
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOpened(Collection<Request> requests) {
+        Map<Key, long[]> deltas = new TreeMap<>(ROW_ORDER);
+        for (Request request : requests) {
+            addRequest(deltas, request, SplitCalculator.toCents(request.getAmount()), 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Stop counting requests that were open: settled by a payment, or deleted unsettled
+     * @param requests the requests, with the amount they were open for
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordClosed(Collection<Request> requests) {
+        Map<Key, long[]> deltas = new TreeMap<>(ROW_ORDER);
+        for (Request request : requests) {
+            addRequest(deltas, request, -SplitCalculator.toCents(request.getAmount()), -1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Drop a user's counters before the user is deleted; with no requests left they are all zero
+     * @param userId the user ID
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteTotals(Long userId) {
+        userTotalRepository.deleteByUserId(userId);
+    }
+
+    /**
+     * Count the new amount of an open request
+     * @param request the request, with its new amount
+     * @param previousAmount the amount it was open for until now
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAmountChanged(Request request, double previousAmount) {
+        long cents = SplitCalculator.toCents(request.getAmount()) - SplitCalculator.toCents(previousAmount);
+        if (cents == 0) {
+            return;
+        }
+        Map<Key, long[]> deltas = new TreeMap<>(ROW_ORDER);
+        addRequest(deltas, request, cents, 0);
+        apply(deltas);
+    }
+
+    /**
+     * Add one request to the debtor's owing and the debtee's owed counters
+     */
+    private void addRequest(Map<Key, long[]> deltas, Request request, long cents, long count) {
+        String currency = fxRateService.settlementCurrency(request.getGroup());
+        long[] debtor = deltas.computeIfAbsent(new Key(request.getDebtor().getId(), currency), key -> new long[4]);
+        debtor[0] += cents;
+        debtor[2] += count;
+        long[] debtee = deltas.computeIfAbsent(new Key(request.getDebtee().getId(), currency), key -> new long[4]);
+        debtee[1] += cents;
+        debtee[3] += count;
+    }
+
+    /**
+     * Add the deltas to the counters, creating the rows of users new to a currency
+     */
+    private void apply(Map<Key, long[]> deltas) {
+        for (Map.Entry<Key, long[]> entry : deltas.entrySet()) {
+            Key key = entry.getKey();
+            long[] delta = entry.getValue();
+            if (userTotalRepository.add(key.userId(), key.currency(), delta[0], delta[1], delta[2], delta[3]) == 0) {
+                userTotalRepository.createIfMissing(key.userId(), key.currency());
+                userTotalRepository.add(key.userId(), key.currency(), delta[0], delta[1], delta[2], delta[3]);
+            }
+        }
+    }
+
+    // One row of counters
+    private record Key(Long userId, String currency) {
+    }
+}
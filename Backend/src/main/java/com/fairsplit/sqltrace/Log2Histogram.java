@@ -0,0 +1,70 @@
+package com.fairsplit.sqltrace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values in power-of-two buckets. Percentiles are
+ * reported as the upper bound of their bucket, so they are accurate to a factor of two,
+ * which is enough to tell a 2 ms endpoint from a 200 ms one at a few nanoseconds per record.
+ */
+public class Log2Histogram {
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    
+    /**
+     * Record one value
+     * @param value the value, negative values count as 0
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+    
+    /**
+     * Get the approximate value at a percentile
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket holding that percentile, 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < 64; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                // Bucket i holds values in [2^(i-1), 2^i)
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+    
+    /**
+     * Summarize the histogram
+     * @return count, mean, p50, p95, p99 and max
+     */
+    public Map<String, Object> snapshot() {
+        long total = count.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("mean", total == 0 ? 0 : sum.sum() / total);
+        snapshot.put("p50", percentile(50));
+        snapshot.put("p95", percentile(95));
+        snapshot.put("p99", percentile(99));
+        snapshot.put("max", max.get());
+        return snapshot;
+    }
+}
@@ -0,0 +1,16 @@
+package com.fairsplit.sqltrace;
+
+import java.util.Date;
+
+/**
+ * A statement that took longer than the slow-query threshold
+ * @param at when the statement finished
+ * @param endpoint the HTTP endpoint being served, e.g. "GET /api/expenses/group/{groupId}", or "-" outside a request
+ * @param handler the controller method serving it
+ * @param serviceCall the outermost service method on the stack when the statement ran
+ * @param sql the statement with literals replaced by ?
+ * @param micros execution time in microseconds
+ * @param rows rows returned or updated
+ */
+public record SlowStatement(Date at, String endpoint, String handler, String serviceCall, String sql, long micros, long rows) {
+}
@@ -0,0 +1,45 @@
+package com.fairsplit.sqltrace;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts the tracing proxy in front of the application DataSource and registers the
+ * interceptor that attributes statements to endpoints. Off with fairsplit.sqltrace.enabled=false.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "fairsplit.sqltrace.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlTraceConfig implements WebMvcConfigurer {
+    
+    private final ObjectProvider<SqlTracer> tracer;
+    
+    public SqlTraceConfig(ObjectProvider<SqlTracer> tracer) {
+        this.tracer = tracer;
+    }
+    
+    // Static so the DataSource can be wrapped before the rest of this configuration is created
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<SqlTracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof TracingDataSource)) {
+                    return new TracingDataSource(dataSource, tracer.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SqlTraceInterceptor(tracer.getObject())).addPathPatterns("/api/**");
+    }
+}
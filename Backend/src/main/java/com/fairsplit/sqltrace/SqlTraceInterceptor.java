@@ -0,0 +1,36 @@
+package com.fairsplit.sqltrace;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Tells the SqlTracer which endpoint and controller method the current thread is serving.
+ * afterCompletion runs after the response is written, so statements issued while
+ * serializing lazy associations still count towards the endpoint.
+ */
+public class SqlTraceInterceptor implements HandlerInterceptor {
+    
+    private final SqlTracer tracer;
+    
+    public SqlTraceInterceptor(SqlTracer tracer) {
+        this.tracer = tracer;
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            tracer.beginRequest(request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()),
+                handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+        }
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        tracer.endRequest();
+    }
+}
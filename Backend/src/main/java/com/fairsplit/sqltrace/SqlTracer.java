@@ -0,0 +1,182 @@
+package com.fairsplit.sqltrace;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Collects what the tracing JDBC proxies observe. Every statement is attributed to the
+ * HTTP request running on its thread; when the request completes, its statement count
+ * and total SQL time go into per-endpoint histograms. Statements over the slow threshold
+ * are additionally kept in a fixed-size ring buffer, the newest overwriting the oldest.
+ * The fast path is a thread-local lookup and two counter increments per statement; the
+ * SQL shape and caller are only worked out for slow statements.
+ */
+@Component
+public class SqlTracer {
+    
+    // Literals, then IN lists of placeholders collapsed to one
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    private static final String NO_ENDPOINT = "-";
+    
+    private final ThreadLocal<RequestTrace> current = new ThreadLocal<>();
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<SlowStatement> slowStatements;
+    private final AtomicLong slowCount = new AtomicLong();
+    private final long slowThresholdNanos;
+    
+    public SqlTracer(@Value("${fairsplit.sqltrace.slow-threshold-ms:50}") long slowThresholdMs,
+                     @Value("${fairsplit.sqltrace.ring-size:200}") int ringSize) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.slowStatements = new AtomicReferenceArray<>(Math.max(1, ringSize));
+    }
+    
+    /**
+     * Start attributing statements on this thread to an endpoint
+     * @param endpoint the method and path pattern
+     * @param handler the controller method
+     */
+    void beginRequest(String endpoint, String handler) {
+        current.set(new RequestTrace(endpoint, handler));
+    }
+    
+    /**
+     * Stop attributing statements on this thread and record the request's totals
+     */
+    void endRequest() {
+        RequestTrace trace = current.get();
+        if (trace == null) {
+            return;
+        }
+        current.remove();
+        EndpointStats stats = endpoints.computeIfAbsent(trace.endpoint, endpoint -> new EndpointStats());
+        stats.statements.record(trace.statements);
+        stats.sqlMicros.record(TimeUnit.NANOSECONDS.toMicros(trace.nanos));
+    }
+    
+    /**
+     * Record one executed statement, called by the JDBC proxies
+     * @param sql the SQL as sent to the driver
+     * @param nanos execution time
+     * @param rows rows returned or updated, -1 if unknown
+     */
+    void record(String sql, long nanos, long rows) {
+        RequestTrace trace = current.get();
+        if (trace != null) {
+            trace.statements++;
+            trace.nanos += nanos;
+        }
+        if (nanos >= slowThresholdNanos) {
+            SlowStatement slow = new SlowStatement(new Date(),
+                trace == null ? NO_ENDPOINT : trace.endpoint,
+                trace == null ? Thread.currentThread().getName() : trace.handler,
+                serviceCall(), shape(sql), TimeUnit.NANOSECONDS.toMicros(nanos), rows);
+            long index = slowCount.getAndIncrement();
+            slowStatements.set((int) (index % slowStatements.length()), slow);
+        }
+    }
+    
+    /**
+     * Get the slow statements still in the ring buffer
+     * @return the statements, newest first
+     */
+    public List<SlowStatement> getSlowStatements() {
+        long end = slowCount.get();
+        int size = slowStatements.length();
+        List<SlowStatement> result = new ArrayList<>();
+        for (long i = end - 1; i >= 0 && i >= end - size; i--) {
+            SlowStatement slow = slowStatements.get((int) (i % size));
+            if (slow != null) {
+                result.add(slow);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Get the per-endpoint SQL histograms
+     * @return statements per request and SQL microseconds per request for every endpoint seen
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("slowThresholdMs", TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos));
+        metrics.put("slowStatements", slowCount.get());
+        Map<String, Object> byEndpoint = new LinkedHashMap<>();
+        endpoints.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(entry -> {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("statementsPerRequest", entry.getValue().statements.snapshot());
+                stats.put("sqlMicrosPerRequest", entry.getValue().sqlMicros.snapshot());
+                byEndpoint.put(entry.getKey(), stats);
+            });
+        metrics.put("endpoints", byEndpoint);
+        return metrics;
+    }
+    
+    /**
+     * Reduce a statement to its shape, so statements differing only by values group together
+     * @param sql the SQL
+     * @return the SQL with literals replaced by ? and IN lists collapsed
+     */
+    static String shape(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+    
+    /**
+     * Find the outermost service method on the current stack
+     * @return e.g. "ExpenseService.getExpensesByGroupId", or "-" if no service is involved
+     */
+    private static String serviceCall() {
+        return StackWalker.getInstance().walk(frames -> frames
+            .filter(frame -> (frame.getClassName().startsWith("com.fairsplit.service.")
+                || frame.getClassName().startsWith("com.fairsplit.job."))
+                && !frame.getClassName().contains("$$"))
+            .reduce((inner, outer) -> outer)
+            .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                + "." + frame.getMethodName())
+            .orElse(NO_ENDPOINT));
+    }
+    
+    /**
+     * Statements run so far by the request on one thread
+     */
+    private static class RequestTrace {
+        
+        final String endpoint;
+        final String handler;
+        int statements;
+        long nanos;
+        
+        RequestTrace(String endpoint, String handler) {
+            this.endpoint = endpoint;
+            this.handler = handler;
+        }
+    }
+    
+    private static class EndpointStats {
+        
+        final Log2Histogram statements = new Log2Histogram();
+        final Log2Histogram sqlMicros = new Log2Histogram();
+    }
+}
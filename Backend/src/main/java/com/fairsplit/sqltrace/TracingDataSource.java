@@ -0,0 +1,173 @@
+package com.fairsplit.sqltrace;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wraps the pooled DataSource so every statement reports its SQL, execution time and
+ * row count to the SqlTracer. Connections, statements and result sets are JDK proxies
+ * over the driver objects; anything that is not an execute, next or close call goes
+ * straight through.
+ */
+public class TracingDataSource extends DelegatingDataSource {
+    
+    private final SqlTracer tracer;
+    
+    public TracingDataSource(DataSource target, SqlTracer tracer) {
+        super(target);
+        this.tracer = tracer;
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+    
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new ConnectionHandler(connection));
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    
+    private class ConnectionHandler implements InvocationHandler {
+        
+        private final Connection target;
+        
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = TracingDataSource.invoke(target, method, args);
+            String name = method.getName();
+            if (result instanceof Statement statement
+                    && (name.equals("createStatement") || name.equals("prepareStatement") || name.equals("prepareCall"))) {
+                // Prepared statements carry their SQL from the start, plain ones get it per execute call
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                    : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                    new Class<?>[] {type}, new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Times execute calls. A query's record is completed when its result set is closed,
+     * so the row count is known, or when the statement is closed or executed again.
+     */
+    private class StatementHandler implements InvocationHandler {
+        
+        private final Statement target;
+        private final String preparedSql;
+        private String pendingSql;
+        private long pendingNanos;
+        private long pendingRows = -1;
+        private boolean pending;
+        
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                if (name.equals("close")) {
+                    flush();
+                }
+                Object result = TracingDataSource.invoke(target, method, args);
+                if (result instanceof ResultSet resultSet && name.equals("getResultSet")) {
+                    return wrapResultSet(resultSet);
+                }
+                return result;
+            }
+            
+            flush();
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+            long start = System.nanoTime();
+            Object result = TracingDataSource.invoke(target, method, args);
+            long nanos = System.nanoTime() - start;
+            
+            if (result instanceof ResultSet resultSet) {
+                pendingSql = sql;
+                pendingNanos = nanos;
+                pendingRows = 0;
+                pending = true;
+                return wrapResultSet(resultSet);
+            }
+            tracer.record(sql, nanos, rows(result));
+            return result;
+        }
+        
+        private ResultSet wrapResultSet(ResultSet resultSet) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    Object result = TracingDataSource.invoke(resultSet, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        pendingRows++;
+                    } else if (method.getName().equals("close")) {
+                        flush();
+                    }
+                    return result;
+                });
+        }
+        
+        private void flush() {
+            if (pending) {
+                pending = false;
+                tracer.record(pendingSql, pendingNanos, pendingRows);
+            }
+        }
+        
+        private long rows(Object result) {
+            if (result instanceof Integer count) {
+                return count;
+            }
+            if (result instanceof Long count) {
+                return count;
+            }
+            if (result instanceof int[] counts) {
+                long total = 0;
+                for (int count : counts) {
+                    total += Math.max(0, count);
+                }
+                return total;
+            }
+            if (result instanceof long[] counts) {
+                long total = 0;
+                for (long count : counts) {
+                    total += Math.max(0, count);
+                }
+                return total;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.fairsplit.statement;
+
+import com.fairsplit.dto.Statement;
+
+/**
+ * A generated statement with its CSV form, rendered once and shared by every caller
+ */
+public record RenderedStatement(Statement statement, byte[] csv) {
+}
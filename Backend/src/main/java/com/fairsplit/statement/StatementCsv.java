@@ -0,0 +1,57 @@
+package com.fairsplit.statement;
+
+import com.fairsplit.dto.Statement;
+import com.fairsplit.dto.StatementGroup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * CSV form of a statement: one line per group in its own currency, then a total line
+ * in the statement currency. Text fields are quoted per RFC 4180.
+ */
+final class StatementCsv {
+
+    static final String HEADER = "group_id,group,currency,expenses_paid_count,expenses_paid,owed,owed_open,"
+        + "owed_to_user,owed_to_user_open,paid,received";
+
+    private StatementCsv() {
+    }
+
+    static byte[] render(Statement statement) {
+        StringBuilder csv = new StringBuilder(HEADER).append("\r\n");
+        long expensesPaidCount = 0;
+        for (StatementGroup group : statement.getGroups()) {
+            expensesPaidCount += group.getExpensesPaidCount();
+            csv.append(group.getGroupId()).append(',')
+                .append(quote(group.getGroupName())).append(',')
+                .append(quote(group.getCurrency())).append(',')
+                .append(group.getExpensesPaidCount()).append(',');
+            amounts(csv, group.getExpensesPaid(), group.getOwed(), group.getOwedOpen(), group.getOwedToUser(),
+                group.getOwedToUserOpen(), group.getPaid(), group.getReceived());
+        }
+        csv.append(",TOTAL,").append(quote(statement.getCurrency())).append(',').append(expensesPaidCount).append(',');
+        amounts(csv, statement.getExpensesPaid(), statement.getOwed(), statement.getOwedOpen(), statement.getOwedToUser(),
+            statement.getOwedToUserOpen(), statement.getPaid(), statement.getReceived());
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void amounts(StringBuilder csv, double... amounts) {
+        for (int i = 0; i < amounts.length; i++) {
+            csv.append(String.format(Locale.ROOT, "%.2f", amounts[i])).append(i + 1 < amounts.length ? "," : "\r\n");
+        }
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        // A leading = + - @ would be run as a formula by spreadsheets
+        String text = !value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0 ? "'" + value : value;
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0
+                && text.equals(value)) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
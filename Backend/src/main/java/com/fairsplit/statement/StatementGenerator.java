@@ -0,0 +1,281 @@
+package com.fairsplit.statement;
+
+import com.fairsplit.dto.GroupSummary;
+import com.fairsplit.dto.Statement;
+import com.fairsplit.dto.StatementGroup;
+import com.fairsplit.model.User;
+import com.fairsplit.repository.ExpenseRepository;
+import com.fairsplit.repository.GroupRepository;
+import com.fairsplit.repository.PaymentRepository;
+import com.fairsplit.repository.RequestRepository;
+import com.fairsplit.service.FxRateService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates annual statements off the request threads. A statement fans out into one task
+ * per group of the user, each running that group's aggregate queries, on a small executor
+ * of its own: its threads bound the connections statements can hold, so a January rush
+ * queues here instead of taking the pool from the online endpoints. When the queue is full
+ * a statement fails at once with a RejectedExecutionException rather than waiting.
+ *
+ * Statements are cached for a while per user and year, and concurrent calls for the same
+ * statement share one generation. No task ever blocks waiting for another.
+ */
+@Component
+public class StatementGenerator {
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private FxRateService fxRateService;
+
+    @Value("${fairsplit.statements.threads:4}")
+    private int threads;
+
+    @Value("${fairsplit.statements.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${fairsplit.statements.cache-ttl-minutes:60}")
+    private long cacheTtlMinutes;
+
+    @Value("${fairsplit.statements.max-cached:10000}")
+    private int maxCached;
+
+    @Value("${fairsplit.statements.timeout-seconds:30}")
+    private long timeoutSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<StatementKey, CachedStatement> cache = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder groupTasks = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "statement-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get a user's statement for a year, from the cache or by generating it
+     * @param user the user
+     * @param year the calendar year, in UTC
+     * @return a future of the statement, failed with a RejectedExecutionException if the executor is saturated
+     *         or a TimeoutException if it is not ready within timeout-seconds; the generation itself goes on
+     * @throws IllegalArgumentException if the year is before 2000 or in the future
+     */
+    public CompletableFuture<RenderedStatement> getStatement(User user, int year) {
+        if (year < 2000 || year > Year.now(ZoneOffset.UTC).getValue()) {
+            throw new IllegalArgumentException("Year must be between 2000 and the current year");
+        }
+        calls.increment();
+        StatementKey key = new StatementKey(user.getId(), year);
+        long now = System.currentTimeMillis();
+        CachedStatement[] started = new CachedStatement[1];
+        CachedStatement entry = cache.compute(key, (k, cached) -> {
+            if (cached != null && !cached.isExpired(now)) {
+                return cached;
+            }
+            started[0] = new CachedStatement(generate(user, year), now, now + Duration.ofMinutes(cacheTtlMinutes).toMillis());
+            return started[0];
+        });
+        if (started[0] != null) {
+            // A failed generation is not kept, the next call tries again
+            entry.future().whenComplete((statement, error) -> {
+                if (error != null) {
+                    failed.increment();
+                    cache.remove(key, entry);
+                }
+            });
+            evictIfFull(now);
+        }
+        // Each caller times out on its own copy, without failing the shared generation
+        return entry.future().copy().orTimeout(timeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Counters for the metrics endpoint
+     * @return calls, generations, failures, cache size and executor load
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long total = calls.sum();
+        long generations = generated.sum();
+        metrics.put("calls", total);
+        metrics.put("generated", generations);
+        metrics.put("cacheHitRatio", total == 0 ? 0.0 : 1.0 - (double) generations / total);
+        metrics.put("failed", failed.sum());
+        metrics.put("cached", cache.size());
+        metrics.put("groupTasks", groupTasks.sum());
+        metrics.put("activeThreads", executor.getActiveCount());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("queueCapacity", queueCapacity);
+        return metrics;
+    }
+
+    /**
+     * Start generating a statement: list the user's groups, then total each group in its own task
+     * and combine once all of them are done
+     */
+    private CompletableFuture<RenderedStatement> generate(User user, int year) {
+        generated.increment();
+        Date from = Date.from(LocalDate.of(year, 1, 1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        Date to = Date.from(LocalDate.of(year + 1, 1, 1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        // Past years are converted at their closing rates, the current one at today's
+        Date ratesAt = new Date(Math.min(System.currentTimeMillis(), to.getTime() - 1));
+        try {
+            return CompletableFuture.supplyAsync(() -> groupRepository.findSummariesByMemberId(user.getId()), executor)
+                .thenCompose(groups -> {
+                    List<CompletableFuture<StatementGroup>> parts = new ArrayList<>(groups.size());
+                    for (GroupSummary group : groups) {
+                        groupTasks.increment();
+                        parts.add(CompletableFuture.supplyAsync(() -> totalGroup(user.getId(), group, from, to, ratesAt), executor));
+                    }
+                    return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                        .thenApply(done -> combine(user, year, ratesAt, parts.stream().map(CompletableFuture::join).toList()));
+                });
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Run the aggregate queries of one group and convert everything to the group currency
+     */
+    private StatementGroup totalGroup(Long userId, GroupSummary group, Date from, Date to, Date ratesAt) {
+        String currency = group.getCurrency() == null ? fxRateService.getBaseCurrency() : group.getCurrency();
+        StatementGroup totals = new StatementGroup();
+        totals.setGroupId(group.getId());
+        totals.setGroupName(group.getName());
+        totals.setCurrency(currency);
+
+        for (Object[] row : expenseRepository.sumPaidByPayerInGroup(userId, group.getId(), from, to)) {
+            String expenseCurrency = fxRateService.normalize((String) row[0], currency);
+            totals.setExpensesPaidCount(totals.getExpensesPaidCount() + ((Number) row[1]).longValue());
+            totals.setExpensesPaid(totals.getExpensesPaid()
+                + fxRateService.convert(amount(row[2]), expenseCurrency, currency, ratesAt));
+        }
+
+        // Requests are always in the group currency
+        for (Object[] row : requestRepository.sumByUserInGroup(userId, group.getId(), from, to)) {
+            totals.setOwed(amount(row[0]));
+            totals.setOwedOpen(amount(row[1]));
+            totals.setOwedToUser(amount(row[2]));
+            totals.setOwedToUserOpen(amount(row[3]));
+        }
+
+        for (Object[] row : paymentRepository.sumByUserInGroup(userId, group.getId(), from, to)) {
+            String paymentCurrency = fxRateService.normalize((String) row[0], currency);
+            totals.setPaid(totals.getPaid() + fxRateService.convert(amount(row[1]), paymentCurrency, currency, ratesAt));
+            totals.setReceived(totals.getReceived() + fxRateService.convert(amount(row[2]), paymentCurrency, currency, ratesAt));
+        }
+        return totals;
+    }
+
+    /**
+     * Put the group totals together and add them up in the base currency
+     */
+    private RenderedStatement combine(User user, int year, Date ratesAt, List<StatementGroup> groups) {
+        String base = fxRateService.getBaseCurrency();
+        Statement statement = new Statement();
+        statement.setUserId(user.getId());
+        statement.setUsername(user.getUsername());
+        statement.setYear(year);
+        statement.setCurrency(base);
+        statement.setRatesAt(ratesAt);
+        statement.setGeneratedAt(new Date());
+        List<StatementGroup> sorted = new ArrayList<>(groups);
+        sorted.sort(Comparator.comparing(StatementGroup::getGroupId));
+        statement.setGroups(sorted);
+        for (StatementGroup group : sorted) {
+            String currency = group.getCurrency();
+            statement.setExpensesPaid(statement.getExpensesPaid() + fxRateService.convert(group.getExpensesPaid(), currency, base, ratesAt));
+            statement.setOwed(statement.getOwed() + fxRateService.convert(group.getOwed(), currency, base, ratesAt));
+            statement.setOwedOpen(statement.getOwedOpen() + fxRateService.convert(group.getOwedOpen(), currency, base, ratesAt));
+            statement.setOwedToUser(statement.getOwedToUser() + fxRateService.convert(group.getOwedToUser(), currency, base, ratesAt));
+            statement.setOwedToUserOpen(statement.getOwedToUserOpen() + fxRateService.convert(group.getOwedToUserOpen(), currency, base, ratesAt));
+            statement.setPaid(statement.getPaid() + fxRateService.convert(group.getPaid(), currency, base, ratesAt));
+            statement.setReceived(statement.getReceived() + fxRateService.convert(group.getReceived(), currency, base, ratesAt));
+        }
+        return new RenderedStatement(statement, StatementCsv.render(statement));
+    }
+
+    /**
+     * Drop expired statements, then the oldest ones, once the cache holds more than max-cached
+     */
+    private void evictIfFull(long now) {
+        if (cache.size() <= maxCached) {
+            return;
+        }
+        cache.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+        int excess = cache.size() - maxCached;
+        if (excess > 0) {
+            cache.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().createdAt()))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> cache.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    // A SUM over no rows is null
+    private static double amount(Object value) {
+        return value == null ? 0.0 : ((Number) value).doubleValue();
+    }
+
+    private record StatementKey(Long userId, int year) {
+    }
+
+    private record CachedStatement(CompletableFuture<RenderedStatement> future, long createdAt, long expiresAt) {
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.fairsplit.username;
+
+import com.fairsplit.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Answers username availability checks from a Bloom filter of every username, so
+ * a name that is definitely free costs no query. Only names the filter may have
+ * seen fall through to the indexed existsByUsername lookup.
+ *
+ * The filter is built from a streamed scan of users at startup and rebuilt daily,
+ * which also drops names freed by renames and deletes and resizes it for growth.
+ * Names added while a rebuild scans go into both the old and the new filter.
+ */
+@Component
+public class UsernameIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(UsernameIndex.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${fairsplit.usernames.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    @Value("${fairsplit.usernames.min-capacity:100000}")
+    private long minCapacity;
+    
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder answeredFromFilter = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    
+    /**
+     * Check whether a username is free to register
+     * @param username the username to check
+     * @return true if no user has it
+     */
+    public boolean isAvailable(String username) {
+        checks.increment();
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(username)) {
+            answeredFromFilter.increment();
+            return true;
+        }
+        databaseChecks.increment();
+        boolean taken = userRepository.existsByUsername(username);
+        if (current != null && !taken) {
+            falsePositives.increment();
+        }
+        return !taken;
+    }
+    
+    /**
+     * Record a username now in use, after a user is created or renamed
+     * @param username the username
+     */
+    public void add(String username) {
+        if (username == null) {
+            return;
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(username);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            next.add(username);
+        }
+    }
+    
+    /**
+     * Build a filter sized for twice the current users from a streamed scan of usernames, then swap it in
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${fairsplit.usernames.rebuild-cron:0 30 3 * * *}")
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        BloomFilter next = new BloomFilter(Math.max(minCapacity, userRepository.count() * 2), falsePositiveRate);
+        building = next;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            transaction.executeWithoutResult(status -> {
+                try (Stream<String> usernames = userRepository.streamAllUsernames()) {
+                    usernames.forEach(next::add);
+                }
+            });
+            filter = next;
+        } finally {
+            building = null;
+        }
+        log.info("Built username filter: {} names, {} bits, {} hash functions in {} ms",
+            next.getInsertions(), next.getBitCount(), next.getHashFunctions(), (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    /**
+     * Get the filter's size and false-positive rates, estimated and observed
+     * @return the filter and check counters since startup
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        BloomFilter current = filter;
+        metrics.put("ready", current != null);
+        if (current != null) {
+            metrics.put("names", current.getInsertions());
+            metrics.put("bits", current.getBitCount());
+            metrics.put("bytes", current.getBitCount() / 8);
+            metrics.put("hashFunctions", current.getHashFunctions());
+            metrics.put("estimatedFalsePositiveRate", current.getFalsePositiveRate());
+        }
+        long databaseCheckCount = databaseChecks.sum();
+        long falsePositiveCount = falsePositives.sum();
+        metrics.put("checks", checks.sum());
+        metrics.put("answeredFromFilter", answeredFromFilter.sum());
+        metrics.put("databaseChecks", databaseCheckCount);
+        metrics.put("falsePositives", falsePositiveCount);
+        // Share of names the filter let through that turned out to be free
+        metrics.put("observedFalsePositiveRate", databaseCheckCount == 0 ? 0.0 : (double) falsePositiveCount / databaseCheckCount);
+        return metrics;
+    }
+}
@@ -0,0 +1,18 @@
+-- Change feed behind GET /api/sync: one row per change to an expense, request, payment,
+-- group or group membership (entity_id being the user), written in the same transaction
+-- as the change. A deletion leaves a tombstone row here; the entity row itself is deleted.
+-- seq is the sync token, so it must never be handed out from a per-node pool.
+CREATE TABLE change_log (
+    seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entity_type VARCHAR(255) NOT NULL CHECK (entity_type IN ('EXPENSE', 'REQUEST', 'PAYMENT', 'GROUP', 'MEMBERSHIP')),
+    entity_id BIGINT NOT NULL,
+    group_id BIGINT,
+    deleted BOOLEAN NOT NULL,
+    changed_at TIMESTAMP(6) NOT NULL
+);
+
+-- Sync of a single group reads its changes in seq order
+CREATE INDEX idx_change_log_group_seq ON change_log (group_id, seq);
+
+-- Pruning of entries older than the retention
+CREATE INDEX idx_change_log_changed_at ON change_log (changed_at);
@@ -0,0 +1,29 @@
+-- Open request totals of each user, per settlement currency, maintained by the services in
+-- the same transaction as every request change so that GET /api/users/{id}/totals reads a
+-- row or two instead of summing the user's requests. Amounts are in cents.
+CREATE TABLE user_totals (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    currency VARCHAR(3) NOT NULL,
+    owing_cents BIGINT NOT NULL DEFAULT 0,
+    owed_cents BIGINT NOT NULL DEFAULT 0,
+    open_requests_owing BIGINT NOT NULL DEFAULT 0,
+    open_requests_owed BIGINT NOT NULL DEFAULT 0,
+    UNIQUE (user_id, currency)
+);
+
+-- Backfill from the open requests, each in the currency of its group
+INSERT INTO user_totals (user_id, currency, owing_cents, owed_cents, open_requests_owing, open_requests_owed)
+SELECT t.user_id, t.currency, SUM(t.owing_cents), SUM(t.owed_cents), SUM(t.owing), SUM(t.owed)
+FROM (
+    SELECT r.debtor_id AS user_id, COALESCE(g.currency, '${basecurrency}') AS currency,
+           CAST(ROUND(r.amount * 100) AS BIGINT) AS owing_cents, 0 AS owed_cents, 1 AS owing, 0 AS owed
+    FROM requests r LEFT JOIN "groups" g ON g.id = r.group_id
+    WHERE r.is_fulfilled = false AND r.archived = false
+    UNION ALL
+    SELECT r.debtee_id, COALESCE(g.currency, '${basecurrency}'),
+           0, CAST(ROUND(r.amount * 100) AS BIGINT), 0, 1
+    FROM requests r LEFT JOIN "groups" g ON g.id = r.group_id
+    WHERE r.is_fulfilled = false AND r.archived = false
+) t
+GROUP BY t.user_id, t.currency;
@@ -0,0 +1,10 @@
+-- Commit point of the change log. Transactions write their change_log entries at commit
+-- time while holding this row's lock, so sequence numbers become visible in order, and
+-- advance last_seq to their newest entry. Delta sync serves entries up to last_seq only:
+-- every entry below it has committed or rolled back by then.
+CREATE TABLE change_log_head (
+    id INT PRIMARY KEY CHECK (id = 1),
+    last_seq BIGINT NOT NULL
+);
+
+INSERT INTO change_log_head (id, last_seq) SELECT 1, COALESCE(MAX(seq), 0) FROM change_log;
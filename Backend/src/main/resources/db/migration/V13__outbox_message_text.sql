@@ -0,0 +1,3 @@
+-- Notification messages embed user, expense and group names of up to 255 characters each,
+-- so they can be longer than the VARCHAR(255) V5 gave them
+ALTER TABLE outbox_events ALTER COLUMN message TYPE TEXT;
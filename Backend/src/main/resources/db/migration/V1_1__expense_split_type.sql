@@ -0,0 +1,4 @@
+-- How an expense is divided among its assignees. Null for expenses from before splits,
+-- which were split equally. IF NOT EXISTS for databases ddl-auto=update already extended.
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS split_type VARCHAR(255)
+    CHECK (split_type IN ('EQUAL', 'WEIGHTS', 'PERCENTAGES', 'EXACT', 'SHARES'));
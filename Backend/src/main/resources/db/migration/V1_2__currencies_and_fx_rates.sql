@@ -0,0 +1,13 @@
+-- Currencies of groups, expenses and payments, null meaning the base currency, and the daily
+-- rates to convert between them. IF NOT EXISTS for databases ddl-auto=update already extended.
+ALTER TABLE "groups" ADD COLUMN IF NOT EXISTS currency VARCHAR(3);
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS currency VARCHAR(3);
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS currency VARCHAR(3);
+
+CREATE TABLE IF NOT EXISTS fx_rates (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    currency VARCHAR(3) NOT NULL,
+    effective_date DATE NOT NULL,
+    rate FLOAT(53) NOT NULL,
+    UNIQUE (currency, effective_date)
+);
@@ -0,0 +1,66 @@
+-- Schema as previously generated by Hibernate with ddl-auto=update.
+-- Existing databases are baselined at this version and skip it, so it must not change;
+-- everything added since goes in the later migrations, which run on those databases too.
+
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    fullname VARCHAR(255),
+    amount FLOAT(53) NOT NULL,
+    is_active BOOLEAN NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE "groups" (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255),
+    is_active BOOLEAN NOT NULL
+);
+
+CREATE TABLE group_user (
+    group_id BIGINT NOT NULL REFERENCES "groups" (id),
+    user_id BIGINT NOT NULL REFERENCES users (id)
+);
+
+CREATE TABLE expenses (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    amount FLOAT(53) NOT NULL,
+    category VARCHAR(255) NOT NULL,
+    paid BOOLEAN NOT NULL,
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    group_id BIGINT NOT NULL REFERENCES "groups" (id),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE expense_assigned_users (
+    expense_id BIGINT NOT NULL REFERENCES expenses (id),
+    user_id BIGINT NOT NULL REFERENCES users (id)
+);
+
+CREATE TABLE requests (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    amount FLOAT(53) NOT NULL,
+    is_fulfilled BOOLEAN NOT NULL,
+    expense_id BIGINT REFERENCES expenses (id),
+    debtor_id BIGINT NOT NULL REFERENCES users (id),
+    debtee_id BIGINT NOT NULL REFERENCES users (id),
+    group_id BIGINT REFERENCES "groups" (id),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE payments (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    amount FLOAT(53) NOT NULL,
+    debtor_id BIGINT NOT NULL REFERENCES users (id),
+    debtee_id BIGINT NOT NULL REFERENCES users (id),
+    group_id BIGINT REFERENCES "groups" (id),
+    request_id BIGINT UNIQUE REFERENCES requests (id),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
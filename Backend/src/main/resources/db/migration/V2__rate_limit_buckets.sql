@@ -0,0 +1,5 @@
+-- Token buckets shared between nodes when fairsplit.ratelimit.store=postgres
+CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+    bucket_key VARCHAR(255) PRIMARY KEY,
+    tat_micros BIGINT NOT NULL
+);
@@ -0,0 +1,30 @@
+-- Postgres does not index foreign keys on its own, so every findBy... on a
+-- relation was a sequential scan. IF NOT EXISTS keeps this safe on databases
+-- where some of these were created by hand.
+
+-- requests: findByDebtor_Id, findByDebtee_Id, findByGroup_Id, findByExpense_Id
+CREATE INDEX IF NOT EXISTS idx_requests_debtor_id ON requests (debtor_id);
+CREATE INDEX IF NOT EXISTS idx_requests_debtee_id ON requests (debtee_id);
+CREATE INDEX IF NOT EXISTS idx_requests_group_id ON requests (group_id);
+CREATE INDEX IF NOT EXISTS idx_requests_expense_id ON requests (expense_id);
+
+-- Unfulfilled requests are a small, hot subset: findBy..._IdAndIsFulfilledFalse and the
+-- dashboard's newest-first lists only need to look at these rows
+CREATE INDEX IF NOT EXISTS idx_requests_unfulfilled_debtor ON requests (debtor_id, created_at DESC) WHERE is_fulfilled = false;
+CREATE INDEX IF NOT EXISTS idx_requests_unfulfilled_debtee ON requests (debtee_id, created_at DESC) WHERE is_fulfilled = false;
+CREATE INDEX IF NOT EXISTS idx_requests_unfulfilled_group ON requests (group_id) WHERE is_fulfilled = false;
+
+-- payments: findByDebtor_Id, findByDebtee_Id, findByGroup_Id (request_id is already unique)
+CREATE INDEX IF NOT EXISTS idx_payments_debtor_id ON payments (debtor_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_payments_debtee_id ON payments (debtee_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_payments_group_id ON payments (group_id);
+
+-- expenses: findByGroup_Id, findByPayer_Id
+CREATE INDEX IF NOT EXISTS idx_expenses_group_id ON expenses (group_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_expenses_user_id ON expenses (user_id);
+
+-- join tables: findByAssignedUsers_Id, findByGroups_Id and the reverse lookups
+CREATE INDEX IF NOT EXISTS idx_expense_assigned_users_user_id ON expense_assigned_users (user_id);
+CREATE INDEX IF NOT EXISTS idx_expense_assigned_users_expense_id ON expense_assigned_users (expense_id);
+CREATE INDEX IF NOT EXISTS idx_group_user_user_id ON group_user (user_id);
+CREATE INDEX IF NOT EXISTS idx_group_user_group_id ON group_user (group_id);
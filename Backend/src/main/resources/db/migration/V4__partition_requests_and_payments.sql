@@ -0,0 +1,130 @@
+-- Monthly range partitioning of requests and payments on created_at.
+--
+-- requests is first list-partitioned on "archived": the hot side holds every
+-- unfulfilled request and recent history, the archive side holds fulfilled
+-- requests moved there by the archival job. Queries on current data filter on
+-- archived = false and only touch the hot monthly partitions and their indexes.
+--
+-- Postgres requires the partition key in every unique constraint, so the primary
+-- keys become (id, archived, created_at) and (id, created_at), ids keep coming from
+-- one sequence per table, and payments.request_id can no longer be a foreign key.
+
+-- Creates one partition per month of [from_month, to_month] under a range-partitioned parent
+CREATE OR REPLACE FUNCTION fairsplit_create_monthly_partitions(parent TEXT, from_month DATE, to_month DATE)
+RETURNS VOID AS $$
+DECLARE
+    partition_month DATE := date_trunc('month', from_month)::DATE;
+BEGIN
+    WHILE partition_month <= to_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            parent || '_' || to_char(partition_month, 'YYYY_MM'), parent,
+            partition_month, (partition_month + INTERVAL '1 month')::DATE);
+        partition_month := (partition_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Makes sure every partitioned table has partitions from this month to months_ahead months out,
+-- so new rows never land in the default partitions
+CREATE OR REPLACE FUNCTION fairsplit_ensure_partitions(months_ahead INT)
+RETURNS VOID AS $$
+BEGIN
+    PERFORM fairsplit_create_monthly_partitions('requests_hot', current_date, (current_date + make_interval(months => months_ahead))::DATE);
+    PERFORM fairsplit_create_monthly_partitions('requests_archive', current_date, (current_date + make_interval(months => months_ahead))::DATE);
+    PERFORM fairsplit_create_monthly_partitions('payments', current_date, (current_date + make_interval(months => months_ahead))::DATE);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Foreign keys pointing at the tables being replaced
+DO $$
+DECLARE
+    fk RECORD;
+BEGIN
+    FOR fk IN SELECT conname, conrelid::regclass AS owner FROM pg_constraint
+              WHERE contype = 'f' AND confrelid IN ('requests'::regclass, 'payments'::regclass) LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', fk.owner, fk.conname);
+    END LOOP;
+END $$;
+
+ALTER TABLE requests RENAME TO requests_unpartitioned;
+ALTER TABLE payments RENAME TO payments_unpartitioned;
+
+-- requests
+CREATE TABLE requests (
+    id BIGINT NOT NULL,
+    amount FLOAT(53) NOT NULL,
+    is_fulfilled BOOLEAN NOT NULL,
+    archived BOOLEAN NOT NULL DEFAULT false,
+    expense_id BIGINT REFERENCES expenses (id),
+    debtor_id BIGINT NOT NULL REFERENCES users (id),
+    debtee_id BIGINT NOT NULL REFERENCES users (id),
+    group_id BIGINT REFERENCES "groups" (id),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    PRIMARY KEY (id, archived, created_at)
+) PARTITION BY LIST (archived);
+
+CREATE TABLE requests_hot PARTITION OF requests FOR VALUES IN (false) PARTITION BY RANGE (created_at);
+CREATE TABLE requests_archive PARTITION OF requests FOR VALUES IN (true) PARTITION BY RANGE (created_at);
+CREATE TABLE requests_hot_default PARTITION OF requests_hot DEFAULT;
+CREATE TABLE requests_archive_default PARTITION OF requests_archive DEFAULT;
+
+-- payments
+CREATE TABLE payments (
+    id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    amount FLOAT(53) NOT NULL,
+    currency VARCHAR(3),
+    debtor_id BIGINT NOT NULL REFERENCES users (id),
+    debtee_id BIGINT NOT NULL REFERENCES users (id),
+    group_id BIGINT REFERENCES "groups" (id),
+    request_id BIGINT,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE payments_default PARTITION OF payments DEFAULT;
+
+-- Partitions covering the existing history and the next few months
+SELECT fairsplit_create_monthly_partitions('requests_hot',
+    coalesce((SELECT min(created_at) FROM requests_unpartitioned)::DATE, current_date), current_date);
+SELECT fairsplit_create_monthly_partitions('requests_archive',
+    coalesce((SELECT min(created_at) FROM requests_unpartitioned)::DATE, current_date), current_date);
+SELECT fairsplit_create_monthly_partitions('payments',
+    coalesce((SELECT min(created_at) FROM payments_unpartitioned)::DATE, current_date), current_date);
+SELECT fairsplit_ensure_partitions(3);
+
+INSERT INTO requests (id, amount, is_fulfilled, archived, expense_id, debtor_id, debtee_id, group_id, created_at, updated_at)
+SELECT id, amount, is_fulfilled, false, expense_id, debtor_id, debtee_id, group_id, created_at, updated_at
+FROM requests_unpartitioned;
+
+INSERT INTO payments (id, name, amount, currency, debtor_id, debtee_id, group_id, request_id, created_at, updated_at)
+SELECT id, name, amount, currency, debtor_id, debtee_id, group_id, request_id, created_at, updated_at
+FROM payments_unpartitioned;
+
+DROP TABLE payments_unpartitioned;
+DROP TABLE requests_unpartitioned;
+
+-- Ids continue from the old identity columns
+CREATE SEQUENCE requests_id_seq OWNED BY requests.id;
+SELECT setval('requests_id_seq', coalesce((SELECT max(id) FROM requests), 0) + 1, false);
+ALTER TABLE requests ALTER COLUMN id SET DEFAULT nextval('requests_id_seq');
+
+CREATE SEQUENCE payments_id_seq OWNED BY payments.id;
+SELECT setval('payments_id_seq', coalesce((SELECT max(id) FROM payments), 0) + 1, false);
+ALTER TABLE payments ALTER COLUMN id SET DEFAULT nextval('payments_id_seq');
+
+-- Indexes from V3, now created on every partition
+CREATE INDEX idx_requests_debtor_id ON requests (debtor_id);
+CREATE INDEX idx_requests_debtee_id ON requests (debtee_id);
+CREATE INDEX idx_requests_group_id ON requests (group_id);
+CREATE INDEX idx_requests_expense_id ON requests (expense_id);
+CREATE INDEX idx_requests_unfulfilled_debtor ON requests (debtor_id, created_at DESC) WHERE is_fulfilled = false;
+CREATE INDEX idx_requests_unfulfilled_debtee ON requests (debtee_id, created_at DESC) WHERE is_fulfilled = false;
+CREATE INDEX idx_requests_unfulfilled_group ON requests (group_id) WHERE is_fulfilled = false;
+
+CREATE INDEX idx_payments_debtor_id ON payments (debtor_id, created_at DESC);
+CREATE INDEX idx_payments_debtee_id ON payments (debtee_id, created_at DESC);
+CREATE INDEX idx_payments_group_id ON payments (group_id);
+CREATE INDEX idx_payments_request_id ON payments (request_id);
@@ -0,0 +1,16 @@
+-- Transactional outbox for notifications, drained by OutboxDispatcher
+CREATE TABLE outbox_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type VARCHAR(255) NOT NULL CHECK (type IN ('REQUEST_ASSIGNED', 'REQUEST_ACCEPTED')),
+    recipient_id BIGINT NOT NULL,
+    request_id BIGINT,
+    group_id BIGINT,
+    amount FLOAT(53),
+    message VARCHAR(255) NOT NULL,
+    attempts INT NOT NULL,
+    next_attempt_at TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+-- The dispatcher claims due events in id order
+CREATE INDEX idx_outbox_events_due ON outbox_events (next_attempt_at, id);
@@ -0,0 +1,11 @@
+-- Part of each balance that does not come from payments: opening balances and manual
+-- top-ups or corrections. The reconciliation job expects
+--   amount = adjustments + payments received - payments made
+ALTER TABLE users ADD COLUMN adjustments FLOAT(53) NOT NULL DEFAULT 0;
+
+-- Backfill from the current balances. Payments are taken at face value here, so users
+-- with payments in a currency other than their group's show up in the first
+-- reconciliation report and should be reviewed before running it in repair mode.
+UPDATE users u SET adjustments = u.amount
+    - COALESCE((SELECT SUM(p.amount) FROM payments p WHERE p.debtee_id = u.id), 0)
+    + COALESCE((SELECT SUM(p.amount) FROM payments p WHERE p.debtor_id = u.id), 0);
@@ -0,0 +1,10 @@
+-- One row per membership, so bulk adds can insert with ON CONFLICT DO NOTHING.
+-- Drop duplicate memberships left by earlier concurrent adds first.
+DELETE FROM group_user a
+    USING group_user b
+    WHERE a.group_id = b.group_id AND a.user_id = b.user_id AND a.ctid > b.ctid;
+
+ALTER TABLE group_user ADD CONSTRAINT pk_group_user PRIMARY KEY (group_id, user_id);
+
+-- The primary key leads with group_id, this one is redundant now
+DROP INDEX IF EXISTS idx_group_user_group_id;
@@ -0,0 +1,15 @@
+-- Receipt attachments of expenses. The bytes live in the content-addressed blob store
+-- under their SHA-256, so identical uploads share one file.
+CREATE TABLE expense_attachments (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    expense_id BIGINT NOT NULL REFERENCES expenses (id),
+    sha256 VARCHAR(64) NOT NULL,
+    filename VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    size BIGINT NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_expense_attachments_expense_id ON expense_attachments (expense_id);
+-- Blob garbage collection counts the remaining references to a hash
+CREATE INDEX idx_expense_attachments_sha256 ON expense_attachments (sha256);
@@ -0,0 +1,10 @@
+-- Keyset scans of the group activity feed: newest first within a group, ties broken by id.
+-- Each replaces a group index it now covers.
+CREATE INDEX idx_expenses_group_activity ON expenses (group_id, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_expenses_group_id;
+
+CREATE INDEX idx_requests_group_activity ON requests (group_id, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_requests_group_id;
+
+CREATE INDEX idx_payments_group_activity ON payments (group_id, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_payments_group_id;
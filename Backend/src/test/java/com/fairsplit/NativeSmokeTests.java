@@ -0,0 +1,83 @@
+package com.fairsplit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end walk through every controller over HTTP. Runs on the JVM with
+ * ./mvnw test and as a native image with ./mvnw -PnativeTest test, where it
+ * catches missing reflection, proxy or resource hints.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class NativeSmokeTests {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Test
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	void exercisesEveryController() {
+		String suffix = Long.toString(System.nanoTime(), 36);
+
+		// UserController
+		Map payer = rest.postForObject("/api/users/register",
+				Map.of("username", "payer-" + suffix, "password", "secret", "fullname", "Payer", "amount", 0.0), Map.class);
+		Map debtor = rest.postForObject("/api/users/register",
+				Map.of("username", "debtor-" + suffix, "password", "secret", "fullname", "Debtor", "amount", 100.0), Map.class);
+		Number payerId = (Number) payer.get("id");
+		Number debtorId = (Number) debtor.get("id");
+		assertEquals(HttpStatus.OK, rest.getForEntity("/api/users/" + payerId, Map.class).getStatusCode());
+		assertEquals(HttpStatus.OK, rest.getForEntity("/api/users/username/debtor-" + suffix, Map.class).getStatusCode());
+
+		// GroupController
+		Map group = rest.postForObject("/api/groups",
+				Map.of("name", "smoke-" + suffix, "users", List.of(Map.of("id", payerId), Map.of("id", debtorId))), Map.class);
+		Number groupId = (Number) group.get("id");
+		assertEquals(HttpStatus.OK, rest.getForEntity("/api/groups/" + groupId, Map.class).getStatusCode());
+		assertEquals(2, rest.getForObject("/api/users/group/" + groupId, List.class).size());
+
+		Map empty = rest.postForObject("/api/groups", Map.of("name", "empty-" + suffix, "users", List.of()), Map.class);
+		assertEquals(HttpStatus.NO_CONTENT, rest.exchange("/api/groups/" + empty.get("id"), HttpMethod.DELETE, null, Void.class).getStatusCode());
+
+		// ExpenseController, with an uneven split
+		ResponseEntity<Map> expense = rest.postForEntity("/api/expenses", Map.of(
+				"name", "Dinner",
+				"amount", 30.0,
+				"category", "Food",
+				"payer", Map.of("id", payerId),
+				"group", Map.of("id", groupId),
+				"splitType", "SHARES",
+				"splits", Map.of(payerId.toString(), 1, debtorId.toString(), 2)), Map.class);
+		assertEquals(HttpStatus.CREATED, expense.getStatusCode());
+		assertEquals(1, rest.getForObject("/api/expenses/group/" + groupId, List.class).size());
+
+		// RequestController
+		List<Map> open = rest.getForObject("/api/requests/group/" + groupId + "/unfulfilled", List.class);
+		assertEquals(1, open.size());
+		assertEquals(20.0, ((Number) open.get(0).get("amount")).doubleValue(), 0.001);
+		ResponseEntity<Map> accepted = rest.postForEntity("/api/requests/" + open.get(0).get("id") + "/accept", null, Map.class);
+		assertEquals(HttpStatus.OK, accepted.getStatusCode());
+		assertTrue(rest.getForObject("/api/requests/debtor/" + debtorId + "/unfulfilled", List.class).isEmpty());
+
+		// PaymentController
+		assertEquals(1, rest.getForObject("/api/payments/debtor/" + debtorId, List.class).size());
+		assertEquals(1, rest.getForObject("/api/payments/group/" + groupId, List.class).size());
+
+		// Aggregates and metrics
+		Map dashboard = rest.getForObject("/api/users/" + debtorId + "/dashboard", Map.class);
+		assertEquals(1, ((Number) dashboard.get("paymentsMade")).intValue());
+		assertNotNull(rest.getForObject("/api/metrics/rate-limits", Map.class));
+	}
+}
@@ -0,0 +1,84 @@
+package com.fairsplit.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimitTests {
+
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	void growsWhileFastAndBacksOffOncePerSlowBurst() {
+		AdaptiveLimit limit = new AdaptiveLimit(new LimitSpec(4, 1, 8, 0, 100 * MS));
+		for (int i = 0; i < 4; i++) {
+			assertTrue(limit.tryAcquire());
+		}
+		assertFalse(limit.tryAcquire());
+		limit.release(0, 10 * MS);
+		assertEquals(4.25, limit.getLimit(), 1e-9);
+
+		// Three slow calls admitted before the first cut only cut once
+		limit.release(0, 500 * MS);
+		limit.release(0, 500 * MS);
+		limit.release(0, 500 * MS);
+		assertEquals(3.4, limit.getLimit(), 1e-9);
+
+		// A slow call admitted after the cut cuts again
+		assertTrue(limit.tryAcquire());
+		limit.release(600 * MS, 800 * MS);
+		assertEquals(3.4 * 0.8, limit.getLimit(), 1e-9);
+	}
+
+	@Test
+	void handsSlotsToWaitersInOrderAndRejectsWhenQueueIsFull() throws Exception {
+		AdaptiveLimit limit = new AdaptiveLimit(new LimitSpec(1, 1, 1, 1, 100 * MS));
+		assertTrue(limit.tryAcquire());
+		CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> acquire(limit, TimeUnit.SECONDS.toNanos(5)));
+		while (limit.getQueued() == 0) {
+			Thread.onSpinWait();
+		}
+		assertFalse(acquire(limit, TimeUnit.SECONDS.toNanos(5)));
+
+		limit.release(0, MS);
+		assertTrue(waiting.get(5, TimeUnit.SECONDS));
+		assertEquals(1, limit.getInFlight());
+	}
+
+	@Test
+	void shedsWaiters() throws Exception {
+		AdaptiveLimit limit = new AdaptiveLimit(new LimitSpec(1, 1, 1, 10, 100 * MS));
+		assertTrue(limit.tryAcquire());
+		CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> acquire(limit, TimeUnit.SECONDS.toNanos(5)));
+		while (limit.getQueued() == 0) {
+			Thread.onSpinWait();
+		}
+		assertEquals(1, limit.shed());
+		assertFalse(waiting.get(5, TimeUnit.SECONDS));
+		assertEquals(1, limit.getInFlight());
+	}
+
+	@Test
+	void classifiesWrites() {
+		assertEquals(WorkClass.SETTLEMENT, WorkClass.of("POST", "/api/requests/7/accept"));
+		assertEquals(WorkClass.SETTLEMENT, WorkClass.of("POST", "/api/payments"));
+		assertEquals(WorkClass.BULK, WorkClass.of("POST", "/api/groups/3/users"));
+		assertEquals(WorkClass.WRITE, WorkClass.of("POST", "/api/groups/3/users/4"));
+		assertEquals(WorkClass.WRITE, WorkClass.forExpense(3, 20));
+		assertEquals(WorkClass.BULK, WorkClass.forExpense(21, 20));
+		assertEquals(WorkClass.BULK, WorkClass.forExpense(-1, 20));
+	}
+
+	private static boolean acquire(AdaptiveLimit limit, long maxWaitNanos) {
+		try {
+			return limit.acquire(maxWaitNanos);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
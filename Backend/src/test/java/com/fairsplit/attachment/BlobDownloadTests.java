@@ -0,0 +1,31 @@
+package com.fairsplit.attachment;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BlobDownloadTests {
+
+	@Test
+	void parsesSingleRanges() {
+		assertArrayEquals(new long[] {0, 99}, BlobDownload.parseRange("bytes=0-99", 1000));
+		assertArrayEquals(new long[] {500, 999}, BlobDownload.parseRange("bytes=500-", 1000));
+		assertArrayEquals(new long[] {900, 999}, BlobDownload.parseRange("bytes=-100", 1000));
+		assertArrayEquals(new long[] {990, 999}, BlobDownload.parseRange("bytes=990-5000", 1000));
+	}
+
+	@Test
+	void servesWholeBlobForMultipleOrMalformedRanges() {
+		assertNull(BlobDownload.parseRange("bytes=0-1,5-6", 1000));
+		assertNull(BlobDownload.parseRange("items=0-1", 1000));
+		assertNull(BlobDownload.parseRange("bytes=abc", 1000));
+	}
+
+	@Test
+	void rejectsRangesPastTheEnd() {
+		assertEquals(0, BlobDownload.parseRange("bytes=1000-", 1000).length);
+		assertEquals(0, BlobDownload.parseRange("bytes=-0", 1000).length);
+	}
+}
@@ -0,0 +1,67 @@
+package com.fairsplit.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LedgerLocksTests {
+
+	private static LedgerLocks locks(int stripes) {
+		LedgerLocks locks = new LedgerLocks();
+		ReflectionTestUtils.setField(locks, "enabled", true);
+		ReflectionTestUtils.setField(locks, "stripeCount", stripes);
+		locks.init();
+		return locks;
+	}
+
+	@Test
+	void nestedWritesMustStayWithinTheOuterLocks() {
+		LedgerLocks locks = locks(64);
+		assertEquals(1, locks.withLocks(1L, List.of(2L, 3L),
+			() -> locks.withLocks(1L, Arrays.asList(3L, null), () -> 1)));
+		assertThrows(IllegalStateException.class, () -> locks.withLocks(1L, List.of(2L),
+			() -> locks.withLocks(9L, List.of(99L), () -> 1)));
+
+		// The failed nested write released everything
+		assertEquals(2, locks.withLocks(9L, List.of(99L), () -> 2));
+	}
+
+	@Test
+	void transfersInOpposingOrdersNeitherDeadlockNorLoseUpdates() throws Exception {
+		LedgerLocks locks = locks(16);
+		long[] balances = new long[4];
+		try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 16; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 5000; i++) {
+						int from = (thread + i) % 4;
+						int to = (thread + i + 1 + i % 3) % 4;
+						locks.withLocks(7L, List.of((long) from, (long) to), () -> {
+							balances[from] -= 3;
+							balances[to] += 3;
+							return null;
+						});
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		}
+		// Each transfer is a read-modify-write of two balances, any lost one breaks the sum
+		assertEquals(0, Arrays.stream(balances).sum());
+	}
+}
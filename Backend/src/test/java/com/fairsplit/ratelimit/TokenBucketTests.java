@@ -0,0 +1,49 @@
+package com.fairsplit.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void allowsBurstThenRejectsWithWaitTime() {
+		TokenBucket bucket = new TokenBucket(new BucketSpec(10, 3), 0);
+		assertEquals(0, bucket.tryAcquire(0));
+		assertEquals(0, bucket.tryAcquire(0));
+		assertEquals(0, bucket.tryAcquire(0));
+
+		long wait = bucket.tryAcquire(0);
+		assertEquals(SECOND / 10, wait);
+	}
+
+	@Test
+	void refillsOverTime() {
+		TokenBucket bucket = new TokenBucket(new BucketSpec(10, 1), 0);
+		assertEquals(0, bucket.tryAcquire(0));
+		assertTrue(bucket.tryAcquire(SECOND / 20) > 0);
+		assertEquals(0, bucket.tryAcquire(SECOND / 10));
+		assertTrue(bucket.isFull(SECOND));
+	}
+
+	@Test
+	void refundGivesBackTheToken() {
+		TokenBucket bucket = new TokenBucket(new BucketSpec(10, 1), 0);
+		assertEquals(0, bucket.tryAcquire(0));
+		assertTrue(bucket.tryAcquire(0) > 0);
+		bucket.refund();
+		assertEquals(0, bucket.tryAcquire(0));
+	}
+
+	@Test
+	void classifiesUnboundedListsSeparately() {
+		assertEquals(EndpointClass.UNBOUNDED_LIST, EndpointClass.of("GET", "/api/expenses"));
+		assertEquals(EndpointClass.READ, EndpointClass.of("GET", "/api/expenses/group/1"));
+		assertEquals(EndpointClass.WRITE, EndpointClass.of("POST", "/api/expenses"));
+	}
+}
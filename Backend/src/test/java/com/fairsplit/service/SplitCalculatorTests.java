@@ -0,0 +1,45 @@
+package com.fairsplit.service;
+
+import com.fairsplit.model.SplitType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SplitCalculatorTests {
+
+	@Test
+	void equalSplitHandsOutLeftoverCents() {
+		assertArrayEquals(new long[] {334, 333, 333}, SplitCalculator.split(SplitType.EQUAL, 10.00, null, 3));
+	}
+
+	@Test
+	void weightsAndSharesAddUpExactly() {
+		assertArrayEquals(new long[] {50, 25, 25}, SplitCalculator.split(SplitType.WEIGHTS, 1.00, new double[] {0.5, 0.25, 0.25}, 3));
+		assertArrayEquals(new long[] {333, 334, 333}, SplitCalculator.split(SplitType.SHARES, 10.00, new double[] {1, 1, 1}, 3));
+		assertArrayEquals(new long[] {2000, 1000}, SplitCalculator.split(SplitType.SHARES, 30.00, new double[] {2, 1}, 2));
+	}
+
+	@Test
+	void percentagesMustAddUpToOneHundred() {
+		assertArrayEquals(new long[] {700, 300}, SplitCalculator.split(SplitType.PERCENTAGES, 10.00, new double[] {70, 30}, 2));
+		assertThrows(IllegalArgumentException.class,
+				() -> SplitCalculator.split(SplitType.PERCENTAGES, 10.00, new double[] {70, 20}, 2));
+	}
+
+	@Test
+	void exactAmountsMustAddUpToTheExpense() {
+		assertArrayEquals(new long[] {1234, 766}, SplitCalculator.split(SplitType.EXACT, 20.00, new double[] {12.34, 7.66}, 2));
+		assertThrows(IllegalArgumentException.class,
+				() -> SplitCalculator.split(SplitType.EXACT, 20.00, new double[] {12.34, 7.65}, 2));
+	}
+
+	@Test
+	void rejectsMissingOrInvalidValues() {
+		assertThrows(IllegalArgumentException.class, () -> SplitCalculator.split(SplitType.WEIGHTS, 10.00, null, 2));
+		assertThrows(IllegalArgumentException.class,
+				() -> SplitCalculator.split(SplitType.WEIGHTS, 10.00, new double[] {1, -1}, 2));
+		assertThrows(IllegalArgumentException.class,
+				() -> SplitCalculator.split(SplitType.SHARES, 10.00, new double[] {1.5, 1}, 2));
+	}
+}
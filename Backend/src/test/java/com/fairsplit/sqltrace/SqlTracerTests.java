@@ -0,0 +1,42 @@
+package com.fairsplit.sqltrace;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlTracerTests {
+
+	@Test
+	void shapeReplacesLiteralsAndCollapsesInLists() {
+		assertEquals("select * from users u1_0 where u1_0.id in (?...) and name = ? limit ?",
+				SqlTracer.shape("select * from users u1_0\n  where u1_0.id in (?, ?,?) and name = 'O''Brien' limit 3"));
+	}
+
+	@Test
+	void keepsNewestSlowStatementsAndCountsPerEndpoint() {
+		SqlTracer tracer = new SqlTracer(0, 2);
+		tracer.beginRequest("GET /api/groups/{id}", "GroupController.getGroupById");
+		tracer.record("select 1", 1_000, 1);
+		tracer.record("select 2", 2_000, 1);
+		tracer.record("select 3", 3_000, 1);
+		tracer.endRequest();
+
+		List<SlowStatement> slow = tracer.getSlowStatements();
+		assertEquals(2, slow.size());
+		assertEquals("select ?", slow.get(0).sql());
+		assertEquals(3, slow.get(0).micros());
+		assertEquals("GroupController.getGroupById", slow.get(1).handler());
+	}
+
+	@Test
+	void histogramReportsBucketUpperBounds() {
+		Log2Histogram histogram = new Log2Histogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+		assertEquals(63, histogram.percentile(50));
+		assertEquals(100, histogram.percentile(99));
+	}
+}
@@ -0,0 +1,43 @@
+package com.fairsplit.statement;
+
+import com.fairsplit.dto.Statement;
+import com.fairsplit.dto.StatementGroup;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatementCsvTests {
+
+	@Test
+	void quotesOnlyWhenNeeded() {
+		assertEquals("Trip", StatementCsv.quote("Trip"));
+		assertEquals("\"Rome, 2024\"", StatementCsv.quote("Rome, 2024"));
+		assertEquals("\"The \"\"flat\"\"\"", StatementCsv.quote("The \"flat\""));
+		assertEquals("", StatementCsv.quote(null));
+	}
+
+	@Test
+	void neutralizesFormulas() {
+		assertEquals("\"'=SUM(A1)\"", StatementCsv.quote("=SUM(A1)"));
+		assertEquals("\"'-5\"", StatementCsv.quote("-5"));
+	}
+
+	@Test
+	void writesOneLinePerGroupAndATotal() {
+		StatementGroup rome = new StatementGroup(1L, "Rome, 2024", "EUR", 2, 120.5, 30, 10, 45.25, 0, 20, 45.25);
+		Statement statement = new Statement();
+		statement.setCurrency("USD");
+		statement.setGroups(List.of(rome));
+		statement.setExpensesPaid(130);
+		statement.setOwed(32.4);
+
+		String[] lines = new String(StatementCsv.render(statement), StandardCharsets.UTF_8).split("\r\n");
+		assertEquals(3, lines.length);
+		assertEquals(StatementCsv.HEADER, lines[0]);
+		assertEquals("1,\"Rome, 2024\",EUR,2,120.50,30.00,10.00,45.25,0.00,20.00,45.25", lines[1]);
+		assertEquals(",TOTAL,USD,2,130.00,32.40,0.00,0.00,0.00,0.00,0.00", lines[2]);
+	}
+}
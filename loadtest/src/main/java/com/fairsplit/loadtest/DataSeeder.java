@@ -0,0 +1,146 @@
+package com.fairsplit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Seeds a backend with a realistic data set through the public REST API:
+ * users with enough balance to settle their debts, groups whose sizes follow a
+ * power law, and expenses whose assignees are drawn from a Zipf distribution so a
+ * few members carry most of the debt. Every expense leaves unfulfilled requests
+ * behind for the workload to read and accept.
+ */
+public class DataSeeder {
+
+    private static final String[] CATEGORIES = {"Food", "Entertainment", "Utilities", "Travel", "Rent", "Other"};
+    private static final double STARTING_BALANCE = 1_000_000.0;
+    private static final int MAX_ASSIGNEES = 12;
+
+    private final FairsplitClient client;
+    private final LoadTestConfig config;
+
+    public DataSeeder(FairsplitClient client, LoadTestConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * Create users, groups and expenses, then collect the unfulfilled requests they produced
+     * @return the identifiers of everything that was created
+     */
+    public SeedData seed() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<Long> userIds = createUsers(runId);
+        List<SeedData.SeededGroup> groups = createGroups(runId, userIds);
+        createExpenses(groups);
+
+        ConcurrentLinkedQueue<Long> unfulfilled = new ConcurrentLinkedQueue<>();
+        for (SeedData.SeededGroup group : groups) {
+            for (JsonNode request : client.getForJson("/api/requests/group/" + group.id() + "/unfulfilled")) {
+                unfulfilled.add(request.get("id").asLong());
+            }
+        }
+        return new SeedData(userIds, groups, unfulfilled);
+    }
+
+    private List<Long> createUsers(String runId) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < config.getUsers(); i++) {
+                String username = "load-" + runId + "-" + i;
+                futures.add(executor.submit(() -> client.postForJson("/api/users/register", Map.of(
+                        "username", username,
+                        "password", "load-test",
+                        "fullname", "Load User " + username,
+                        "amount", STARTING_BALANCE)).get("id").asLong()));
+            }
+            List<Long> userIds = new ArrayList<>(futures.size());
+            for (Future<Long> future : futures) {
+                userIds.add(future.get());
+            }
+            return userIds;
+        }
+    }
+
+    private List<SeedData.SeededGroup> createGroups(String runId, List<Long> userIds) throws Exception {
+        Random random = new Random(config.getSeed());
+        int largest = Math.max(2, userIds.size() / 2);
+        List<SeedData.SeededGroup> groups = new ArrayList<>(config.getGroups());
+
+        for (int rank = 0; rank < config.getGroups(); rank++) {
+            // Group sizes follow a power law: a handful of very large groups and a long tail of small ones
+            int size = (int) Math.max(2, Math.round(largest / Math.pow(rank + 1, config.getGroupSizeSkew())));
+            List<Long> shuffled = new ArrayList<>(userIds);
+            Collections.shuffle(shuffled, random);
+            List<Long> members = List.copyOf(shuffled.subList(0, Math.min(size, shuffled.size())));
+
+            List<Map<String, Long>> users = members.stream().map(id -> Map.of("id", id)).toList();
+            JsonNode group = client.postForJson("/api/groups", Map.of(
+                    "name", "load-" + runId + "-group-" + rank,
+                    "users", users));
+            groups.add(new SeedData.SeededGroup(group.get("id").asLong(), members));
+        }
+        return groups;
+    }
+
+    private void createExpenses(List<SeedData.SeededGroup> groups) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int g = 0; g < groups.size(); g++) {
+                SeedData.SeededGroup group = groups.get(g);
+                SplittableRandom random = new SplittableRandom(config.getSeed() + g);
+                futures.add(executor.submit(() -> {
+                    ZipfSampler assignees = new ZipfSampler(group.memberIds().size(), config.getAssigneeSkew());
+                    for (int i = 0; i < config.getExpensesPerGroup(); i++) {
+                        client.postForJson("/api/expenses", randomExpense(group, assignees, random));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    /**
+     * Build an expense body for a group, with assignees drawn from the Zipf sampler
+     * @param group the group the expense belongs to
+     * @param assignees a sampler over the group's member indexes
+     * @param random the source of randomness
+     * @return a JSON-serializable expense body
+     */
+    static Map<String, Object> randomExpense(SeedData.SeededGroup group, ZipfSampler assignees, SplittableRandom random) {
+        List<Long> members = group.memberIds();
+        long payerId = members.get(random.nextInt(members.size()));
+
+        int wanted = 1 + random.nextInt(Math.min(members.size(), MAX_ASSIGNEES));
+        Set<Long> assigned = new LinkedHashSet<>();
+        assigned.add(payerId);
+        for (int attempts = 0; assigned.size() <= wanted && attempts < wanted * 8; attempts++) {
+            assigned.add(members.get(assignees.sample(random)));
+        }
+
+        // Log-uniform amounts between 5 and 500, rounded to cents
+        double amount = Math.round(5 * Math.pow(100, random.nextDouble()) * 100) / 100.0;
+        return Map.of(
+                "name", "Load expense " + random.nextInt(1_000_000),
+                "amount", amount,
+                "category", CATEGORIES[random.nextInt(CATEGORIES.length)],
+                "payer", Map.of("id", payerId),
+                "group", Map.of("id", group.id()),
+                "assignedUsers", assigned.stream().map(id -> Map.of("id", id)).toList());
+    }
+}
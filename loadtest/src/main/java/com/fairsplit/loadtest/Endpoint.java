@@ -0,0 +1,38 @@
+package com.fairsplit.loadtest;
+
+/**
+ * The REST endpoints exercised by the workload. Reads and writes are picked
+ * separately according to the configured read ratio, then by weight within their class.
+ */
+public enum Endpoint {
+    GROUP_BY_ID("GET /api/groups/{id}", false, 2),
+    EXPENSES_BY_GROUP("GET /api/expenses/group/{groupId}", false, 4),
+    UNFULFILLED_REQUESTS_BY_GROUP("GET /api/requests/group/{groupId}/unfulfilled", false, 3),
+    UNFULFILLED_REQUESTS_BY_DEBTOR("GET /api/requests/debtor/{userId}/unfulfilled", false, 3),
+    PAYMENTS_BY_GROUP("GET /api/payments/group/{groupId}", false, 2),
+    PAYMENTS_BY_DEBTOR("GET /api/payments/debtor/{userId}", false, 1),
+    CREATE_EXPENSE("POST /api/expenses", true, 3),
+    ACCEPT_REQUEST("POST /api/requests/{id}/accept", true, 2);
+
+    private final String label;
+    private final boolean write;
+    private final int weight;
+
+    Endpoint(String label, boolean write, int weight) {
+        this.label = label;
+        this.write = write;
+        this.weight = weight;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isWrite() {
+        return write;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
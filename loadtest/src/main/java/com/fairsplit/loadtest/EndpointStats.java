@@ -0,0 +1,65 @@
+package com.fairsplit.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcome counters for one endpoint. Latencies are recorded in
+ * microseconds into an HDR {@link Recorder}, which lets the warmup interval be
+ * discarded without pausing the recording threads.
+ */
+public class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final Endpoint endpoint;
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public EndpointStats(Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public void record(long elapsedNanos, boolean success) {
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS);
+        recorder.recordValue(micros);
+        if (success) {
+            successes.increment();
+        } else {
+            failures.increment();
+        }
+    }
+
+    /**
+     * Drop everything recorded so far, e.g. at the end of the warmup period
+     */
+    public void reset() {
+        recorder.getIntervalHistogram();
+        successes.reset();
+        failures.reset();
+    }
+
+    /**
+     * Take the histogram recorded since the last reset
+     * @return the latency histogram in microseconds
+     */
+    public Histogram snapshot() {
+        return recorder.getIntervalHistogram();
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+}
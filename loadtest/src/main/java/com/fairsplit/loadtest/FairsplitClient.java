@@ -0,0 +1,97 @@
+package com.fairsplit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal blocking JSON client for the Fairsplit REST API. Calls are meant to be
+ * made from virtual threads, so blocking on the response is cheap.
+ */
+public class FairsplitClient {
+
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public FairsplitClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    /**
+     * Result of a single call
+     * @param status the HTTP status code
+     * @param body the raw response body
+     */
+    public record Response(int status, byte[] body) {
+        public boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    public Response get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return send(request);
+    }
+
+    public Response post(String path, Object body) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json")
+                .POST(publisher)
+                .build();
+        return send(request);
+    }
+
+    /**
+     * POST a body and parse the JSON response, failing if the call was not successful
+     * @param path the API path
+     * @param body the request body, serialized as JSON
+     * @return the parsed response body
+     * @throws IllegalStateException if the server does not answer with a 2xx status
+     */
+    public JsonNode postForJson(String path, Object body) throws IOException, InterruptedException {
+        Response response = post(path, body);
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("POST " + path + " failed with status " + response.status());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * GET a path and parse the JSON response, failing if the call was not successful
+     * @param path the API path
+     * @return the parsed response body
+     * @throws IllegalStateException if the server does not answer with a 2xx status
+     */
+    public JsonNode getForJson(String path) throws IOException, InterruptedException {
+        Response response = get(path);
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("GET " + path + " failed with status " + response.status());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private Response send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        return new Response(response.statusCode(), response.body());
+    }
+}
@@ -0,0 +1,228 @@
+package com.fairsplit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures ledger writes under contention: concurrent new expenses, accepted requests and
+ * direct payments aimed at one hot group, then the same load spread over many groups.
+ * For each scenario it reports throughput and p50/p99 latency per write, and checks that
+ * every user's balance moved by exactly the accepted requests and payments they were part
+ * of, so a lost balance update shows up as a mismatch.
+ *
+ * Run it once against a backend with the ledger locks on and once with
+ * {@code fairsplit.ledger.locks.enabled=false} to see what serializing group writes costs
+ * and what it prevents. Admission control should be off so no write is shed.
+ *
+ * <pre>
+ * cd Backend
+ * ./mvnw spring-boot:run -Dspring-boot.run.profiles=loadtest \
+ *     -Dspring-boot.run.arguments="--fairsplit.admission.enabled=false"
+ * cd ../loadtest
+ * mvn compile exec:java -Dexec.mainClass=com.fairsplit.loadtest.LedgerContentionBenchmark \
+ *     -Dexec.args="--baseUrl=http://localhost:8080 --groups=16 --groupSize=6 --workers=64 --operations=4000"
+ * </pre>
+ */
+public class LedgerContentionBenchmark {
+
+    private static final double STARTING_BALANCE = 1_000_000.0;
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+    private static final String[] OPERATIONS = {"expense", "accept", "payment"};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            options.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        FairsplitClient client = new FairsplitClient(options.getOrDefault("baseUrl", "http://localhost:8080"));
+        int groups = Integer.parseInt(options.getOrDefault("groups", "16"));
+        int groupSize = Integer.parseInt(options.getOrDefault("groupSize", "6"));
+        int workers = Integer.parseInt(options.getOrDefault("workers", "64"));
+        int operations = Integer.parseInt(options.getOrDefault("operations", "4000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        System.out.printf("%-8s %-8s %8s %8s %10s %9s %9s%n", "scenario", "write", "ok", "failed", "ops/s", "p50(ms)", "p99(ms)");
+        // Fresh users and groups per scenario, so each starts from known balances
+        run("hot", client, seed, 1, groupSize, workers, operations);
+        run("spread", client, seed, groups, groupSize, workers, operations);
+    }
+
+    private static void run(String scenario, FairsplitClient client, long seed, int groupCount, int groupSize,
+                            int workers, int operations) throws Exception {
+        String runId = scenario + "-" + Long.toString(System.currentTimeMillis(), 36);
+        List<SeedData.SeededGroup> groups = new ArrayList<>(groupCount);
+        for (int g = 0; g < groupCount; g++) {
+            List<Long> members = new ArrayList<>(groupSize);
+            for (int u = 0; u < groupSize; u++) {
+                String username = "ledger-" + runId + "-" + g + "-" + u;
+                members.add(client.postForJson("/api/users/register", Map.of(
+                        "username", username,
+                        "password", "load-test",
+                        "fullname", "Ledger User " + username,
+                        "amount", STARTING_BALANCE)).get("id").asLong());
+            }
+            JsonNode group = client.postForJson("/api/groups", Map.of(
+                    "name", "ledger-" + runId + "-group-" + g,
+                    "users", members.stream().map(id -> Map.of("id", id)).toList()));
+            groups.add(new SeedData.SeededGroup(group.get("id").asLong(), List.copyOf(members)));
+        }
+
+        // Requests for the accept writes to settle, a few per operation a worker may pick
+        Map<Long, ConcurrentLinkedQueue<JsonNode>> openRequests = new HashMap<>();
+        SplittableRandom seeding = new SplittableRandom(seed);
+        for (SeedData.SeededGroup group : groups) {
+            for (int i = 0; i < Math.max(1, operations / groupCount / 2); i++) {
+                client.postForJson("/api/expenses", expense(group, seeding));
+            }
+            ConcurrentLinkedQueue<JsonNode> queue = new ConcurrentLinkedQueue<>();
+            client.getForJson("/api/requests/group/" + group.id() + "/unfulfilled").forEach(queue::add);
+            openRequests.put(group.id(), queue);
+        }
+
+        // What each balance should move by, in cents, counting only the writes the server confirmed
+        Map<Long, LongAdder> expectedCents = new ConcurrentHashMap<>();
+        for (SeedData.SeededGroup group : groups) {
+            for (Long userId : group.memberIds()) {
+                expectedCents.put(userId, new LongAdder());
+            }
+        }
+        Map<String, Recorder> latencies = new LinkedHashMap<>();
+        Map<String, LongAdder> successes = new HashMap<>();
+        Map<String, LongAdder> failures = new HashMap<>();
+        for (String operation : OPERATIONS) {
+            latencies.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            successes.put(operation, new LongAdder());
+            failures.put(operation, new LongAdder());
+        }
+
+        AtomicInteger remaining = new AtomicInteger(operations);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                SplittableRandom random = new SplittableRandom(seed + w + 1);
+                futures.add(executor.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        SeedData.SeededGroup group = groups.get(random.nextInt(groups.size()));
+                        String operation = OPERATIONS[random.nextInt(OPERATIONS.length)];
+                        long begin = System.nanoTime();
+                        boolean ok = write(client, operation, group, openRequests.get(group.id()), expectedCents, random);
+                        latencies.get(operation).recordValue(Math.min(
+                                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin), HIGHEST_TRACKABLE_MICROS));
+                        (ok ? successes : failures).get(operation).increment();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (String operation : OPERATIONS) {
+            Histogram histogram = latencies.get(operation).getIntervalHistogram();
+            long ok = successes.get(operation).sum();
+            System.out.printf("%-8s %-8s %8d %8d %10.1f %9.2f %9.2f%n", scenario, operation, ok,
+                    failures.get(operation).sum(), ok / seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0);
+        }
+
+        int mismatched = 0;
+        long driftCents = 0;
+        for (Map.Entry<Long, LongAdder> entry : expectedCents.entrySet()) {
+            JsonNode user = client.getForJson("/api/users/" + entry.getKey());
+            long actual = Math.round(user.get("amount").asDouble() * 100);
+            long expected = Math.round(STARTING_BALANCE * 100) + entry.getValue().sum();
+            if (actual != expected) {
+                mismatched++;
+                driftCents += actual - expected;
+            }
+        }
+        System.out.printf("%-8s balances: %d of %d users off, net drift %.2f%s%n", scenario, mismatched,
+                expectedCents.size(), driftCents / 100.0, mismatched == 0 ? " (no lost updates)" : " (LOST UPDATES)");
+    }
+
+    /**
+     * Make one write and, if it succeeded and moved money, record how the balances should change
+     * @return whether the server accepted the write
+     */
+    private static boolean write(FairsplitClient client, String operation, SeedData.SeededGroup group,
+                                 ConcurrentLinkedQueue<JsonNode> openRequests, Map<Long, LongAdder> expectedCents,
+                                 SplittableRandom random) throws Exception {
+        switch (operation) {
+            case "expense" -> {
+                return client.post("/api/expenses", expense(group, random)).isSuccess();
+            }
+            case "accept" -> {
+                JsonNode request = openRequests.poll();
+                if (request == null) {
+                    // Nothing left to settle in this group, pay directly instead
+                    return write(client, "payment", group, openRequests, expectedCents, random);
+                }
+                if (!client.post("/api/requests/" + request.get("id").asLong() + "/accept", null).isSuccess()) {
+                    return false;
+                }
+                transfer(expectedCents, request.get("debtor").get("id").asLong(),
+                        request.get("debtee").get("id").asLong(), Math.round(request.get("amount").asDouble() * 100));
+                return true;
+            }
+            default -> {
+                List<Long> members = group.memberIds();
+                long debtorId = members.get(random.nextInt(members.size()));
+                long debteeId = members.get(random.nextInt(members.size()));
+                while (debteeId == debtorId) {
+                    debteeId = members.get(random.nextInt(members.size()));
+                }
+                long cents = 100 + random.nextInt(10_000);
+                boolean ok = client.post("/api/payments", Map.of(
+                        "name", "Ledger payment",
+                        "amount", cents / 100.0,
+                        "debtor", Map.of("id", debtorId),
+                        "debtee", Map.of("id", debteeId),
+                        "group", Map.of("id", group.id()))).isSuccess();
+                if (ok) {
+                    transfer(expectedCents, debtorId, debteeId, cents);
+                }
+                return ok;
+            }
+        }
+    }
+
+    private static void transfer(Map<Long, LongAdder> expectedCents, long debtorId, long debteeId, long cents) {
+        expectedCents.get(debtorId).add(-cents);
+        expectedCents.get(debteeId).add(cents);
+    }
+
+    private static Map<String, Object> expense(SeedData.SeededGroup group, SplittableRandom random) {
+        List<Long> members = group.memberIds();
+        long payerId = members.get(random.nextInt(members.size()));
+        return Map.of(
+                "name", "Ledger expense " + random.nextInt(1_000_000),
+                "amount", (100 + random.nextInt(20_000)) / 100.0,
+                "category", "Other",
+                "payer", Map.of("id", payerId),
+                "group", Map.of("id", group.id()),
+                "assignedUsers", members.stream().map(id -> Map.of("id", id)).toList());
+    }
+}
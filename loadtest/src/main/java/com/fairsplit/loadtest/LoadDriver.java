@@ -0,0 +1,117 @@
+package com.fairsplit.loadtest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the seeded backend with a closed-loop workload: a fixed number of
+ * virtual threads each issue one call at a time, choosing a read or a write
+ * according to the configured ratio. Groups are picked with a Zipf draw so the
+ * largest groups are also the hottest.
+ */
+public class LoadDriver {
+
+    private final FairsplitClient client;
+    private final LoadTestConfig config;
+    private final SeedData seedData;
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+    private final ZipfSampler groupSampler;
+    private final List<ZipfSampler> assigneeSamplers = new ArrayList<>();
+    private final List<Endpoint> reads = new ArrayList<>();
+    private final List<Endpoint> writes = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    public LoadDriver(FairsplitClient client, LoadTestConfig config, SeedData seedData) {
+        this.client = client;
+        this.config = config;
+        this.seedData = seedData;
+        this.groupSampler = new ZipfSampler(seedData.groups().size(), config.getGroupSizeSkew());
+        for (SeedData.SeededGroup group : seedData.groups()) {
+            assigneeSamplers.add(new ZipfSampler(group.memberIds().size(), config.getAssigneeSkew()));
+        }
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats(endpoint));
+            // Expand by weight so a uniform pick over the list honours the weights
+            List<Endpoint> target = endpoint.isWrite() ? writes : reads;
+            for (int i = 0; i < endpoint.getWeight(); i++) {
+                target.add(endpoint);
+            }
+        }
+    }
+
+    /**
+     * Run the warmup and measurement phases
+     * @return the stats per endpoint for the measurement phase only
+     */
+    public Map<Endpoint, EndpointStats> run() throws InterruptedException {
+        SplittableRandom seeds = new SplittableRandom(config.getSeed());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.getConcurrency(); i++) {
+                SplittableRandom random = seeds.split();
+                executor.submit(() -> loop(random));
+            }
+
+            Thread.sleep(config.getWarmup().toMillis());
+            stats.values().forEach(EndpointStats::reset);
+            Thread.sleep(config.getDuration().toMillis());
+            running = false;
+
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return stats;
+    }
+
+    private void loop(SplittableRandom random) {
+        while (running) {
+            Endpoint endpoint = random.nextDouble() < config.getReadRatio()
+                    ? reads.get(random.nextInt(reads.size()))
+                    : writes.get(random.nextInt(writes.size()));
+            int groupIndex = groupSampler.sample(random);
+            SeedData.SeededGroup group = seedData.groups().get(groupIndex);
+            long userId = group.memberIds().get(random.nextInt(group.memberIds().size()));
+
+            if (endpoint == Endpoint.ACCEPT_REQUEST && seedData.unfulfilledRequestIds().isEmpty()) {
+                // Every seeded request has been settled, keep the write volume by creating more
+                endpoint = Endpoint.CREATE_EXPENSE;
+            }
+
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                success = call(endpoint, groupIndex, userId, random);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                success = false;
+            }
+            stats.get(endpoint).record(System.nanoTime() - start, success);
+        }
+    }
+
+    private boolean call(Endpoint endpoint, int groupIndex, long userId, SplittableRandom random) throws Exception {
+        SeedData.SeededGroup group = seedData.groups().get(groupIndex);
+        return switch (endpoint) {
+            case GROUP_BY_ID -> client.get("/api/groups/" + group.id()).isSuccess();
+            case EXPENSES_BY_GROUP -> client.get("/api/expenses/group/" + group.id()).isSuccess();
+            case UNFULFILLED_REQUESTS_BY_GROUP -> client.get("/api/requests/group/" + group.id() + "/unfulfilled").isSuccess();
+            case UNFULFILLED_REQUESTS_BY_DEBTOR -> client.get("/api/requests/debtor/" + userId + "/unfulfilled").isSuccess();
+            case PAYMENTS_BY_GROUP -> client.get("/api/payments/group/" + group.id()).isSuccess();
+            case PAYMENTS_BY_DEBTOR -> client.get("/api/payments/debtor/" + userId).isSuccess();
+            case CREATE_EXPENSE -> client.post("/api/expenses",
+                    DataSeeder.randomExpense(group, assigneeSamplers.get(groupIndex), random)).isSuccess();
+            case ACCEPT_REQUEST -> {
+                Long requestId = seedData.unfulfilledRequestIds().poll();
+                yield requestId != null && client.post("/api/requests/" + requestId + "/accept", null).isSuccess();
+            }
+        };
+    }
+}
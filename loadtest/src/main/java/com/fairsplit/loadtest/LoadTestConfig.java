@@ -0,0 +1,131 @@
+package com.fairsplit.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for a load test run, parsed from {@code --key=value} arguments.
+ * Every setting has a default so the harness can be started with no arguments
+ * against a local backend.
+ */
+public class LoadTestConfig {
+
+    private final String baseUrl;
+    private final int users;
+    private final int groups;
+    private final int expensesPerGroup;
+    private final double groupSizeSkew;
+    private final double assigneeSkew;
+    private final int concurrency;
+    private final double readRatio;
+    private final Duration warmup;
+    private final Duration duration;
+    private final long seed;
+    private final String outputDir;
+
+    private LoadTestConfig(Map<String, String> options) {
+        this.baseUrl = options.getOrDefault("baseUrl", "http://localhost:8080");
+        this.users = Integer.parseInt(options.getOrDefault("users", "500"));
+        this.groups = Integer.parseInt(options.getOrDefault("groups", "50"));
+        this.expensesPerGroup = Integer.parseInt(options.getOrDefault("expensesPerGroup", "20"));
+        this.groupSizeSkew = Double.parseDouble(options.getOrDefault("groupSizeSkew", "1.1"));
+        this.assigneeSkew = Double.parseDouble(options.getOrDefault("assigneeSkew", "1.2"));
+        this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        this.readRatio = Double.parseDouble(options.getOrDefault("readRatio", "0.9"));
+        this.warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmupSeconds", "10")));
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("durationSeconds", "60")));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.outputDir = options.get("outputDir");
+
+        if (users < 2 || groups < 1) {
+            throw new IllegalArgumentException("Need at least 2 users and 1 group");
+        }
+        if (readRatio < 0 || readRatio > 1) {
+            throw new IllegalArgumentException("readRatio must be between 0 and 1");
+        }
+    }
+
+    /**
+     * Parse command line arguments of the form {@code --key=value}
+     * @param args the raw arguments
+     * @return the parsed configuration
+     * @throws IllegalArgumentException if an argument is malformed
+     */
+    public static LoadTestConfig fromArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            int split = arg.indexOf('=');
+            options.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        return new LoadTestConfig(options);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getGroups() {
+        return groups;
+    }
+
+    public int getExpensesPerGroup() {
+        return expensesPerGroup;
+    }
+
+    public double getGroupSizeSkew() {
+        return groupSizeSkew;
+    }
+
+    public double getAssigneeSkew() {
+        return assigneeSkew;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public double getReadRatio() {
+        return readRatio;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getOutputDir() {
+        return outputDir;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadTestConfig{" +
+                "baseUrl='" + baseUrl + '\'' +
+                ", users=" + users +
+                ", groups=" + groups +
+                ", expensesPerGroup=" + expensesPerGroup +
+                ", groupSizeSkew=" + groupSizeSkew +
+                ", assigneeSkew=" + assigneeSkew +
+                ", concurrency=" + concurrency +
+                ", readRatio=" + readRatio +
+                ", warmup=" + warmup +
+                ", duration=" + duration +
+                ", seed=" + seed +
+                '}';
+    }
+}
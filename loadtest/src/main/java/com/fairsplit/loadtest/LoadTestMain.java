@@ -0,0 +1,73 @@
+package com.fairsplit.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Entry point of the load harness: seed the backend, run the workload and report
+ * throughput and latency percentiles per endpoint. When {@code --outputDir} is set,
+ * the full HDR percentile distribution of each endpoint is written as a
+ * {@code .hgrm} file plus a {@code summary.csv}, so two builds can be compared offline.
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromArgs(args);
+        System.out.println("Starting load test with " + config);
+
+        FairsplitClient client = new FairsplitClient(config.getBaseUrl());
+        long seedStart = System.nanoTime();
+        SeedData seedData = new DataSeeder(client, config).seed();
+        System.out.printf("Seeded %d users, %d groups and %d unfulfilled requests in %.1fs%n",
+                seedData.userIds().size(), seedData.groups().size(), seedData.unfulfilledRequestIds().size(),
+                (System.nanoTime() - seedStart) / 1e9);
+
+        Map<Endpoint, EndpointStats> stats = new LoadDriver(client, config, seedData).run();
+        report(stats, config);
+    }
+
+    private static void report(Map<Endpoint, EndpointStats> stats, LoadTestConfig config) throws IOException {
+        double seconds = config.getDuration().toMillis() / 1000.0;
+        Path outputDir = config.getOutputDir() == null ? null : Files.createDirectories(Path.of(config.getOutputDir()));
+        StringBuilder csv = new StringBuilder("endpoint,ok,errors,throughput,p50_us,p90_us,p99_us,p999_us,max_us\n");
+
+        System.out.printf("%-48s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                "endpoint", "ok", "errors", "req/s", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)");
+        long totalCalls = 0;
+        for (EndpointStats endpointStats : stats.values()) {
+            Histogram histogram = endpointStats.snapshot();
+            long calls = endpointStats.getSuccesses() + endpointStats.getFailures();
+            totalCalls += calls;
+            String label = endpointStats.getEndpoint().getLabel();
+            long p50 = histogram.getValueAtPercentile(50);
+            long p90 = histogram.getValueAtPercentile(90);
+            long p99 = histogram.getValueAtPercentile(99);
+            long p999 = histogram.getValueAtPercentile(99.9);
+            long max = histogram.getMaxValue();
+
+            csv.append(String.format("%s,%d,%d,%.1f,%d,%d,%d,%d,%d%n", label, endpointStats.getSuccesses(),
+                    endpointStats.getFailures(), calls / seconds, p50, p90, p99, p999, max));
+            System.out.printf("%-48s %9d %7d %10.1f %9d %9d %9d %9d %9d%n", label, endpointStats.getSuccesses(),
+                    endpointStats.getFailures(), calls / seconds, p50, p90, p99, p999, max);
+
+            if (outputDir != null) {
+                Path file = outputDir.resolve(endpointStats.getEndpoint().name().toLowerCase() + ".hgrm");
+                try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                    histogram.outputPercentileDistribution(out, 1.0);
+                }
+            }
+        }
+        System.out.printf("Total throughput: %.1f req/s over %.0fs with %d virtual threads%n",
+                totalCalls / seconds, seconds, config.getConcurrency());
+
+        if (outputDir != null) {
+            Files.writeString(outputDir.resolve("summary.csv"), csv);
+            System.out.println("Wrote histograms and summary to " + outputDir.toAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.fairsplit.loadtest;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Identifiers created by {@link DataSeeder}, used by the workload to pick targets.
+ * Groups are ordered largest first so a Zipf draw over their index favours big groups.
+ * @param userIds every seeded user
+ * @param groups every seeded group, largest first
+ * @param unfulfilledRequestIds requests that can still be accepted; the workload consumes them
+ */
+public record SeedData(List<Long> userIds,
+                       List<SeededGroup> groups,
+                       ConcurrentLinkedQueue<Long> unfulfilledRequestIds) {
+
+    /**
+     * A seeded group and its members
+     * @param id the group ID
+     * @param memberIds the IDs of the group members
+     */
+    public record SeededGroup(long id, List<Long> memberIds) {
+    }
+}
@@ -0,0 +1,208 @@
+package com.fairsplit.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares JSON, CBOR and Smile for the lists the group endpoints return: CPU time to
+ * serialize and parse synthetic {@code ExpenseResponse}/{@code RequestResponse} lists
+ * shaped like the backend DTOs, and their size raw and gzipped. With {@code --baseUrl}
+ * it also fetches the real group endpoints in every encoding and reports bytes on the wire.
+ *
+ * <pre>
+ * cd loadtest
+ * mvn compile exec:java -Dexec.mainClass=com.fairsplit.loadtest.SerializationBenchmark \
+ *     -Dexec.args="--sizes=10,100,1000 --iterations=2000 --output=results/serialization.csv"
+ * # against a running backend, e.g. seeded by LoadTestMain:
+ *     -Dexec.args="--baseUrl=http://localhost:8080 --groupId=1"
+ * </pre>
+ */
+public class SerializationBenchmark {
+
+    record UserSummary(Long id, String username, String fullname) {}
+
+    record GroupSummary(Long id, String name, String currency) {}
+
+    record ExpenseSummary(Long id, String name, String category) {}
+
+    record ExpenseResponse(Long id, String name, Double amount, String currency, String category, boolean paid,
+                           String splitType, UserSummary payer, GroupSummary group, List<UserSummary> assignedUsers,
+                           Date createdAt, Date updatedAt) {}
+
+    record RequestResponse(Long id, Double amount, boolean fulfilled, ExpenseSummary expense, UserSummary debtor,
+                           UserSummary debtee, GroupSummary group, Date createdAt, Date updatedAt) {}
+
+    private static final Map<String, String> MEDIA_TYPES = Map.of(
+            "json", "application/json",
+            "cbor", "application/cbor",
+            "smile", "application/x-jackson-smile");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            options.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "2000"));
+        List<String> lines = new ArrayList<>();
+        lines.add("source,payload,items,format,bytes,gzip_bytes,serialize_us,parse_us");
+
+        Map<String, ObjectMapper> mappers = Map.of(
+                "json", new ObjectMapper(),
+                "cbor", new ObjectMapper(new CBORFactory()),
+                "smile", new ObjectMapper(new SmileFactory()));
+
+        for (String size : options.getOrDefault("sizes", "10,100,1000").split(",")) {
+            int items = Integer.parseInt(size.trim());
+            SplittableRandom random = new SplittableRandom(42);
+            List<ExpenseResponse> expenses = expenses(items, random);
+            List<RequestResponse> requests = requests(items, random);
+            for (String format : List.of("json", "cbor", "smile")) {
+                ObjectMapper mapper = mappers.get(format);
+                lines.add(measure("synthetic", "expenses", items, format, mapper, expenses,
+                        new TypeReference<List<ExpenseResponse>>() {}, iterations));
+                lines.add(measure("synthetic", "requests", items, format, mapper, requests,
+                        new TypeReference<List<RequestResponse>>() {}, iterations));
+            }
+        }
+
+        String baseUrl = options.get("baseUrl");
+        if (baseUrl != null) {
+            String groupId = options.getOrDefault("groupId", "1");
+            HttpClient http = HttpClient.newHttpClient();
+            for (String payload : List.of("expenses", "requests")) {
+                URI uri = URI.create(baseUrl + "/api/" + payload + "/group/" + groupId);
+                for (String format : List.of("json", "cbor", "smile")) {
+                    // HttpClient does not decompress, so the body is exactly what crossed the wire
+                    int raw = fetch(http, uri, MEDIA_TYPES.get(format), "identity");
+                    int gzip = fetch(http, uri, MEDIA_TYPES.get(format), "gzip");
+                    lines.add(String.join(",", "live", payload, "", format,
+                            Integer.toString(raw), Integer.toString(gzip), "", ""));
+                }
+            }
+        }
+
+        lines.forEach(System.out::println);
+        String output = options.get("output");
+        if (output != null) {
+            Path path = Path.of(output);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+                lines.forEach(writer::println);
+            }
+        }
+    }
+
+    /**
+     * Time serializing and parsing one list, after a warmup of the same length
+     * @return a CSV line with sizes and mean microseconds per operation
+     */
+    private static <T> String measure(String source, String payload, int items, String format, ObjectMapper mapper,
+                                      T value, TypeReference<T> type, int iterations) throws IOException {
+        byte[] encoded = mapper.writeValueAsBytes(value);
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += mapper.writeValueAsBytes(value).length;
+            sink += mapper.readValue(encoded, type).hashCode();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += mapper.writeValueAsBytes(value).length;
+        }
+        long serializeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += mapper.readValue(encoded, type).hashCode();
+        }
+        long parseNanos = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.print("");
+        }
+
+        return String.join(",", source, payload, Integer.toString(items), format,
+                Integer.toString(encoded.length), Integer.toString(gzip(encoded).length),
+                String.format("%.2f", serializeNanos / 1000.0 / iterations),
+                String.format("%.2f", parseNanos / 1000.0 / iterations));
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static int fetch(HttpClient http, URI uri, String accept, String encoding) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Accept", accept)
+                .header("Accept-Encoding", encoding)
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(uri + " returned " + response.statusCode() + " for " + accept);
+        }
+        return response.body().length;
+    }
+
+    private static List<ExpenseResponse> expenses(int items, SplittableRandom random) {
+        List<ExpenseResponse> expenses = new ArrayList<>(items);
+        GroupSummary group = new GroupSummary(1L, "Load group 1", "USD");
+        for (int i = 0; i < items; i++) {
+            List<UserSummary> assigned = new ArrayList<>();
+            for (int a = 0, n = 2 + random.nextInt(4); a < n; a++) {
+                assigned.add(user(random));
+            }
+            Date createdAt = new Date(1_700_000_000_000L + random.nextLong(30_000_000_000L));
+            expenses.add(new ExpenseResponse((long) i + 1, "Load expense " + random.nextInt(1_000_000),
+                    Math.round(5 * Math.pow(100, random.nextDouble()) * 100) / 100.0, "USD", "Food", false,
+                    "EQUAL", user(random), group, assigned, createdAt, createdAt));
+        }
+        return expenses;
+    }
+
+    private static List<RequestResponse> requests(int items, SplittableRandom random) {
+        List<RequestResponse> requests = new ArrayList<>(items);
+        GroupSummary group = new GroupSummary(1L, "Load group 1", "USD");
+        for (int i = 0; i < items; i++) {
+            Date createdAt = new Date(1_700_000_000_000L + random.nextLong(30_000_000_000L));
+            requests.add(new RequestResponse((long) i + 1,
+                    Math.round(random.nextDouble(1, 200) * 100) / 100.0, random.nextBoolean(),
+                    new ExpenseSummary((long) random.nextInt(10_000), "Load expense " + random.nextInt(1_000_000), "Food"),
+                    user(random), user(random), group, createdAt, createdAt));
+        }
+        return requests;
+    }
+
+    private static UserSummary user(SplittableRandom random) {
+        long id = 1 + random.nextInt(500);
+        return new UserSummary(id, "load-user-" + id, "Load User " + id);
+    }
+}
@@ -0,0 +1,117 @@
+package com.fairsplit.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures time from process start to the first successful {@code GET /api/groups},
+ * for the plain fat jar and for the {@code -Pfaststart} build (AOT + CDS archive +
+ * faststart Spring profile). Each variant is started several times and the median,
+ * best and worst runs are reported.
+ *
+ * <pre>
+ * cd Backend
+ * ./mvnw -Pfaststart,loadtest package -DskipTests -Dcds.training.profiles=faststart,loadtest
+ * cd ../loadtest
+ * mvn compile exec:java -Dexec.mainClass=com.fairsplit.loadtest.StartupBenchmark \
+ *     -Dexec.args="--backendDir=../Backend --profiles=loadtest --runs=5"
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    private static final String JAR_NAME = "Fairsplit-0.0.1-SNAPSHOT.jar";
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            options.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        File backendDir = new File(options.getOrDefault("backendDir", "../Backend"));
+        String profiles = options.getOrDefault("profiles", "");
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        int port = Integer.parseInt(options.getOrDefault("port", "18080"));
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        File target = new File(backendDir, "target");
+
+        List<String> baseline = new ArrayList<>(List.of(java,
+                "-Dserver.port=" + port,
+                "-Dspring.profiles.active=" + profiles,
+                "-jar", new File(target, JAR_NAME).getPath()));
+        List<String> fastStart = new ArrayList<>(List.of(java,
+                "-XX:SharedArchiveFile=" + new File(target, "extracted/application.jsa").getPath(),
+                "-Dspring.aot.enabled=true",
+                "-Dserver.port=" + port,
+                "-Dspring.profiles.active=" + (profiles.isEmpty() ? "faststart" : "faststart," + profiles),
+                "-jar", new File(target, "extracted/" + JAR_NAME).getPath()));
+
+        long[] baselineMillis = measure("baseline", baseline, port, runs);
+        long[] fastStartMillis = measure("faststart", fastStart, port, runs);
+        System.out.printf("%-10s %10s %10s %10s%n", "variant", "median(ms)", "best(ms)", "worst(ms)");
+        print("baseline", baselineMillis);
+        print("faststart", fastStartMillis);
+    }
+
+    private static long[] measure(String name, List<String> command, int port, int runs) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/groups"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            try {
+                while (true) {
+                    if (!process.isAlive()) {
+                        throw new IllegalStateException(name + " exited with code " + process.exitValue());
+                    }
+                    if (System.nanoTime() - start > TIMEOUT.toNanos()) {
+                        throw new IllegalStateException(name + " did not answer within " + TIMEOUT);
+                    }
+                    try {
+                        if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                            break;
+                        }
+                    } catch (IOException notListeningYet) {
+                        // keep polling until the server accepts connections
+                    }
+                    Thread.sleep(10);
+                }
+                millis[run] = (System.nanoTime() - start) / 1_000_000;
+                System.out.printf("%s run %d: %d ms%n", name, run + 1, millis[run]);
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+        return millis;
+    }
+
+    private static void print(String name, long[] millis) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-10s %10d %10d %10d%n", name, sorted[sorted.length / 2], sorted[0], sorted[sorted.length - 1]);
+    }
+}